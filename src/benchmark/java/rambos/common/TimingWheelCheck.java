@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import rambos.common.TimingWheel.Timeout;
+
+/**
+ * Equivalence check of {@link TimingWheel} against a reference which keeps the pending timeouts
+ * sorted by the tick on which they should expire.
+ * 
+ * A seeded sequence of random operations schedules timeouts, cancels them, and advances the wheel,
+ * with deadlines in the past, within the lowest level, across all levels, and beyond the range of
+ * the wheel, as well as advances of a few ticks and long jumps. The sequence is run once for each
+ * of three tick durations. After each operation, the timeouts expired by the wheel, their order,
+ * the pending state of every timeout, and the size of the wheel are compared with the reference.
+ * Besides, every timeout must expire neither before its deadline nor more than a tick after it.
+ * The check stops at the first mismatch, printing the operation and what was expected. Run it with
+ * {@code ./gradlew timingWheelCheck}, optionally passing the number of operations per tick
+ * duration and the seed, e.g. {@code ./gradlew timingWheelCheck -PcheckArgs="200000 42"}.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class TimingWheelCheck {
+  private static final long[] TICK_MILLIS = {1, 10, 100};
+  private static final long START_MILLIS = 1_500_000_000_000L;
+  private static final long RANGE_TICKS = 1L << 30;
+
+  private final Random random;
+  private final long tickMillis;
+  private final TimingWheel<Integer> wheel;
+  // Reference: ids of the pending timeouts by the tick on which they should expire
+  private final NavigableMap<Long, List<Integer>> pendingByTick = new TreeMap<>();
+  private final Map<Integer, Long> tickOf = new HashMap<>();
+  // Deadlines of the pending timeouts which were scheduled before their deadline passed
+  private final Map<Integer, Long> deadlineOf = new HashMap<>();
+  private final List<Timeout<Integer>> timeouts = new ArrayList<>();
+  // Next tick to be processed by the wheel
+  private long nextTick;
+  private long nowMillis = START_MILLIS;
+
+  private TimingWheelCheck(long tickMillis, long seed) {
+    this.tickMillis = tickMillis;
+    random = new Random(seed);
+    wheel = new TimingWheel<>(tickMillis, START_MILLIS);
+    nextTick = START_MILLIS / tickMillis;
+  }
+
+  public static void main(String[] args) {
+    int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+    for (long tickMillis : TICK_MILLIS) {
+      new TimingWheelCheck(tickMillis, seed).run(operations);
+    }
+  }
+
+  private void run(int operations) {
+    int expired = 0;
+    for (int i = 0; i < operations; i++) {
+      int choice = random.nextInt(10);
+      String operation;
+      if (choice < 5) {
+        operation = schedule();
+      } else if (choice < 7) {
+        operation = cancel();
+      } else {
+        int count = advance();
+        expired += count;
+        operation = "advance to " + nowMillis + " expiring " + count;
+      }
+      check(i, operation);
+    }
+    System.out.println("Tick of " + tickMillis + " ms: " + operations + " operations checked, "
+        + timeouts.size() + " timeouts scheduled, " + expired + " expired, " + wheel.size()
+        + " pending at the end");
+  }
+
+  /** Schedule a timeout with a random deadline, returning a description of it. */
+  private String schedule() {
+    long deadline;
+    switch (random.nextInt(5)) {
+      case 0:
+        // Already passed
+        deadline = nowMillis - random.nextInt(1000) * tickMillis;
+        break;
+      case 1:
+      case 2:
+        // Within the lowest level
+        deadline = nowMillis + random.nextInt(TimingWheel.SLOTS * (int) tickMillis);
+        break;
+      case 3:
+        // Anywhere within the range of the wheel
+        deadline = nowMillis + (long) (random.nextDouble() * RANGE_TICKS * tickMillis);
+        break;
+      default:
+        // Beyond the range of the wheel
+        deadline = nowMillis + (RANGE_TICKS + random.nextInt(1 << 20)) * tickMillis;
+    }
+    int id = timeouts.size();
+    timeouts.add(wheel.schedule(id, deadline));
+    long expiration = Math.max(ceilDiv(deadline, tickMillis), nextTick);
+    pendingByTick.computeIfAbsent(expiration, k -> new ArrayList<>())
+                 .add(id);
+    tickOf.put(id, expiration);
+    if (deadline >= nextTick * tickMillis)
+      deadlineOf.put(id, deadline);
+    return "schedule " + id + " at " + deadline;
+  }
+
+  /** Cancel a random timeout, which may have expired or been cancelled, returning a description. */
+  private String cancel() {
+    if (timeouts.isEmpty())
+      return "cancel nothing";
+    int id = random.nextInt(timeouts.size());
+    Long expiration = tickOf.remove(id);
+    deadlineOf.remove(id);
+    boolean expected = expiration != null;
+    if (expected)
+      pendingByTick.get(expiration)
+                   .remove((Integer) id);
+    if (expected && pendingByTick.get(expiration)
+                                 .isEmpty())
+      pendingByTick.remove(expiration);
+    if (timeouts.get(id)
+                .cancel() != expected)
+      fail("cancel " + id, "cancel() to return " + expected);
+    return "cancel " + id;
+  }
+
+  /** Advance the wheel by a random amount of time, returning the number of expired timeouts. */
+  private int advance() {
+    switch (random.nextInt(4)) {
+      case 0:
+        // Jump, possibly across several levels
+        nowMillis += (long) (random.nextDouble() * TimingWheel.SLOTS * TimingWheel.SLOTS
+            * TimingWheel.SLOTS * tickMillis);
+        break;
+      default:
+        nowMillis += random.nextInt(4 * (int) tickMillis);
+    }
+    long now = nowMillis / tickMillis;
+    List<Integer> expected = new ArrayList<>();
+    NavigableMap<Long, List<Integer>> due = pendingByTick.headMap(now, true);
+    due.values()
+       .forEach(expected::addAll);
+    due.clear();
+
+    List<Integer> actual = new ArrayList<>();
+    wheel.advance(nowMillis, actual::add);
+    if (actual.size() != expected.size() || !actual.containsAll(expected))
+      fail("advance to " + nowMillis, "expired " + sorted(expected) + " but got " + sorted(actual));
+    long previous = Long.MIN_VALUE;
+    for (int id : actual) {
+      long expiration = tickOf.remove(id);
+      if (expiration < previous)
+        fail("advance to " + nowMillis, "expiration in order, but " + id + " came late");
+      previous = expiration;
+      // Timeouts scheduled after their deadline had passed expire on the next tick instead
+      Long deadline = deadlineOf.remove(id);
+      if (deadline != null
+          && (nowMillis < deadline || expiration * tickMillis - deadline >= tickMillis))
+        fail("advance to " + nowMillis, id + " with deadline " + deadline + " to expire on time");
+    }
+    nextTick = Math.max(nextTick, now + 1);
+    return actual.size();
+  }
+
+  /** Compare the pending state of a few timeouts and the size of the wheel with the reference. */
+  private void check(int i, String operation) {
+    if (wheel.size() != tickOf.size())
+      fail(i + ": " + operation, "size " + tickOf.size() + " but got " + wheel.size());
+    for (int k = 0; k < 4 && !timeouts.isEmpty(); k++) {
+      int id = random.nextInt(timeouts.size());
+      if (timeouts.get(id)
+                  .isPending() != tickOf.containsKey(id))
+        fail(i + ": " + operation, id + " to be pending: " + tickOf.containsKey(id));
+    }
+  }
+
+  private static long ceilDiv(long x, long y) {
+    long quotient = Math.floorDiv(x, y);
+    return quotient * y < x ? quotient + 1 : quotient;
+  }
+
+  private static List<Integer> sorted(List<Integer> ids) {
+    List<Integer> sorted = new ArrayList<>(ids);
+    sorted.sort(null);
+    return sorted;
+  }
+
+  private void fail(String operation, String expected) {
+    System.out.println("Mismatch with a tick of " + tickMillis + " ms after " + operation
+        + "\n  expected " + expected);
+    System.exit(1);
+  }
+}
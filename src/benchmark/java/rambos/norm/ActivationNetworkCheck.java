@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.norm;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Atom;
+import jason.asSyntax.Literal;
+import rambos.common.Status;
+
+/**
+ * Equivalence check of {@link ActivationNetwork} against {@link CompiledNorm}, which evaluates the
+ * conditions of norms from scratch.
+ * 
+ * A seeded sequence of random operations adds and removes facts and norms. After each operation,
+ * the active instances of every norm in the network, as well as those reported to its listener,
+ * are compared with the instances found by evaluating the compiled norm against a snapshot of all
+ * the facts. The check stops at the first mismatch, printing the operation and both sets of
+ * instances. Run it with {@code ./gradlew activationNetworkCheck}, optionally passing the number
+ * of operations and the seed, e.g. {@code ./gradlew activationNetworkCheck
+ * -PcheckArgs="20000 42"}.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class ActivationNetworkCheck {
+  private static final String[] CONDITIONS = {
+      "p(X)",
+      "p(X) & q(X,Y)",
+      "p(X) & not r(X)",
+      "q(X,Y) & X \\== Y",
+      "p(X) | r(X)",
+      "q(X,Y) & not p(Y)",
+      "(p(X) | r(X)) & not q(X,X)"};
+  private static final String[] MAINTENANCE_CONDITIONS = {"true", "not r(X)", "X \\== a"};
+  private static final String[] CONSTANTS = {"a", "b", "c", "d"};
+  private static final int NORM_IDS = 6;
+
+  private final Random random;
+  private final Map<Atom, Set<Literal>> reported = new HashMap<>();
+  private final ActivationNetwork network = new ActivationNetwork(new ActivationNetwork.Listener() {
+    @Override
+    public void activated(Norm norm, Literal instance) {
+      if (!reported.computeIfAbsent(norm.getId(), id -> new HashSet<>())
+                   .add(instance))
+        throw new IllegalStateException("Instance activated twice: " + instance);
+    }
+
+    @Override
+    public void deactivated(Norm norm, Literal instance) {
+      Set<Literal> instances = reported.get(norm.getId());
+      if (instances == null || !instances.remove(instance))
+        throw new IllegalStateException("Inactive instance deactivated: " + instance);
+    }
+  });
+  private final Map<Atom, CompiledNorm> norms = new HashMap<>();
+  private final Set<Literal> facts = new HashSet<>();
+
+  private ActivationNetworkCheck(long seed) {
+    random = new Random(seed);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int operations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+    long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+    new ActivationNetworkCheck(seed).run(operations);
+  }
+
+  private void run(int operations) throws Exception {
+    for (int i = 0; i < operations; i++) {
+      String operation = random.nextInt(10) < 7 ? changeFact() : changeNorm();
+      for (CompiledNorm compiled : norms.values()) {
+        Atom id = compiled.getNorm()
+                          .getId();
+        Set<Literal> expected = compiled.getActiveInstances(FactSnapshot.of(facts));
+        Set<Literal> active = network.getActiveInstances(id);
+        Set<Literal> signalled = reported.getOrDefault(id, Collections.emptySet());
+        if (!expected.equals(active) || !expected.equals(signalled)) {
+          System.out.println("Mismatch after operation " + i + " (" + operation + ") for norm "
+              + compiled.getNorm() + "\n  expected:  " + expected + "\n  active:    " + active
+              + "\n  signalled: " + signalled);
+          System.exit(1);
+        }
+      }
+    }
+    System.out.println(operations + " operations checked, " + norms.size() + " norms and "
+        + facts.size() + " facts at the end");
+  }
+
+  /** Add or remove a random fact, returning a description of the change. */
+  private String changeFact() throws Exception {
+    Literal fact = ASSyntax.parseLiteral(randomFact());
+    if (facts.remove(fact)) {
+      if (!network.removeFact(fact))
+        throw new IllegalStateException("Fact not in the network: " + fact);
+      return "-" + fact;
+    }
+    facts.add(fact);
+    if (!network.addFact(fact))
+      throw new IllegalStateException("Fact already in the network: " + fact);
+    return "+" + fact;
+  }
+
+  /** Add, replace, or remove a random norm, returning a description of the change. */
+  private String changeNorm() {
+    Atom id = ASSyntax.createAtom("n" + random.nextInt(NORM_IDS));
+    if (norms.remove(id) != null) {
+      network.removeNorm(id);
+      if (random.nextBoolean())
+        return "-" + id;
+    }
+    Norm norm = Norms.of(id.getFunctor(), Status.ENABLED, randomOf(CONDITIONS), "issuer",
+        "obligation(bob," + randomOf(MAINTENANCE_CONDITIONS) + ",done(X),1000)",
+        Collections.emptyList());
+    network.addNorm(norm);
+    norms.put(id, CompiledNorm.of(norm));
+    return "+" + norm;
+  }
+
+  private String randomFact() {
+    switch (random.nextInt(3)) {
+      case 0:
+        return "p(" + randomOf(CONSTANTS) + ")";
+      case 1:
+        return "q(" + randomOf(CONSTANTS) + "," + randomOf(CONSTANTS) + ")";
+      default:
+        return "r(" + randomOf(CONSTANTS) + ")";
+    }
+  }
+
+  private String randomOf(String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+}
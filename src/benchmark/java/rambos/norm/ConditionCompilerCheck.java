@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.norm;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import jason.asSemantics.Agent;
+import jason.asSemantics.Unifier;
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import jason.asSyntax.LogicalFormula;
+
+/**
+ * Equivalence check of {@link ConditionCompiler} against Jason, which evaluates formulas through
+ * {@link LogicalFormula#logicalConsequence(Agent, Unifier)}.
+ * 
+ * Random formulas are built from literals, relational expressions, internal actions, negations,
+ * conjunctions and disjunctions over a few variables and constants. Each formula is compiled once
+ * and evaluated against a sequence of snapshots, each derived from the previous one by adding and
+ * removing a few random facts, so that incrementally updated snapshots are checked as well. For
+ * every snapshot, the bindings of the variables in the solutions of the compiled formula are
+ * compared with those found by Jason in an agent whose belief base holds the same facts. The check
+ * stops at the first mismatch, printing the formula, the facts, and both sets of solutions. Run it
+ * with {@code ./gradlew conditionCompilerCheck}, optionally passing the number of formulas and the
+ * seed, e.g. {@code ./gradlew conditionCompilerCheck -PcheckArgs="3000 42"}.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class ConditionCompilerCheck {
+  private static final String[] VARIABLES = {"X", "Y", "Z"};
+  private static final String[] CONSTANTS = {"a", "b", "c"};
+  private static final String[] RELATIONS = {"==", "\\==", "=", "<", ">", "<=", ">="};
+  private static final int MAX_DEPTH = 3;
+  private static final int SNAPSHOTS = 5;
+  private static final int CHANGES = 4;
+
+  private final Random random;
+
+  private ConditionCompilerCheck(long seed) {
+    random = new Random(seed);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int formulas = args.length > 0 ? Integer.parseInt(args[0]) : 3_000;
+    long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+    new ConditionCompilerCheck(seed).run(formulas);
+  }
+
+  private void run(int formulas) throws Exception {
+    // Bindings of every variable, which identify a solution regardless of how it was found
+    Literal bindings = ASSyntax.parseLiteral("bindings(" + String.join(",", VARIABLES) + ")");
+    int solutions = 0;
+    for (int i = 0; i < formulas; i++) {
+      LogicalFormula formula = ASSyntax.parseFormula(randomFormula(MAX_DEPTH));
+      CompiledCondition compiled = ConditionCompiler.compile(formula);
+      Set<Literal> facts = new HashSet<>();
+      FactSnapshot snapshot = FactSnapshot.EMPTY;
+      for (int s = 0; s < SNAPSHOTS; s++) {
+        snapshot = change(snapshot, facts);
+        Set<String> expected = new TreeSet<>();
+        Iterator<Unifier> it = formula.logicalConsequence(agentOf(facts), new Unifier());
+        while (it.hasNext()) {
+          expected.add(bindings.capply(it.next())
+                               .toString());
+        }
+        Set<String> actual = new TreeSet<>();
+        for (Unifier solution : compiled.solutions(snapshot, new Unifier())) {
+          actual.add(bindings.capply(solution)
+                             .toString());
+        }
+        if (!expected.equals(actual)) {
+          System.out.println("Mismatch for formula " + i + ": " + formula + "\n  facts:    "
+              + new TreeSet<>(snapshot.getFacts()) + "\n  expected: " + expected
+              + "\n  compiled: " + actual);
+          System.exit(1);
+        }
+        solutions += actual.size();
+      }
+    }
+    System.out.println(formulas + " formulas checked against " + SNAPSHOTS + " snapshots each, "
+        + solutions + " solutions in total");
+  }
+
+  /**
+   * Return a snapshot derived from {@code snapshot} by adding and removing a few random facts,
+   * applying the same changes to {@code facts}.
+   */
+  private FactSnapshot change(FactSnapshot snapshot, Set<Literal> facts) throws Exception {
+    List<Literal> added = new ArrayList<>();
+    List<Literal> removed = new ArrayList<>();
+    int changes = snapshot == FactSnapshot.EMPTY ? 4 * CHANGES : CHANGES;
+    for (int i = 0; i < changes; i++) {
+      Literal fact = ASSyntax.parseLiteral(randomFact());
+      if (facts.remove(fact))
+        removed.add(fact);
+      else if (facts.add(fact))
+        added.add(fact);
+    }
+    // Facts both added and removed are removed, as in the snapshot
+    added.removeIf(fact -> !facts.contains(fact));
+    return snapshot.with(added, removed);
+  }
+
+  /** Return a new agent whose belief base holds {@code facts}. */
+  private static Agent agentOf(Set<Literal> facts) {
+    Agent agent = new Agent();
+    agent.initAg();
+    for (Literal fact : facts) {
+      agent.getBB()
+           .add(fact.copy());
+    }
+    return agent;
+  }
+
+  private String randomFormula(int depth) {
+    int choice = random.nextInt(depth == 0 ? 4 : 8);
+    switch (choice) {
+      case 0:
+      case 1:
+        return randomLiteral();
+      case 2:
+        return randomTerm() + " " + randomOf(RELATIONS) + " " + randomTerm();
+      case 3:
+        return random.nextBoolean() ? ".member(" + randomTerm() + ",[a,b])"
+            : "s(" + randomTerm() + ",N) & N > " + random.nextInt(3);
+      case 4:
+        return "not (" + randomFormula(depth - 1) + ")";
+      case 5:
+        return "(" + randomFormula(depth - 1) + ") | (" + randomFormula(depth - 1) + ")";
+      default:
+        return "(" + randomFormula(depth - 1) + ") & (" + randomFormula(depth - 1) + ")";
+    }
+  }
+
+  private String randomLiteral() {
+    switch (random.nextInt(4)) {
+      case 0:
+        return "p(" + randomTerm() + ")";
+      case 1:
+        return "q(" + randomTerm() + "," + randomTerm() + ")";
+      case 2:
+        return "r(" + randomTerm() + ")";
+      default:
+        return "s(" + randomTerm() + "," + (random.nextBoolean() ? "_" : random.nextInt(3)) + ")";
+    }
+  }
+
+  private String randomFact() {
+    switch (random.nextInt(4)) {
+      case 0:
+        return "p(" + randomOf(CONSTANTS) + ")";
+      case 1:
+        return "q(" + randomOf(CONSTANTS) + "," + randomOf(CONSTANTS) + ")";
+      case 2:
+        return "r(" + randomOf(CONSTANTS) + ")";
+      default:
+        return "s(" + randomOf(CONSTANTS) + "," + random.nextInt(3) + ")";
+    }
+  }
+
+  private String randomTerm() {
+    return random.nextBoolean() ? randomOf(VARIABLES) : randomOf(CONSTANTS);
+  }
+
+  private String randomOf(String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+}
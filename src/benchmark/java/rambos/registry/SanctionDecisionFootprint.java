@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import rambos.common.id.Id;
+import rambos.common.id.IdStrategy;
+import rambos.common.id.TimeOrderedId;
+import rambos.common.id.Uuid;
+import rambos.registry.SanctionDecision.Cause;
+import rambos.registry.SanctionDecision.Efficacy;
+
+/**
+ * Measurement harness of the heap retained per sanction decision by the structures which hold
+ * decisions in {@code DeFacto}.
+ * 
+ * A fixed, seeded set of decisions is put in a {@link HashMap} of {@link BasicSanctionDecision}s,
+ * in a {@link ColumnarSanctionDecisionStore}, and in a {@link SanctionDecisionIndex}, once with
+ * {@link IdStrategy#UUID} ids and once with {@link IdStrategy#TIME_ORDERED} ids. Attributes are
+ * kept in primitive columns and strings are drawn from small pools, as agent and norm names repeat
+ * in practice, so the footprint of a structure is the difference of the used heap after garbage
+ * collection before and after filling it. Run it with {@code ./gradlew footprintBenchmark},
+ * optionally passing the number of decisions, e.g.
+ * {@code ./gradlew footprintBenchmark -PbenchmarkArgs="1000000"}.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class SanctionDecisionFootprint {
+  private static final long SEED = 42;
+  private static final String[] AGENTS = pool("agent", 1000);
+  private static final String[] NORMS = pool("n", 500);
+  private static final String[] SANCTIONS = pool("s", 50);
+
+  /** Attributes of the measured decisions, kept in primitive columns so that they cost no heap. */
+  private final long[] mostSigBits;
+  private final long[] leastSigBits;
+  private final int[] sanctioners;
+  private final int[] sanctionees;
+  private final int[] norms;
+  private final int[] sanctions;
+  private final boolean[] violations;
+  private final boolean[] applied;
+
+  private SanctionDecisionFootprint(int count) {
+    Random random = new Random(SEED);
+    mostSigBits = new long[count];
+    leastSigBits = new long[count];
+    sanctioners = new int[count];
+    sanctionees = new int[count];
+    norms = new int[count];
+    sanctions = new int[count];
+    violations = new boolean[count];
+    applied = new boolean[count];
+    for (int i = 0; i < count; i++) {
+      mostSigBits[i] = random.nextLong();
+      leastSigBits[i] = random.nextLong();
+      sanctioners[i] = random.nextInt(100);
+      sanctionees[i] = random.nextInt(AGENTS.length);
+      norms[i] = random.nextInt(NORMS.length);
+      sanctions[i] = random.nextInt(SANCTIONS.length);
+      violations[i] = random.nextBoolean();
+      applied[i] = random.nextBoolean();
+    }
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+    SanctionDecisionFootprint footprint = new SanctionDecisionFootprint(count);
+    for (IdStrategy ids : IdStrategy.values()) {
+      double objects = footprint.measure(ids, HashMap::new);
+      double columnar = footprint.measure(ids, ColumnarSanctionDecisionStore::new);
+      double index = footprint.measureIndex(ids);
+      System.out.printf(Locale.ROOT,
+          "%-12s objects %6.1f B/decision, columnar %6.1f B/decision (%.1fx smaller), "
+              + "index %6.1f B/decision%n",
+          ids.name()
+             .toLowerCase(Locale.ROOT),
+          objects, columnar, objects / columnar, index);
+    }
+  }
+
+  private static String[] pool(String prefix, int size) {
+    String[] pool = new String[size];
+    for (int i = 0; i < size; i++) {
+      pool[i] = prefix + i;
+    }
+    return pool;
+  }
+
+  /**
+   * Return a new instance of the {@code i}-th decision, with an id of the kind created by
+   * {@code ids}. Time-ordered ids take their time, sequence, and node bits from the seed, so that
+   * all of them are distinct.
+   */
+  private SanctionDecision decision(int i, IdStrategy ids) {
+    Id id = ids == IdStrategy.UUID ? Uuid.of(mostSigBits[i], leastSigBits[i])
+        : TimeOrderedId.of((1_000_000_000L + i) << 22 | (leastSigBits[i] & 0x3F_FFFFL));
+    return BasicSanctionDecision.builder()
+                                .id(id)
+                                .time(1_500_000_000_000L + i)
+                                .sanctioner(AGENTS[sanctioners[i]])
+                                .sanctionee(AGENTS[sanctionees[i]])
+                                .norm(NORMS[norms[i]])
+                                .sanction(SANCTIONS[sanctions[i]])
+                                .cause(violations[i] ? Cause.VIOLATION : Cause.COMPLIANCE)
+                                .efficacy(Efficacy.INDETERMINATE)
+                                .applied(applied[i])
+                                .build();
+  }
+
+  /**
+   * Return the bytes retained per decision by a map created by {@code factory} holding all
+   * decisions. Each decision is created just before it is put, so a map which keeps the given
+   * instances is charged for them, whereas one which copies their attributes is not.
+   */
+  private double measure(IdStrategy ids, Supplier<Map<Id, SanctionDecision>> factory) {
+    long before = usedHeap();
+    Map<Id, SanctionDecision> map = factory.get();
+    for (int i = 0; i < sanctioners.length; i++) {
+      SanctionDecision decision = decision(i, ids);
+      map.put(decision.getId(), decision);
+    }
+    long after = usedHeap();
+    if (map.size() != sanctioners.length)
+      throw new IllegalStateException("Lost decisions");
+    return (double) (after - before) / sanctioners.length;
+  }
+
+  /** Return the bytes retained per decision by a {@link SanctionDecisionIndex}. */
+  private double measureIndex(IdStrategy ids) {
+    long before = usedHeap();
+    SanctionDecisionIndex index = new SanctionDecisionIndex();
+    for (int i = 0; i < sanctioners.length; i++) {
+      index.add(decision(i, ids));
+    }
+    long after = usedHeap();
+    if (index.getOldest(sanctioners.length)
+             .size() != sanctioners.length)
+      throw new IllegalStateException("Lost decisions");
+    return (double) (after - before) / sanctioners.length;
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread()
+              .interrupt();
+      }
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import jason.asSyntax.ASSyntax;
+import rambos.common.id.IdStrategy;
+
+/**
+ * Measurement harness comparing {@link SanctionDecisionParser} with the general Jason parser on
+ * plain {@code sanction_decision/9} strings.
+ * 
+ * A fixed, seeded set of decision strings is parsed by both parsers for a number of warm-up rounds,
+ * whose results are discarded, and then for a number of measured rounds. The median time per
+ * decision of each parser and the resulting speed-up are printed, along with a checksum which
+ * keeps the parsed decisions alive and shows that both parsers read the same values. Run it with
+ * {@code ./gradlew parserBenchmark}, optionally passing the number of decisions, warm-up rounds
+ * and measured rounds, e.g. {@code ./gradlew parserBenchmark -PbenchmarkArgs="100000 10 20"}.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class SanctionDecisionParserBenchmark {
+  private static final long SEED = 42;
+
+  private SanctionDecisionParserBenchmark() {}
+
+  /** Parser whose throughput is measured. */
+  private interface Parser {
+    SanctionDecision parse(String decision) throws Exception;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int warmUpRounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    List<String> decisions = decisions(count);
+
+    Parser singlePass = decision -> SanctionDecisionParser.tryParse(decision, IdStrategy.UUID);
+    Parser jason =
+        decision -> SanctionDecisions.of(ASSyntax.parseLiteral(decision), IdStrategy.UUID);
+    double singlePassNanos = measure("single-pass", singlePass, decisions, warmUpRounds, rounds);
+    double jasonNanos = measure("jason", jason, decisions, warmUpRounds, rounds);
+    System.out.printf(Locale.ROOT, "speed-up: %.1fx%n", jasonNanos / singlePassNanos);
+  }
+
+  /** Return {@code count} plain decision strings generated from a fixed seed. */
+  private static List<String> decisions(int count) {
+    Random random = new Random(SEED);
+    List<String> decisions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      decisions.add(String.format(Locale.ROOT,
+          "sanction_decision(id%d,%d,agent%d,agent%d,n%d,s%d,%s,%s,%b)", i,
+          1_500_000_000_000L + random.nextInt(1_000_000), random.nextInt(100),
+          random.nextInt(100), random.nextInt(500), random.nextInt(50),
+          random.nextBoolean() ? "compliance" : "violation",
+          random.nextBoolean() ? "effective" : "indeterminate", random.nextBoolean()));
+    }
+    return decisions;
+  }
+
+  /**
+   * Parse all {@code decisions} with {@code parser} for the given rounds, print and return the
+   * median time (in nanoseconds) per decision of the measured rounds.
+   */
+  private static double measure(String name, Parser parser, List<String> decisions,
+      int warmUpRounds, int rounds) throws Exception {
+    long checksum = 0;
+    for (int i = 0; i < warmUpRounds; i++) {
+      checksum += parseAll(parser, decisions);
+    }
+    double[] nanosPerDecision = new double[rounds];
+    for (int i = 0; i < rounds; i++) {
+      long start = System.nanoTime();
+      checksum += parseAll(parser, decisions);
+      nanosPerDecision[i] = (double) (System.nanoTime() - start) / decisions.size();
+    }
+    Arrays.sort(nanosPerDecision);
+    double median = nanosPerDecision[rounds / 2];
+    System.out.printf(Locale.ROOT, "%-12s %8.1f ns/decision (checksum %d)%n", name, median,
+        checksum / (warmUpRounds + rounds));
+    return median;
+  }
+
+  /** Parse all {@code decisions}, returning a checksum of the parsed values. */
+  private static long parseAll(Parser parser, List<String> decisions) throws Exception {
+    long checksum = 0;
+    for (String decision : decisions) {
+      SanctionDecision parsed = parser.parse(decision);
+      checksum += parsed.getTime() + parsed.getNorm()
+                                           .hashCode()
+          + parsed.getCause()
+                  .ordinal()
+          + parsed.getEfficacy()
+                  .ordinal();
+    }
+    return checksum;
+  }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.common;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Atom;
+
+/**
+ * Canonical atoms of {@link LowercaseEnum} constants, which are created once per enum type and
+ * indexed by ordinal.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class EnumAtoms {
+  // enum type -> atoms of its constants indexed by ordinal
+  private static final ClassValue<Atom[]> ATOMS = new ClassValue<Atom[]>() {
+    @Override
+    protected Atom[] computeValue(Class<?> type) {
+      Object[] constants = type.getEnumConstants();
+      Atom[] atoms = new Atom[constants.length];
+      for (int i = 0; i < constants.length; i++) {
+        String name = ((Enum<?>) constants[i]).name();
+        atoms[i] = ASSyntax.createAtom(name.toLowerCase());
+      }
+      return atoms;
+    }
+  };
+
+  private EnumAtoms() {}
+
+  /** Return canonical atom of {@code constant}. */
+  static Atom of(LowercaseEnum constant) {
+    return ATOMS.get(constant.getDeclaringClass())[constant.ordinal()];
+  }
+}
@@ -35,6 +35,9 @@ public interface Literable {
   /**
    * Return a literal representation of the object.
    * 
+   * Implementations may cache the literal and return it to every caller, so it must not be
+   * modified. Callers which need to modify it should do so on a {@linkplain Literal#copy() copy}.
+   * 
    * @return a literal representation of the object
    */
   Literal toLiteral();
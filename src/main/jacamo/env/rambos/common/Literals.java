@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.common;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import jason.asSyntax.parser.ParseException;
+
+/**
+ * Static utility methods pertaining to {@link Literal}.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class Literals {
+  private Literals() {}
+
+  /**
+   * Return literal represented by {@code obj}, which may be either a literal or a string, as
+   * operations of artifacts receive either of them depending on how agents call them.
+   * 
+   * @param obj literal or string to be converted
+   * @return literal represented by {@code obj}
+   * @throws IllegalArgumentException if {@code obj} is neither a literal nor a string containing a
+   *         parsable literal
+   * @throws NullPointerException if {@code obj} is {@code null}
+   */
+  public static Literal literalFrom(Object obj) {
+    if (obj instanceof Literal)
+      return (Literal) obj;
+    try {
+      return ASSyntax.parseLiteral(obj.toString());
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("String does not contain a parsable literal: " + obj);
+    }
+  }
+}
@@ -20,6 +20,8 @@
  *******************************************************************************/
 package rambos.common;
 
+import jason.asSyntax.Atom;
+
 /**
  * Provide method which convert {@link Enum#name()} result to lowercase.
  *
@@ -32,12 +34,23 @@ public interface LowercaseEnum {
   /**
    * Return name in lowercase.
    * 
-   * It is equivalent to {@code Enum#name().toLowerCase()}
+   * It is equivalent to {@code Enum#name().toLowerCase()}, but the result is computed only once
+   * per constant.
    * 
    * @return
    */
   default String lowercase() {
-    return name().toLowerCase();
+    return toAtom().getFunctor();
+  }
+
+  /**
+   * Return the canonical atom whose functor is {@link #lowercase()}, which is created only once per
+   * constant and then shared. The atom must therefore not be modified.
+   * 
+   * @return atom representing the constant
+   */
+  default Atom toAtom() {
+    return EnumAtoms.of(this);
   }
 
   /**
@@ -46,4 +59,18 @@ public interface LowercaseEnum {
    * @return {@link Enum#name()}
    */
   String name();
+
+  /**
+   * Signature of {@link Enum#ordinal()}.
+   * 
+   * @return {@link Enum#ordinal()}
+   */
+  int ordinal();
+
+  /**
+   * Signature of {@link Enum#getDeclaringClass()}.
+   * 
+   * @return {@link Enum#getDeclaringClass()}
+   */
+  Class<?> getDeclaringClass();
 }
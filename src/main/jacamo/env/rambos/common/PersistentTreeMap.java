@@ -0,0 +1,521 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.common;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable sorted map which shares structure with the maps derived from it.
+ * 
+ * Entries are kept in an AVL tree whose nodes also record the size of their subtrees. Deriving a
+ * map through {@link #put(Object, Object)} or {@link #remove(Object)} copies only the path from the
+ * root to the changed entry, so it takes logarithmic time and space, whereas the rest of the tree
+ * is shared with the original map. Lookups by key and by position in ascending order of keys take
+ * logarithmic time as well.
+ * 
+ * Maps are safe to be shared between threads. Their views, i.e. {@link #asMap()},
+ * {@link #keySet()} and {@link #values()}, are unmodifiable and never change.
+ * 
+ * @param <K> type of the keys
+ * @param <V> type of the values, which cannot be {@code null}
+ * @author igorcadelima
+ *
+ */
+public final class PersistentTreeMap<K, V> {
+  private final Comparator<? super K> comparator;
+  private final Node<K, V> root;
+
+  private PersistentTreeMap(Comparator<? super K> comparator, Node<K, V> root) {
+    this.comparator = comparator;
+    this.root = root;
+  }
+
+  /**
+   * Return an empty map whose keys are sorted by {@code comparator}.
+   * 
+   * @param comparator comparator of the keys
+   * @return empty map
+   */
+  public static <K, V> PersistentTreeMap<K, V> empty(Comparator<? super K> comparator) {
+    return new PersistentTreeMap<>(Objects.requireNonNull(comparator), null);
+  }
+
+  /** Return number of entries in the map. */
+  public int size() {
+    return size(root);
+  }
+
+  /** Return whether the map has no entries. */
+  public boolean isEmpty() {
+    return root == null;
+  }
+
+  /**
+   * Return value mapped to {@code key}.
+   * 
+   * @param key key of the value
+   * @return value of the key, or {@code null} if there is none
+   */
+  public V get(K key) {
+    Node<K, V> node = root;
+    while (node != null) {
+      int c = comparator.compare(key, node.key);
+      if (c == 0)
+        return node.value;
+      node = c < 0 ? node.left : node.right;
+    }
+    return null;
+  }
+
+  /** Return whether the map has an entry for {@code key}. */
+  public boolean containsKey(K key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Return map with the entries of this one plus an entry mapping {@code key} to {@code value}.
+   * 
+   * @param key key of the entry
+   * @param value value of the entry
+   * @return derived map, or this map if {@code key} is already mapped to the same instance
+   * @throws NullPointerException if {@code value} is {@code null}
+   */
+  public PersistentTreeMap<K, V> put(K key, V value) {
+    Objects.requireNonNull(value);
+    Node<K, V> newRoot = put(root, key, value);
+    return newRoot == root ? this : new PersistentTreeMap<>(comparator, newRoot);
+  }
+
+  private Node<K, V> put(Node<K, V> node, K key, V value) {
+    if (node == null)
+      return new Node<>(key, value, null, null);
+    int c = comparator.compare(key, node.key);
+    if (c == 0)
+      return node.value == value ? node : new Node<>(node.key, value, node.left, node.right);
+    if (c < 0) {
+      Node<K, V> left = put(node.left, key, value);
+      return left == node.left ? node : balance(node, left, node.right);
+    }
+    Node<K, V> right = put(node.right, key, value);
+    return right == node.right ? node : balance(node, node.left, right);
+  }
+
+  /**
+   * Return map with the entries of this one except for the entry of {@code key}.
+   * 
+   * @param key key of the entry to be left out
+   * @return derived map, or this map if there is no entry for {@code key}
+   */
+  public PersistentTreeMap<K, V> remove(K key) {
+    Node<K, V> newRoot = remove(root, key);
+    return newRoot == root ? this : new PersistentTreeMap<>(comparator, newRoot);
+  }
+
+  private Node<K, V> remove(Node<K, V> node, K key) {
+    if (node == null)
+      return null;
+    int c = comparator.compare(key, node.key);
+    if (c < 0) {
+      Node<K, V> left = remove(node.left, key);
+      return left == node.left ? node : balance(node, left, node.right);
+    }
+    if (c > 0) {
+      Node<K, V> right = remove(node.right, key);
+      return right == node.right ? node : balance(node, node.left, right);
+    }
+    if (node.left == null)
+      return node.right;
+    if (node.right == null)
+      return node.left;
+    Node<K, V> successor = node.right;
+    while (successor.left != null)
+      successor = successor.left;
+    return balance(successor, node.left, removeFirst(node.right));
+  }
+
+  private static <K, V> Node<K, V> removeFirst(Node<K, V> node) {
+    if (node.left == null)
+      return node.right;
+    return balance(node, removeFirst(node.left), node.right);
+  }
+
+  /**
+   * Return entry at {@code index} in ascending order of keys.
+   * 
+   * @param index position of the entry
+   * @return entry at the given position
+   * @throws IndexOutOfBoundsException if {@code index} is out of range
+   */
+  public Map.Entry<K, V> entryAt(int index) {
+    if (index < 0 || index >= size())
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+    Node<K, V> node = root;
+    while (true) {
+      int leftSize = size(node.left);
+      if (index < leftSize) {
+        node = node.left;
+      } else if (index == leftSize) {
+        return node;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  /**
+   * Return iterator over the entries in ascending order of keys, starting at {@code index}.
+   * 
+   * @param index position of the first entry to be returned
+   * @return iterator over the entries from the given position on
+   */
+  public Iterator<Map.Entry<K, V>> iterator(int index) {
+    return new EntryIterator<>(root, index);
+  }
+
+  /** Return unmodifiable view of this map as a {@link Map}. */
+  public Map<K, V> asMap() {
+    return new MapView();
+  }
+
+  /** Return unmodifiable view of the keys of this map, in ascending order. */
+  public Set<K> keySet() {
+    return new KeySet();
+  }
+
+  /** Return unmodifiable view of the values of this map, in ascending order of keys. */
+  public List<V> values() {
+    return new Values();
+  }
+
+  /**
+   * Return a mutable map which starts with the entries of this one, so that a batch of changes can
+   * be made through the {@link Map} interface and then turned into a new persistent map.
+   */
+  public Editor<K, V> edit() {
+    return new Editor<>(this);
+  }
+
+  private static int size(Node<?, ?> node) {
+    return node == null ? 0 : node.size;
+  }
+
+  private static int height(Node<?, ?> node) {
+    return node == null ? 0 : node.height;
+  }
+
+  /** Return node with the entry of {@code node} and the given subtrees, rebalancing them. */
+  private static <K, V> Node<K, V> balance(Node<K, V> node, Node<K, V> left, Node<K, V> right) {
+    int leftHeight = height(left);
+    int rightHeight = height(right);
+    if (leftHeight > rightHeight + 1) {
+      if (height(left.left) >= height(left.right))
+        return new Node<>(left.key, left.value, left.left,
+            new Node<>(node.key, node.value, left.right, right));
+      Node<K, V> pivot = left.right;
+      return new Node<>(pivot.key, pivot.value,
+          new Node<>(left.key, left.value, left.left, pivot.left),
+          new Node<>(node.key, node.value, pivot.right, right));
+    }
+    if (rightHeight > leftHeight + 1) {
+      if (height(right.right) >= height(right.left))
+        return new Node<>(right.key, right.value,
+            new Node<>(node.key, node.value, left, right.left), right.right);
+      Node<K, V> pivot = right.left;
+      return new Node<>(pivot.key, pivot.value,
+          new Node<>(node.key, node.value, left, pivot.left),
+          new Node<>(right.key, right.value, pivot.right, right.right));
+    }
+    return new Node<>(node.key, node.value, left, right);
+  }
+
+  /** Immutable node of the tree, which is also an entry of the map. */
+  private static final class Node<K, V> implements Map.Entry<K, V> {
+    private final K key;
+    private final V value;
+    private final Node<K, V> left;
+    private final Node<K, V> right;
+    private final int height;
+    private final int size;
+
+    private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+      this.key = key;
+      this.value = value;
+      this.left = left;
+      this.right = right;
+      height = 1 + Math.max(height(left), height(right));
+      size = 1 + size(left) + size(right);
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public V setValue(V value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(key) ^ value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Map.Entry))
+        return false;
+      Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+      return Objects.equals(key, other.getKey()) && value.equals(other.getValue());
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + value;
+    }
+  }
+
+  /** In-order iterator, which keeps the path to the next entry in a stack. */
+  private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+    private final Deque<Node<K, V>> path = new ArrayDeque<>();
+
+    private EntryIterator(Node<K, V> root, int index) {
+      Node<K, V> node = root;
+      while (node != null) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+          path.push(node);
+          node = node.left;
+        } else if (index == leftSize) {
+          path.push(node);
+          break;
+        } else {
+          index -= leftSize + 1;
+          node = node.right;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !path.isEmpty();
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+      if (path.isEmpty())
+        throw new NoSuchElementException();
+      Node<K, V> next = path.pop();
+      for (Node<K, V> node = next.right; node != null; node = node.left) {
+        path.push(node);
+      }
+      return next;
+    }
+  }
+
+  /** Unmodifiable view of the map. */
+  private final class MapView extends AbstractMap<K, V> {
+    @Override
+    public int size() {
+      return PersistentTreeMap.this.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+      try {
+        return PersistentTreeMap.this.get((K) key);
+      } catch (ClassCastException e) {
+        return null;
+      }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+      return new AbstractSet<Map.Entry<K, V>>() {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+          return PersistentTreeMap.this.iterator(0);
+        }
+
+        @Override
+        public int size() {
+          return PersistentTreeMap.this.size();
+        }
+      };
+    }
+  }
+
+  /** Unmodifiable view of the keys of the map. */
+  private final class KeySet extends AbstractSet<K> {
+    @Override
+    public int size() {
+      return PersistentTreeMap.this.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object key) {
+      try {
+        return containsKey((K) key);
+      } catch (ClassCastException e) {
+        return false;
+      }
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+      Iterator<Map.Entry<K, V>> entries = PersistentTreeMap.this.iterator(0);
+      return new Iterator<K>() {
+        @Override
+        public boolean hasNext() {
+          return entries.hasNext();
+        }
+
+        @Override
+        public K next() {
+          return entries.next()
+                        .getKey();
+        }
+      };
+    }
+  }
+
+  /** Unmodifiable view of the values of the map, indexed by position. */
+  private final class Values extends AbstractList<V> {
+    @Override
+    public int size() {
+      return PersistentTreeMap.this.size();
+    }
+
+    @Override
+    public V get(int index) {
+      return entryAt(index).getValue();
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+      Iterator<Map.Entry<K, V>> entries = PersistentTreeMap.this.iterator(0);
+      return new Iterator<V>() {
+        @Override
+        public boolean hasNext() {
+          return entries.hasNext();
+        }
+
+        @Override
+        public V next() {
+          return entries.next()
+                        .getValue();
+        }
+      };
+    }
+  }
+
+  /**
+   * Mutable map backed by a persistent map, which is replaced by a derived one on every change.
+   * 
+   * <b>Note:</b> this class is not thread-safe.
+   * 
+   * @param <K> type of the keys
+   * @param <V> type of the values
+   */
+  public static final class Editor<K, V> extends AbstractMap<K, V> {
+    private PersistentTreeMap<K, V> map;
+
+    private Editor(PersistentTreeMap<K, V> map) {
+      this.map = map;
+    }
+
+    /**
+     * Return persistent map with the current entries, which is the map this editor started with if
+     * no entry has been changed.
+     */
+    public PersistentTreeMap<K, V> toPersistent() {
+      return map;
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    public V get(Object key) {
+      return map.asMap()
+                .get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+      V previous = map.get(key);
+      map = map.put(key, value);
+      return previous;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+      V previous = get(key);
+      if (previous != null)
+        map = map.remove((K) key);
+      return previous;
+    }
+
+    @Override
+    public void clear() {
+      map = empty(map.comparator);
+    }
+
+    /** Return unmodifiable view of the entries at the time of the call. */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+      return map.asMap()
+                .entrySet();
+    }
+  }
+}
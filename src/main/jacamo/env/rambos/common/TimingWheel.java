@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.common;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel, which keeps track of a large number of timeouts with constant-time
+ * scheduling and cancellation.
+ * 
+ * Time is divided into ticks of a fixed duration. The wheel is made of {@value #LEVELS} levels of
+ * {@value #SLOTS} slots each, where each slot of a level spans as many ticks as the whole level
+ * below it. A timeout is put in the slot of the lowest level which spans its deadline, and moved
+ * down to a lower level only when the wheel reaches the start of its slot. Thus timeouts are
+ * scheduled and cancelled by linking them into and unlinking them from a slot, and advancing the
+ * wheel touches only the timeouts which expire or move down. Timeouts farther away than the range
+ * of the wheel are kept in its top level until they get within range.
+ * 
+ * Timeouts expire on the first tick that starts at or after their deadline, so they never expire
+ * early, but may expire up to a tick late.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @param <T> type of the values of the timeouts
+ * @author igorcadelima
+ *
+ */
+public final class TimingWheel<T> {
+  private static final int BITS = 6;
+  /** Number of slots of each level. */
+  public static final int SLOTS = 1 << BITS;
+  /** Number of levels of the wheel. */
+  public static final int LEVELS = 5;
+  private static final int MASK = SLOTS - 1;
+  // Maximum number of ticks between the current tick and the slot of a timeout
+  private static final long MAX_TICKS = (1L << (BITS * LEVELS)) - 1;
+
+  private final long tickMillis;
+  // Heads of the circular lists of timeouts of each slot, indexed by level and slot
+  private final Timeout<T>[][] slots;
+  // Next tick to be processed
+  private long tick;
+  private int size;
+
+  /**
+   * Create an empty wheel.
+   * 
+   * @param tickMillis duration (in milliseconds) of each tick
+   * @param startMillis time (in milliseconds) from which the wheel starts
+   * @throws IllegalArgumentException if {@code tickMillis} is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public TimingWheel(long tickMillis, long startMillis) {
+    if (tickMillis <= 0)
+      throw new IllegalArgumentException("Tick duration should be positive: " + tickMillis);
+    this.tickMillis = tickMillis;
+    this.tick = startMillis / tickMillis;
+    slots = new Timeout[LEVELS][SLOTS];
+    for (Timeout<T>[] level : slots) {
+      for (int i = 0; i < SLOTS; i++) {
+        level[i] = new Timeout<>(null, null, 0);
+      }
+    }
+  }
+
+  /** Return duration (in milliseconds) of each tick. */
+  public long getTickMillis() {
+    return tickMillis;
+  }
+
+  /** Return number of pending timeouts. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Schedule a new timeout which expires with {@code value} at {@code deadlineMillis}.
+   * 
+   * A deadline which has already passed expires on the next tick.
+   * 
+   * @param value value of the timeout
+   * @param deadlineMillis time (in milliseconds) at which the timeout expires
+   * @return new timeout, which may be cancelled
+   */
+  public Timeout<T> schedule(T value, long deadlineMillis) {
+    // Round up, so that the timeout does not expire before its deadline
+    long expiration = deadlineMillis / tickMillis;
+    if (expiration * tickMillis < deadlineMillis)
+      expiration++;
+    Timeout<T> timeout = new Timeout<>(this, value, expiration);
+    add(timeout);
+    size++;
+    return timeout;
+  }
+
+  /**
+   * Advance the wheel up to {@code nowMillis}, passing the values of the expired timeouts to
+   * {@code action} in order of expiration.
+   * 
+   * {@code action} may schedule and cancel timeouts of this wheel.
+   * 
+   * @param nowMillis current time (in milliseconds)
+   * @param action action to be performed for the value of each expired timeout
+   */
+  public void advance(long nowMillis, Consumer<? super T> action) {
+    long now = nowMillis / tickMillis;
+    if (size == 0) {
+      // Nothing to move or expire, so skip the elapsed ticks altogether
+      if (tick <= now)
+        tick = now + 1;
+      return;
+    }
+    while (tick <= now) {
+      int index = (int) (tick & MASK);
+      // Move the timeouts of the next slot of each level down once the level below wraps around
+      for (int level = 1; level < LEVELS && index == 0; level++) {
+        index = (int) ((tick >> (BITS * level)) & MASK);
+        cascade(slots[level][index]);
+      }
+      Timeout<T> head = slots[0][(int) (tick & MASK)];
+      tick++;
+      while (head.next != head) {
+        Timeout<T> timeout = head.next;
+        timeout.unlink();
+        size--;
+        action.accept(timeout.value);
+      }
+    }
+  }
+
+  /** Put {@code timeout} in the slot which spans its expiration. */
+  private void add(Timeout<T> timeout) {
+    long expiration = timeout.expiration;
+    long ticks = expiration - tick;
+    Timeout<T> head;
+    if (ticks < 0) {
+      head = slots[0][(int) (tick & MASK)];
+    } else {
+      if (ticks > MAX_TICKS)
+        expiration = tick + MAX_TICKS;
+      int level = 0;
+      while (level < LEVELS - 1 && ticks >= 1L << (BITS * (level + 1))) {
+        level++;
+      }
+      head = slots[level][(int) ((expiration >> (BITS * level)) & MASK)];
+    }
+    timeout.linkBefore(head);
+  }
+
+  /** Move the timeouts of the slot with the given head to the lower levels. */
+  private void cascade(Timeout<T> head) {
+    Timeout<T> timeout = head.next;
+    // Detach all timeouts first, since they might otherwise be put back into the same slot
+    head.next = head.prev = head;
+    while (timeout != head) {
+      Timeout<T> next = timeout.next;
+      add(timeout);
+      timeout = next;
+    }
+  }
+
+  /**
+   * Timeout scheduled in a {@link TimingWheel}.
+   * 
+   * @param <T> type of the value of the timeout
+   */
+  public static final class Timeout<T> {
+    private final TimingWheel<T> wheel;
+    private final T value;
+    // Tick at which the timeout expires
+    private final long expiration;
+    private Timeout<T> prev = this;
+    private Timeout<T> next = this;
+
+    private Timeout(TimingWheel<T> wheel, T value, long expiration) {
+      this.wheel = wheel;
+      this.value = value;
+      this.expiration = expiration;
+    }
+
+    /** Return value of the timeout. */
+    public T getValue() {
+      return value;
+    }
+
+    /** Return whether the timeout has neither expired nor been cancelled. */
+    public boolean isPending() {
+      return next != this;
+    }
+
+    /**
+     * Cancel the timeout, so that it does not expire.
+     * 
+     * @return {@code true} if the timeout was pending
+     */
+    public boolean cancel() {
+      if (!isPending())
+        return false;
+      unlink();
+      wheel.size--;
+      return true;
+    }
+
+    private void linkBefore(Timeout<T> head) {
+      prev = head.prev;
+      next = head;
+      head.prev.next = this;
+      head.prev = this;
+    }
+
+    private void unlink() {
+      prev.next = next;
+      next.prev = prev;
+      prev = next = this;
+    }
+  }
+}
@@ -25,9 +25,19 @@ import rambos.common.Literable;
 /**
  * Generic interface for identifiers.
  * 
+ * Every identifier carries a node id in its lowest {@link #NODE_BITS} bits, which tells apart
+ * identifiers created by different nodes, e.g. by different shards of a partitioned registry.
+ * 
  * @author igorcadelima
  *
  */
 public interface Id extends Literable {
+  /** Number of bits of the node id. */
+  int NODE_BITS = 10;
+
+  /** Greatest node id. */
+  int MAX_NODE = (1 << NODE_BITS) - 1;
 
+  /** Return id of the node which created this identifier, between 0 and {@link #MAX_NODE}. */
+  int getNode();
 }
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.common.id;
+
+import rambos.common.LowercaseEnum;
+
+/**
+ * Strategies which may be used to generate identifiers.
+ * 
+ * @author igorcadelima
+ *
+ */
+public enum IdStrategy implements LowercaseEnum {
+  /** Random {@link Uuid}s. */
+  UUID {
+    @Override
+    public Id newId() {
+      return Uuid.newInstance();
+    }
+
+    @Override
+    public Id newId(int node) {
+      return Uuid.newInstance(node);
+    }
+
+    @Override
+    public Id parse(String name) {
+      return Uuid.parse(name);
+    }
+  },
+
+  /** Compact {@link TimeOrderedId}s. */
+  TIME_ORDERED {
+    @Override
+    public Id newId() {
+      return TimeOrderedId.newInstance();
+    }
+
+    @Override
+    public Id newId(int node) {
+      return TimeOrderedId.newInstance(node);
+    }
+
+    @Override
+    public Id parse(String name) {
+      return TimeOrderedId.parse(name);
+    }
+  };
+
+  /**
+   * Return a new identifier.
+   * 
+   * @return new identifier
+   */
+  public abstract Id newId();
+
+  /**
+   * Return a new identifier created by the given {@code node}.
+   * 
+   * @param node node id, between 0 and {@link Id#MAX_NODE}
+   * @return new identifier whose {@linkplain Id#getNode() node} is {@code node}
+   * @throws IllegalArgumentException if {@code node} is out of range
+   */
+  public abstract Id newId(int node);
+
+  /**
+   * Return the identifier represented by {@code name}.
+   * 
+   * @param name string to be parsed
+   * @return identifier represented by {@code name}
+   * @throws IllegalArgumentException if {@code name} is not a valid identifier for the strategy
+   */
+  public abstract Id parse(String name);
+
+  /**
+   * Return the identifier represented by {@code name}, regardless of the strategy used to create
+   * it.
+   * 
+   * @param name string to be parsed
+   * @return identifier represented by {@code name}
+   * @throws IllegalArgumentException if {@code name} is not a valid identifier for any strategy
+   */
+  public static Id parseAny(String name) {
+    for (IdStrategy strategy : values()) {
+      try {
+        return strategy.parse(name);
+      } catch (IllegalArgumentException e) {
+        // Try next strategy
+      }
+    }
+    throw new IllegalArgumentException(name + " is not a valid id");
+  }
+}
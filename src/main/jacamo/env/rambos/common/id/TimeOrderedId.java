@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.common.id;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+
+/**
+ * Represent a compact, time-ordered identifier.
+ * 
+ * Identifiers are 64-bit values made of a 42-bit timestamp (milliseconds since
+ * {@link #EPOCH}), a 12-bit sequence, and a 10-bit node id. Identifiers created by the same node
+ * are unique and strictly increasing: if more than 4096 identifiers are requested within the same
+ * millisecond, the sequence overflows into the timestamp, which then runs slightly ahead of the
+ * clock. Since generation only relies on a compare-and-set, it never blocks, unlike
+ * {@link Uuid#newInstance()}, which goes through {@link java.security.SecureRandom}.
+ * 
+ * The string representation of an identifier is its value as 16 hexadecimal digits, so that
+ * identifiers sort the same way as strings and as numbers.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class TimeOrderedId implements Id, Comparable<TimeOrderedId> {
+  /** Epoch of the timestamps (2017-01-01T00:00:00Z) in milliseconds. */
+  public static final long EPOCH = 1483228800000L;
+
+  static final int SEQUENCE_BITS = 12;
+  static final int TIME_SHIFT = NODE_BITS + SEQUENCE_BITS;
+  static final long SEQUENCE_INCREMENT = 1L << NODE_BITS;
+  private static final int HEX_LENGTH = 16;
+
+  private static final int DEFAULT_NODE = ThreadLocalRandom.current()
+                                                          .nextInt(MAX_NODE + 1);
+  // Shared generator of each node, so that identifiers of the same node are never duplicated
+  private static final AtomicReferenceArray<Generator> GENERATORS =
+      new AtomicReferenceArray<>(MAX_NODE + 1);
+
+  private final long value;
+
+  private TimeOrderedId(long value) {
+    this.value = value;
+  }
+
+  /**
+   * Generator of {@link TimeOrderedId}s for a given node.
+   * 
+   * Generators are thread-safe and lock-free.
+   */
+  public static final class Generator {
+    private final long node;
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * Constructs a generator for the given {@code node}.
+     * 
+     * @param node node id, between 0 and 1023
+     * @throws IllegalArgumentException if {@code node} is out of range
+     */
+    public Generator(int node) {
+      if (node < 0 || node > MAX_NODE) {
+        throw new IllegalArgumentException("Node should be between 0 and " + MAX_NODE);
+      }
+      this.node = node;
+      last.set(node);
+    }
+
+    /** Return a new identifier greater than any other returned by this generator. */
+    public TimeOrderedId next() {
+      long candidate = ((System.currentTimeMillis() - EPOCH) << TIME_SHIFT) | node;
+      long previous;
+      long next;
+      do {
+        previous = last.get();
+        next = Math.max(candidate, previous + SEQUENCE_INCREMENT);
+      } while (!last.compareAndSet(previous, next));
+      return new TimeOrderedId(next);
+    }
+  }
+
+  /** Return a new instance of {@code TimeOrderedId} using a generator with a random node id. */
+  public static TimeOrderedId newInstance() {
+    return newInstance(DEFAULT_NODE);
+  }
+
+  /**
+   * Return a new instance of {@code TimeOrderedId} created by the given {@code node}.
+   * 
+   * @param node node id, between 0 and 1023
+   * @return new identifier
+   * @throws IllegalArgumentException if {@code node} is out of range
+   */
+  public static TimeOrderedId newInstance(int node) {
+    if (node < 0 || node > MAX_NODE) {
+      throw new IllegalArgumentException("Node should be between 0 and " + MAX_NODE);
+    }
+    Generator generator = GENERATORS.get(node);
+    if (generator == null) {
+      GENERATORS.compareAndSet(node, null, new Generator(node));
+      generator = GENERATORS.get(node);
+    }
+    return generator.next();
+  }
+
+  /**
+   * Return the identifier represented by the given 16-digit hexadecimal {@code name}.
+   * 
+   * @param name string to be parsed
+   * @return identifier represented by {@code name}
+   * @throws IllegalArgumentException if {@code name} is not a valid identifier
+   */
+  public static TimeOrderedId parse(String name) {
+    if (name.length() != HEX_LENGTH) {
+      throw new IllegalArgumentException(name + " is not a valid time-ordered id");
+    }
+    return new TimeOrderedId(Long.parseUnsignedLong(name, 16));
+  }
+
+  /** Return the identifier with the given 64-bit {@code value}. */
+  public static TimeOrderedId of(long value) {
+    return new TimeOrderedId(value);
+  }
+
+  /** Return the 64-bit value of this identifier. */
+  public long longValue() {
+    return value;
+  }
+
+  /** Return time (in milliseconds since the Unix epoch) when this identifier was created. */
+  public long getTime() {
+    return (value >>> TIME_SHIFT) + EPOCH;
+  }
+
+  @Override
+  public int getNode() {
+    return (int) (value & MAX_NODE);
+  }
+
+  private String toHexString() {
+    String hex = Long.toHexString(value);
+    StringBuilder sb = new StringBuilder(HEX_LENGTH);
+    for (int i = hex.length(); i < HEX_LENGTH; i++) {
+      sb.append('0');
+    }
+    return sb.append(hex)
+             .toString();
+  }
+
+  public String toString() {
+    return new StringBuilder(20).append(getFunctor())
+                                .append('(')
+                                .append(toHexString())
+                                .append(')')
+                                .toString();
+  }
+
+  @Override
+  public String getFunctor() {
+    return "id";
+  }
+
+  @Override
+  public Literal toLiteral() {
+    Literal l = ASSyntax.createLiteral(getFunctor());
+    l.addTerm(ASSyntax.createAtom(toHexString()));
+    return l;
+  }
+
+  @Override
+  public int compareTo(TimeOrderedId other) {
+    return Long.compareUnsigned(value, other.value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(value);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    TimeOrderedId other = (TimeOrderedId) obj;
+    return value == other.value;
+  }
+}
@@ -43,10 +43,53 @@ public final class Uuid implements Id {
     return new Uuid(UUID.randomUUID());
   }
 
+  /**
+   * Return a new random instance of {@code Uuid} whose lowest {@link #NODE_BITS} bits are the
+   * given {@code node}.
+   * 
+   * @param node node id, between 0 and 1023
+   * @return new identifier
+   * @throws IllegalArgumentException if {@code node} is out of range
+   */
+  public static Uuid newInstance(int node) {
+    if (node < 0 || node > MAX_NODE) {
+      throw new IllegalArgumentException("Node should be between 0 and " + MAX_NODE);
+    }
+    UUID random = UUID.randomUUID();
+    return of(random.getMostSignificantBits(), random.getLeastSignificantBits() & ~MAX_NODE | node);
+  }
+
   public static Uuid parse(String name) {
     return new Uuid(UUID.fromString(name));
   }
 
+  /**
+   * Return a new instance of {@code Uuid} made of the given bits.
+   * 
+   * @param mostSigBits most significant bits of the identifier
+   * @param leastSigBits least significant bits of the identifier
+   * @see #getMostSignificantBits()
+   * @see #getLeastSignificantBits()
+   */
+  public static Uuid of(long mostSigBits, long leastSigBits) {
+    return new Uuid(new UUID(mostSigBits, leastSigBits));
+  }
+
+  /** Return the most significant 64 bits of this identifier. */
+  public long getMostSignificantBits() {
+    return id.getMostSignificantBits();
+  }
+
+  /** Return the least significant 64 bits of this identifier. */
+  public long getLeastSignificantBits() {
+    return id.getLeastSignificantBits();
+  }
+
+  @Override
+  public int getNode() {
+    return (int) (id.getLeastSignificantBits() & MAX_NODE);
+  }
+
   public String toString() {
     return new StringBuilder(40).append(getFunctor())
                                 .append('(')
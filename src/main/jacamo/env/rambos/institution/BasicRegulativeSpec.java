@@ -20,126 +20,331 @@
  *******************************************************************************/
 package rambos.institution;
 
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 import jason.asSyntax.Atom;
+import rambos.common.PersistentTreeMap;
+import rambos.common.Status;
 import rambos.norm.Norm;
-import rambos.norm.Norms;
+import rambos.norm.NormAttribute;
 import rambos.sanction.Sanction;
-import rambos.sanction.Sanctions;
 
+/**
+ * Copy-on-write implementation of {@link RegulativeSpec}.
+ * 
+ * The current state is kept in an immutable {@link Snapshot} held by a volatile field. Readers
+ * just dereference it, whereas writers, which are serialised among themselves, build a new
+ * snapshot sharing whatever did not change with the previous one and then publish it. Norms and
+ * sanctions are kept in {@link PersistentTreeMap}s, so a write copies only the path to each
+ * changed element, and its cost is logarithmic in the size of the specification rather than
+ * linear.
+ * 
+ * @author igorcadelima
+ *
+ */
 final class BasicRegulativeSpec implements RegulativeSpec {
-  // normId -> norm
-  private Map<Atom, Norm> norms = new ConcurrentHashMap<>();
-  // sanctionId -> sanction
-  private Map<Atom, Sanction> sanctions = new ConcurrentHashMap<>();
+  /** Order of norm and sanction ids. */
+  static final Comparator<Atom> ID_ORDER = Comparator.comparing(Atom::getFunctor);
+
+  private volatile Snapshot snapshot = new Snapshot(0, PersistentTreeMap.empty(ID_ORDER),
+      PersistentTreeMap.empty(ID_ORDER), new NormIndex());
+
+  /** Immutable state of the regulative specification. */
+  private static final class Snapshot implements RegulativeSpecSnapshot {
+    private final long version;
+    // normId -> norm
+    private final PersistentTreeMap<Atom, Norm> norms;
+    // sanctionId -> sanction
+    private final PersistentTreeMap<Atom, Sanction> sanctions;
+    private final Set<Norm> normSet;
+    private final Set<Sanction> sanctionSet;
+    // Never modified once the snapshot is created, only copied
+    private final NormIndex index;
+
+    private Snapshot(long version, PersistentTreeMap<Atom, Norm> norms,
+        PersistentTreeMap<Atom, Sanction> sanctions, NormIndex index) {
+      this.version = version;
+      this.norms = norms;
+      this.sanctions = sanctions;
+      normSet = new ValueSet<>(norms, Norm::getId);
+      sanctionSet = new ValueSet<>(sanctions, Sanction::getId);
+      this.index = index;
+    }
+
+    /** Return next version of this snapshot with the given {@code norms} and their index. */
+    private Snapshot withNorms(PersistentTreeMap<Atom, Norm> norms, NormIndex index) {
+      return new Snapshot(version + 1, norms, sanctions, index);
+    }
+
+    /** Return next version of this snapshot with the given {@code sanctions}. */
+    private Snapshot withSanctions(PersistentTreeMap<Atom, Sanction> sanctions) {
+      return new Snapshot(version + 1, norms, sanctions, index);
+    }
+
+    @Override
+    public long getVersion() {
+      return version;
+    }
+
+    @Override
+    public Norm getNorm(Atom id) {
+      return norms.get(id);
+    }
+
+    @Override
+    public Sanction getSanction(Atom id) {
+      return sanctions.get(id);
+    }
+
+    @Override
+    public Set<Norm> getNorms() {
+      return normSet;
+    }
+
+    @Override
+    public Set<Sanction> getSanctions() {
+      return sanctionSet;
+    }
+
+    @Override
+    public List<Norm> getNormList() {
+      return norms.values();
+    }
+
+    @Override
+    public List<Sanction> getSanctionList() {
+      return sanctions.values();
+    }
+
+    @Override
+    public Set<Norm> getNormsLinkedTo(Atom sanctionId) {
+      return normsOf(index.getNormsLinkedTo(sanctionId));
+    }
+
+    @Override
+    public Set<Norm> getNormsBy(NormAttribute attribute, String value) {
+      return normsOf(index.getNormsBy(attribute, value));
+    }
+
+    /** Return unmodifiable set of the norms with the given ids. */
+    private Set<Norm> normsOf(Set<Atom> normIds) {
+      if (normIds.isEmpty())
+        return Collections.emptySet();
+      Set<Norm> found = new HashSet<>(normIds.size() * 2);
+      for (Atom normId : normIds) {
+        found.add(norms.get(normId));
+      }
+      return Collections.unmodifiableSet(found);
+    }
+  }
+
+  /** Unmodifiable set view of the elements of a map from ids to elements. */
+  private static final class ValueSet<T> extends AbstractSet<T> {
+    private final PersistentTreeMap<Atom, T> elements;
+    private final Function<T, Atom> id;
+
+    private ValueSet(PersistentTreeMap<Atom, T> elements, Function<T, Atom> id) {
+      this.elements = elements;
+      this.id = id;
+    }
+
+    @Override
+    public int size() {
+      return elements.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+      try {
+        return o != null && o.equals(elements.get(id.apply((T) o)));
+      } catch (ClassCastException e) {
+        return false;
+      }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return elements.values()
+                     .iterator();
+    }
+  }
 
   @Override
   public Norm getNorm(Atom id) {
-    if (norms.containsKey(id)) {
-      return Norms.newInstance(norms.get(id));
-    }
-    return null;
+    return snapshot.getNorm(id);
   }
 
   @Override
   public Sanction getSanction(Atom id) {
-    if (sanctions.containsKey(id)) {
-      return Sanctions.newInstance(sanctions.get(id));
-    }
-    return null;
+    return snapshot.getSanction(id);
   }
 
   @Override
   public Set<Norm> getNorms() {
-    return new HashSet<>(norms.values());
+    return snapshot.getNorms();
   }
 
   @Override
   public Set<Sanction> getSanctions() {
-    return new HashSet<>(sanctions.values());
+    return snapshot.getSanctions();
   }
 
   @Override
-  public boolean addNorm(Norm norm) {
-    if (!norms.containsKey(norm.getId())) {
-      Atom normId = norm.getId();
-      norms.put(normId, Norms.newInstance(norm));
-      return true;
-    }
-    return false;
+  public Set<Norm> getNormsLinkedTo(Atom sanctionId) {
+    return snapshot.getNormsLinkedTo(sanctionId);
   }
 
   @Override
-  public boolean addSanction(Sanction sanction) {
-    if (!sanctions.containsKey(sanction.getId())) {
-      sanctions.put(sanction.getId(), Sanctions.newInstance(sanction));
-      return true;
-    }
-    return false;
+  public Set<Norm> getNormsBy(NormAttribute attribute, String value) {
+    return snapshot.getNormsBy(attribute, value);
   }
 
   @Override
-  public boolean addLink(Atom normId, Atom sanctionId) {
-    Sanction sanction = sanctions.get(sanctionId);
-    return norms.get(normId)
-                .link(sanction);
+  public RegulativeSpecSnapshot snapshot() {
+    return snapshot;
   }
 
   @Override
-  public boolean enableNorm(Atom normId) {
-    if (norms.containsKey(normId)) {
-      return norms.get(normId)
-                  .enable();
+  public synchronized RegulativeSpecSnapshot apply(Iterable<RegulativeSpecChange> changes) {
+    PersistentTreeMap.Editor<Atom, Norm> norms = snapshot.norms.edit();
+    PersistentTreeMap.Editor<Atom, Sanction> sanctions = snapshot.sanctions.edit();
+    NormIndex index = snapshot.index.copy();
+    for (RegulativeSpecChange change : changes) {
+      change.applyTo(norms, sanctions, index);
+    }
+
+    // Maps are only replaced if some element was, so the batch changes nothing if both are kept
+    PersistentTreeMap<Atom, Norm> newNorms = norms.toPersistent();
+    PersistentTreeMap<Atom, Sanction> newSanctions = sanctions.toPersistent();
+    if (newNorms != snapshot.norms || newSanctions != snapshot.sanctions) {
+      snapshot = new Snapshot(snapshot.version + 1, newNorms, newSanctions,
+          newNorms != snapshot.norms ? index : snapshot.index);
     }
-    return false;
+    return snapshot;
   }
 
   @Override
-  public boolean enableSanction(Atom sanctionId) {
-    if (sanctions.containsKey(sanctionId)) {
-      return sanctions.get(sanctionId)
-                      .enable();
-    }
-    return false;
+  public synchronized boolean addNorm(Norm norm) {
+    if (snapshot.norms.containsKey(norm.getId()))
+      return false;
+    NormIndex index = snapshot.index.copy();
+    index.reindex(null, norm);
+    snapshot = snapshot.withNorms(snapshot.norms.put(norm.getId(), norm), index);
+    return true;
   }
 
   @Override
-  public boolean disableNorm(Atom normId) {
-    if (norms.containsKey(normId)) {
-      return norms.get(normId)
-                  .disable();
-    }
-    return false;
+  public synchronized boolean addSanction(Sanction sanction) {
+    if (snapshot.sanctions.containsKey(sanction.getId()))
+      return false;
+    snapshot = snapshot.withSanctions(snapshot.sanctions.put(sanction.getId(), sanction));
+    return true;
+  }
+
+  /**
+   * Replace norm with the given {@code normId} by the result of {@code change}, if any.
+   * 
+   * @return {@code true} if the norm existed and {@code change} returned a different norm
+   */
+  private boolean replaceNorm(Atom normId, UnaryOperator<Norm> change) {
+    Norm norm = snapshot.norms.get(normId);
+    if (norm == null)
+      return false;
+    Norm newNorm = change.apply(norm);
+    if (newNorm == norm)
+      return false;
+    NormIndex index = snapshot.index.copy();
+    index.reindex(norm, newNorm);
+    snapshot = snapshot.withNorms(snapshot.norms.put(normId, newNorm), index);
+    return true;
+  }
+
+  /**
+   * Replace sanction with the given {@code sanctionId} by the result of {@code change}, if any.
+   * 
+   * @return {@code true} if the sanction existed and {@code change} returned a different sanction
+   */
+  private boolean replaceSanction(Atom sanctionId, UnaryOperator<Sanction> change) {
+    Sanction sanction = snapshot.sanctions.get(sanctionId);
+    if (sanction == null)
+      return false;
+    Sanction newSanction = change.apply(sanction);
+    if (newSanction == sanction)
+      return false;
+    snapshot = snapshot.withSanctions(snapshot.sanctions.put(sanctionId, newSanction));
+    return true;
   }
 
   @Override
-  public boolean disableSanction(Atom sanctionId) {
-    if (sanctions.containsKey(sanctionId)) {
-      return sanctions.get(sanctionId)
-                      .disable();
-    }
-    return false;
+  public synchronized boolean addLink(Atom normId, Atom sanctionId) {
+    if (!snapshot.sanctions.containsKey(sanctionId))
+      return false;
+    return replaceNorm(normId, norm -> norm.withLink(sanctionId));
+  }
+
+  @Override
+  public synchronized boolean enableNorm(Atom normId) {
+    return replaceNorm(normId, norm -> norm.withStatus(Status.ENABLED));
+  }
+
+  @Override
+  public synchronized boolean enableSanction(Atom sanctionId) {
+    return replaceSanction(sanctionId, sanction -> sanction.withStatus(Status.ENABLED));
   }
 
   @Override
-  public Norm removeNorm(Atom normId) {
-    return norms.remove(normId);
+  public synchronized boolean disableNorm(Atom normId) {
+    return replaceNorm(normId, norm -> norm.withStatus(Status.DISABLED));
   }
 
   @Override
-  public Sanction removeSanction(Atom sanctionId) {
-    norms.values()
-         .forEach(norm -> norm.unlink(sanctionId));
-    return sanctions.remove(sanctionId);
+  public synchronized boolean disableSanction(Atom sanctionId) {
+    return replaceSanction(sanctionId, sanction -> sanction.withStatus(Status.DISABLED));
+  }
+
+  @Override
+  public synchronized Norm removeNorm(Atom normId) {
+    Norm norm = snapshot.norms.get(normId);
+    if (norm != null) {
+      NormIndex index = snapshot.index.copy();
+      index.reindex(norm, null);
+      snapshot = snapshot.withNorms(snapshot.norms.remove(normId), index);
+    }
+    return norm;
+  }
+
+  @Override
+  public synchronized Sanction removeSanction(Atom sanctionId) {
+    Sanction sanction = snapshot.sanctions.get(sanctionId);
+    if (sanction != null) {
+      PersistentTreeMap<Atom, Sanction> sanctions = snapshot.sanctions.remove(sanctionId);
+      NormIndex index = snapshot.index.copy();
+      Set<Atom> linkedNormIds = index.removeSanction(sanctionId);
+      if (linkedNormIds.isEmpty()) {
+        snapshot = snapshot.withSanctions(sanctions);
+      } else {
+        PersistentTreeMap<Atom, Norm> norms = snapshot.norms;
+        for (Atom normId : linkedNormIds) {
+          norms = norms.put(normId, norms.get(normId)
+                                         .withoutLink(sanctionId));
+        }
+        snapshot = new Snapshot(snapshot.version + 1, norms, sanctions, index);
+      }
+    }
+    return sanction;
   }
 
   @Override
-  public boolean unlink(Atom normId, Atom sanctionId) {
-    return norms.get(normId)
-                .unlink(sanctionId);
+  public synchronized boolean unlink(Atom normId, Atom sanctionId) {
+    return replaceNorm(normId, norm -> norm.withoutLink(sanctionId));
   }
 }
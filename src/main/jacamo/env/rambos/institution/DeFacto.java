@@ -20,37 +20,308 @@
  *******************************************************************************/
 package rambos.institution;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import cartago.Artifact;
+import cartago.INTERNAL_OPERATION;
 import cartago.LINK;
 import cartago.OPERATION;
 import cartago.ObsProperty;
+import cartago.OpFeedbackParam;
 import jason.asSyntax.ASSyntax;
 import jason.asSyntax.Atom;
+import jason.asSyntax.ListTerm;
+import jason.asSyntax.Literal;
+import jason.asSyntax.Term;
 import rambos.common.Enums;
+import rambos.common.LowercaseEnum;
 import rambos.common.id.Id;
-import rambos.common.id.Uuid;
+import rambos.common.id.IdStrategy;
+import rambos.registry.ColumnarSanctionDecisionStore;
+import rambos.registry.SanctionDecisionHeavyHitters;
+import rambos.registry.SanctionDecisionHeavyHitters.Dimension;
+import rambos.registry.SanctionDecisionIndex;
+import rambos.registry.SanctionDecisionJournal;
+import rambos.registry.SanctionDecisionStatistics;
 import rambos.registry.SanctionDecisions;
 import rambos.registry.SanctionDecision;
+import rambos.registry.SanctionDecision.Cause;
 import rambos.registry.SanctionDecision.Efficacy;
+import rambos.registry.SpaceSaving.Counter;
 
 /**
+ * This artefact stores the sanction decisions made in the system.
+ * 
+ * By default, decisions are kept in memory only. If a journal directory is given upon
+ * initialisation, every change to the registry is also appended to a
+ * {@link SanctionDecisionJournal}, which is replayed on startup so that no decision is lost across
+ * restarts. Decisions may also be kept in a columnar store rather than as individual objects (see
+ * {@link #init(String, String)}).
+ * 
+ * Decisions are also indexed by sanctioner, sanctionee, norm, sanction, cause, and time, so that
+ * query operations take time proportional to the size of their results rather than to the size of
+ * the registry.
+ * 
+ * A retention policy may be set through {@link #setRetention(long, int)}, in which case a
+ * background compactor periodically evicts old decisions and folds them into aggregate
+ * {@linkplain SanctionDecisionStatistics statistics}. Evictions which cannot be journalled are
+ * signalled as {@code compaction_failed(Reason)} and retried on the next run.
+ * 
+ * The most sanctioned agents and most frequent norms and sanctions are tracked in bounded memory as
+ * decisions arrive (see {@link #getHeavyHitters(Object, boolean, int, OpFeedbackParam)}).
+ * 
  * @author igorcadelima
  *
  */
 public final class DeFacto extends Artifact {
-  private Map<Id, SanctionDecision> sanctionDecisions = new HashMap<>();
+  /** Time (in milliseconds) between two runs of the compactor. */
+  static final long COMPACTION_PERIOD = 1000;
+  /** Maximum number of values monitored per heavy-hitter sketch. */
+  static final int HEAVY_HITTERS_CAPACITY = 100;
+  /** Time (in milliseconds) between two refreshes of the heavy-hitter observable properties. */
+  static final long HEAVY_HITTERS_PERIOD = 5000;
 
-  private Uuid decisionIdFrom(Object obj) {
-    if (obj instanceof Uuid)
-      return (Uuid) obj;
+  // Positions of mutable terms in the observable property of a decision
+  private static final int EFFICACY_TERM = 7;
+  private static final int APPLIED_TERM = 8;
+  // Position of the list of values in the observable properties of heavy hitters
+  private static final int HITTERS_TERM = 2;
+
+  private Map<Id, SanctionDecision> sanctionDecisions;
+  // decisionId -> observable property of the decision
+  private Map<Id, ObsProperty> obsProperties = new HashMap<>();
+  private SanctionDecisionIndex index = new SanctionDecisionIndex();
+  private SanctionDecisionStatistics statistics = new SanctionDecisionStatistics();
+  private SanctionDecisionJournal journal;
+  private IdStrategy idStrategy = IdStrategy.UUID;
+  // Partition of the decisions owned by the registry, when it is a shard of a DeFactoRouter
+  private int shard;
+  private int shards = 1;
+  private long maxAge;
+  private int maxCount;
+  private boolean compacting;
+  private SanctionDecisionHeavyHitters heavyHitters =
+      new SanctionDecisionHeavyHitters(HEAVY_HITTERS_CAPACITY);
+  // Observable properties of heavy hitters over all decisions and over violations only
+  private Map<Dimension, ObsProperty> allHittersProperties = new EnumMap<>(Dimension.class);
+  private Map<Dimension, ObsProperty> violationHittersProperties = new EnumMap<>(Dimension.class);
+  private int publishedHitters;
+  private boolean publishingHitters;
+
+  /** Implementations of the map where sanction decisions are kept. */
+  private enum Store implements LowercaseEnum {
+    HASH {
+      @Override
+      Map<Id, SanctionDecision> newStore() {
+        return new HashMap<>();
+      }
+    },
+
+    COLUMNAR {
+      @Override
+      Map<Id, SanctionDecision> newStore() {
+        return new ColumnarSanctionDecisionStore();
+      }
+    };
+
+    /**
+     * Factory method that returns a new empty map to keep sanction decisions.
+     * 
+     * @return new store
+     */
+    abstract Map<Id, SanctionDecision> newStore();
+  }
+
+  /** Initialise an in-memory {@link DeFacto} registry. */
+  public void init() {
+    init("");
+  }
+
+  /**
+   * Initialise {@link DeFacto} registry backed by the journal stored in {@code journalDir}.
+   * 
+   * @param journalDir path to the directory where the journal is stored
+   * @see #init(String, String)
+   */
+  public void init(String journalDir) {
+    init(journalDir, Store.HASH.lowercase());
+  }
+
+  /**
+   * Initialise {@link DeFacto} registry backed by the journal stored in {@code journalDir} and
+   * keeping decisions in the given {@code store}.
+   * 
+   * @param journalDir path to the directory where the journal is stored, or empty string
+   * @param store name of the store
+   * @see #init(String, String, String)
+   */
+  public void init(String journalDir, String store) {
+    init(journalDir, store, IdStrategy.UUID.lowercase());
+  }
+
+  /**
+   * Initialise {@link DeFacto} registry backed by the journal stored in {@code journalDir},
+   * keeping decisions in the given {@code store}, and creating ids of parsed decisions according
+   * to the given {@link IdStrategy}.
+   * 
+   * Decisions recorded in the journal by previous executions are recovered and have their
+   * observable properties defined. If {@code journalDir} is empty, decisions are kept in memory
+   * only.
+   * 
+   * The store can be either {@code hash}, which keeps one object per decision, or
+   * {@code columnar}, which keeps decisions in a {@link ColumnarSanctionDecisionStore} for a much
+   * smaller memory footprint at the cost of a slightly slower access to attributes.
+   * 
+   * Ids can be either {@code uuid}, for random {@link rambos.common.id.Uuid}s, or
+   * {@code time_ordered}, for compact {@link rambos.common.id.TimeOrderedId}s which are cheaper to
+   * generate under contention.
+   * 
+   * @param journalDir path to the directory where the journal is stored, or empty string
+   * @param store name of the store
+   * @param ids name of the id strategy
+   */
+  public void init(String journalDir, String store, String ids) {
+    init(journalDir, store, ids, 0, 1);
+  }
+
+  /**
+   * Initialise {@link DeFacto} registry as shard {@code shard} out of {@code shards} of a
+   * {@link DeFactoRouter}, as in {@link #init(String, String, String)}.
+   * 
+   * The shard only accepts decisions whose sanctionee belongs to it according to
+   * {@link DeFactoRouter#shardOf(String, int)}, and only creates and accepts ids which belong to it
+   * according to {@link DeFactoRouter#shardOf(Id, int)}, so that the shard of a decision can be
+   * found from either its sanctionee or its id alone.
+   * 
+   * @param journalDir path to the directory where the journal is stored, or empty string
+   * @param store name of the store
+   * @param ids name of the id strategy
+   * @param shard index of the shard
+   * @param shards number of shards
+   */
+  public void init(String journalDir, String store, String ids, int shard, int shards) {
+    if (shard < 0 || shard >= shards) {
+      failed("Invalid shard " + shard + " out of " + shards);
+    }
+    this.shard = shard;
+    this.shards = shards;
+    Store storeObj = Enums.lookup(Store.class, store);
+    if (storeObj == null) {
+      failed(store + " is not a valid store");
+    }
+    idStrategy = Enums.lookup(IdStrategy.class, ids);
+    if (idStrategy == null) {
+      failed(ids + " is not a valid id strategy");
+    }
+    sanctionDecisions = storeObj.newStore();
+
+    if (!journalDir.isEmpty()) {
+      try {
+        journal = SanctionDecisionJournal.open(Paths.get(journalDir), new JournalReplayer());
+      } catch (IOException e) {
+        failed("Could not open journal at " + journalDir + ": " + e.getMessage());
+      }
+    }
+    sanctionDecisions.values()
+                     .forEach(decision -> {
+                       index.add(decision);
+                       defineObsProperty(decision);
+                     });
+  }
+
+  @Override
+  protected void dispose() {
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /** Rebuilds the sanction decisions set from the events read from the journal. */
+  private final class JournalReplayer implements SanctionDecisionJournal.Listener {
+    @Override
+    public void decisionAdded(SanctionDecision decision) {
+      sanctionDecisions.put(decision.getId(), decision);
+      heavyHitters.add(decision);
+    }
+
+    @Override
+    public void efficacyUpdated(Id id, Efficacy efficacy) {
+      SanctionDecision decision = sanctionDecisions.get(id);
+      if (decision != null)
+        decision.setEfficacy(efficacy);
+    }
+
+    @Override
+    public void appliedUpdated(Id id, boolean applied) {
+      SanctionDecision decision = sanctionDecisions.get(id);
+      if (decision != null)
+        decision.setApplied(applied);
+    }
+
+    @Override
+    public void decisionRemoved(Id id) {
+      sanctionDecisions.remove(id);
+    }
+
+    @Override
+    public void decisionEvicted(Id id) {
+      SanctionDecision decision = sanctionDecisions.remove(id);
+      if (decision != null)
+        statistics.add(decision);
+    }
+  }
+
+  /** Handy method to define the observable property of a {@code decision}. */
+  private void defineObsProperty(SanctionDecision decision) {
+    Object[] terms = decision.toLiteral()
+                             .getTermsArray();
+    obsProperties.put(decision.getId(), defineObsProperty(decision.getFunctor(), terms));
+  }
+
+  /** Handy method to remove the observable property of the decision with the given {@code id}. */
+  private void removeObsProperty(Id id) {
+    ObsProperty prop = obsProperties.remove(id);
+    removeObsPropertyByTemplate(prop.getName(), prop.getValues());
+  }
+
+  /** Look up decision with the given {@code id}, failing if there is no such decision. */
+  private SanctionDecision getDecision(Id id) {
+    SanctionDecision decision = sanctionDecisions.get(id);
+    if (decision == null)
+      failed("There is no sanction decision with id " + id);
+    return decision;
+  }
+
+  /**
+   * Handy method to fail the current operation due to a journal error. The registry is left
+   * untouched, since events are appended to the journal before being applied.
+   */
+  private void journalFailed(IOException e) {
+    failed("Could not write to the journal: " + e.getMessage());
+  }
+
+  private Id decisionIdFrom(Object obj) {
+    if (obj instanceof Id)
+      return (Id) obj;
     else if (obj instanceof String)
-      return Uuid.parse((String) obj);
+      return IdStrategy.parseAny((String) obj);
     else
       failed("Expected " + String.class.getCanonicalName() + " or "
-          + SanctionDecision.class.getCanonicalName() + " but got " + obj.getClass()
+          + Id.class.getCanonicalName() + " but got " + obj.getClass()
                                                                          .getCanonicalName());
     assert false; // Execution should never reach this point!
     return null;
@@ -59,37 +330,163 @@ public final class DeFacto extends Artifact {
   /**
    * Add new decision into the sanction decisions set.
    * 
-   * Only instances of {@link SanctionDecision} or {@link String} should be passed as argument. For
-   * both cases, the registry will be added using {@link #addDecision(SanctionDecision)}. If
-   * {@code decision} is an instance of {@link String}, then it will be parsed using
-   * {@link SanctionDecisions#parse(String)} before being added to the sanction decisions set.
+   * Only instances of {@link SanctionDecision}, {@link String}, or {@link Literal} should be passed
+   * as argument. For all cases, the registry will be added using
+   * {@link #addDecision(SanctionDecision)}. If {@code decision} is an instance of {@link String},
+   * then it will be parsed using {@link SanctionDecisions#parse(String, IdStrategy)} before being
+   * added to the sanction decisions set, getting an id created according to the strategy chosen
+   * upon initialisation. Literals are handled likewise using
+   * {@link SanctionDecisions#of(Literal, IdStrategy)}.
    * 
    * @param decision sanction decision to be added
    */
   @LINK
   @OPERATION
   public void addDecision(Object decision) {
-    if (decision instanceof SanctionDecision)
-      addDecision((SanctionDecision) decision);
-    else if (decision instanceof String)
-      addDecision(SanctionDecisions.parse((String) decision));
-    else
-      failed("Expected " + String.class.getCanonicalName() + " or "
-          + SanctionDecision.class.getCanonicalName() + " but got " + decision.getClass()
-                                                                              .getCanonicalName());
+    SanctionDecision decisionObj = null;
+    try {
+      decisionObj = decisionFrom(decision);
+    } catch (IllegalArgumentException e) {
+      failed("Invalid sanction decision: " + decision + " (" + e.getMessage() + ")");
+    }
+    addDecision(decisionObj);
   }
 
   /** Add new {@code decision} into the sanction decisions set. */
   private void addDecision(SanctionDecision decision) {
+    if (journal != null) {
+      try {
+        journal.appendAddition(decision);
+      } catch (IOException e) {
+        journalFailed(e);
+      } catch (IllegalArgumentException e) {
+        failed("Could not write to the journal: " + e.getMessage());
+      }
+    }
     sanctionDecisions.put(decision.getId(), decision);
-    defineObsProperty(decision.getFunctor(), (Object[]) decision.toLiteral()
-                                                                .getTermsArray());
+    index.add(decision);
+    heavyHitters.add(decision);
+    defineObsProperty(decision);
+  }
+
+  /**
+   * Return sanction decision represented by {@code obj}, parsing it if needed.
+   * 
+   * @param obj instance of {@link SanctionDecision}, {@link String}, or {@link Literal}
+   * @return sanction decision represented by {@code obj}
+   * @throws IllegalArgumentException if {@code obj} does not represent a complete decision, or if
+   *         the decision belongs to another shard
+   */
+  private SanctionDecision decisionFrom(Object obj) {
+    if (obj instanceof SanctionDecision) {
+      SanctionDecision decision = (SanctionDecision) obj;
+      if (decision.getCause() == null || decision.getEfficacy() == null)
+        throw new IllegalArgumentException("Sanction decision without cause or efficacy");
+      if (DeFactoRouter.shardOf(decision.getId(), shards) != shard)
+        throw new IllegalArgumentException("Id " + decision.getId() + " belongs to another shard");
+      return ownedDecision(decision);
+    } else if (obj instanceof String)
+      return ownedDecision(withOwnedId(SanctionDecisions.parse((String) obj, idStrategy)));
+    else if (obj instanceof Literal)
+      return ownedDecision(withOwnedId(SanctionDecisions.of((Literal) obj, idStrategy)));
+    else
+      failed("Expected " + String.class.getCanonicalName() + " or "
+          + SanctionDecision.class.getCanonicalName() + " but got " + obj.getClass()
+                                                                         .getCanonicalName());
+    assert false; // Execution should never reach this point!
+    return null;
+  }
+
+  /** Return {@code decision}, or a copy of it with a new id if its id belongs to another shard. */
+  private SanctionDecision withOwnedId(SanctionDecision decision) {
+    if (DeFactoRouter.shardOf(decision.getId(), shards) == shard)
+      return decision;
+    return SanctionDecisions.withId(decision, DeFactoRouter.newId(idStrategy, shard, shards));
+  }
+
+  /**
+   * Return {@code decision} if its sanctionee belongs to this shard.
+   * 
+   * @throws IllegalArgumentException if the sanctionee of {@code decision} belongs to another shard
+   */
+  private SanctionDecision ownedDecision(SanctionDecision decision) {
+    if (DeFactoRouter.shardOf(decision.getSanctionee(), shards) != shard)
+      throw new IllegalArgumentException(
+          "Sanctionee " + decision.getSanctionee() + " belongs to another shard");
+    return decision;
+  }
+
+  /**
+   * Add a batch of new decisions into the sanction decisions set.
+   * 
+   * {@code decisions} should be an array, a {@link Collection}, or a {@link ListTerm} whose
+   * elements are instances of {@link SanctionDecision}, {@link String}, or {@link Literal}, which
+   * are handled as in {@link #addDecision(Object)}. All decisions are parsed and validated before
+   * any of them is added, so either the whole batch is added or the operation fails leaving the
+   * registry untouched. Since everything happens within a single operation, the new observable
+   * properties are committed to focusing agents at once.
+   * 
+   * @param decisions sanction decisions to be added
+   */
+  @LINK
+  @OPERATION
+  public void addDecisions(Object decisions) {
+    Iterable<?> elements = null;
+    if (decisions instanceof Object[])
+      elements = Arrays.asList((Object[]) decisions);
+    else if (decisions instanceof Iterable)
+      elements = (Iterable<?>) decisions;
+    else
+      failed("Expected array, " + Collection.class.getCanonicalName() + " or "
+          + ListTerm.class.getCanonicalName() + " but got " + decisions.getClass()
+                                                                      .getCanonicalName());
+
+    List<SanctionDecision> batch = new ArrayList<>();
+    Set<Id> batchIds = new HashSet<>();
+    for (Object element : elements) {
+      SanctionDecision decision = null;
+      try {
+        decision = decisionFrom(element);
+      } catch (IllegalArgumentException e) {
+        failed("Invalid sanction decision at position " + batch.size() + ": " + element + " ("
+            + e.getMessage() + ")");
+      }
+      Id id = decision.getId();
+      if (sanctionDecisions.containsKey(id) || !batchIds.add(id)) {
+        failed("Sanction decision with id " + id + " already exists");
+      }
+      batch.add(decision);
+    }
+
+    if (journal != null) {
+      journalAdditions(batch);
+    }
+    for (SanctionDecision decision : batch) {
+      sanctionDecisions.put(decision.getId(), decision);
+      index.add(decision);
+      heavyHitters.add(decision);
+      defineObsProperty(decision);
+    }
+  }
+
+  /**
+   * Append the addition of every decision in {@code batch} to the journal, which records either
+   * the whole batch or none of it.
+   */
+  private void journalAdditions(List<SanctionDecision> batch) {
+    try {
+      journal.appendAdditions(batch);
+    } catch (IOException e) {
+      journalFailed(e);
+    } catch (IllegalArgumentException e) {
+      failed("Could not write to the journal: " + e.getMessage());
+    }
   }
 
   /**
    * Update the efficacy value of an existing sanction decision.
    * 
-   * Note that {@code decisionId} should be an instance of {@link Uuid} or {@link String} and
+   * Note that {@code decisionId} should be an instance of {@link Id} or {@link String} and
    * {@code efficacy} should be an instance of {@link Efficacy} or {@link String}.
    * 
    * @param decisionId id of the sanction decision to be updated
@@ -98,23 +495,29 @@ public final class DeFacto extends Artifact {
   @LINK
   @OPERATION
   public void updateEfficacy(Object decisionId, Object efficacy) {
-    Efficacy efficacyObj = Enums.lookup(Efficacy.class, efficacy.toString());
+    Efficacy efficacyObj = efficacy instanceof Efficacy ? (Efficacy) efficacy
+        : Enums.lookup(Efficacy.class, efficacy.toString());
     if (efficacyObj == null) {
       failed(efficacy + " is not a valid efficacy value");
     }
 
-    SanctionDecision decision = sanctionDecisions.get(decisionIdFrom(decisionId));
-    ObsProperty prop =
-        getObsPropertyByTemplate(decision.getFunctor(), (Object[]) decision.toLiteral()
-                                                                           .getTermsArray());
+    SanctionDecision decision = getDecision(decisionIdFrom(decisionId));
+    if (journal != null) {
+      try {
+        journal.appendEfficacyUpdate(decision.getId(), efficacyObj);
+      } catch (IOException e) {
+        journalFailed(e);
+      }
+    }
     decision.setEfficacy(efficacyObj);
-    prop.updateValue(7, ASSyntax.createAtom(efficacy.toString()));
+    obsProperties.get(decision.getId())
+                 .updateValue(EFFICACY_TERM, efficacyObj.toAtom());
   }
 
   /**
    * Set whether a sanction decision has been applied or not.
    * 
-   * Note that {@code decisionId} should be an instance of {@link Uuid} or {@link String}.
+   * Note that {@code decisionId} should be an instance of {@link Id} or {@link String}.
    * 
    * @param decisionId id of the sanction decision to be updated
    * @param applied {@code true} if applied, else {@code false}
@@ -122,20 +525,25 @@ public final class DeFacto extends Artifact {
   @LINK
   @OPERATION
   public void setApplied(Object decisionId, boolean applied) {
-    SanctionDecision decision = sanctionDecisions.get(decisionIdFrom(decisionId));
-    ObsProperty prop =
-        getObsPropertyByTemplate(decision.getFunctor(), (Object[]) decision.toLiteral()
-                                                                           .getTermsArray());
+    SanctionDecision decision = getDecision(decisionIdFrom(decisionId));
+    if (journal != null) {
+      try {
+        journal.appendAppliedUpdate(decision.getId(), applied);
+      } catch (IOException e) {
+        journalFailed(e);
+      }
+    }
     decision.setApplied(applied);
-    prop.updateValue(8, applied ? Atom.LTrue : Atom.LFalse);
+    obsProperties.get(decision.getId())
+                 .updateValue(APPLIED_TERM, applied ? Atom.LTrue : Atom.LFalse);
   }
 
   /**
    * Remove sanction decision with the given {@code id}.
    * 
-   * Only instances of {@link Uuid} or {@link String} should be passed as argument. If
+   * Only instances of {@link Id} or {@link String} should be passed as argument. If
    * {@code decisionId} is an instance of {@link String}, then it will be parsed using
-   * {@link Uuid#parse(String)} before being removed.
+   * {@link IdStrategy#parseAny(String)} before being removed.
    * 
    * @param id id of the decision to be removed
    */
@@ -143,8 +551,317 @@ public final class DeFacto extends Artifact {
   @OPERATION
   public void removeDecision(Object id) {
     Id idObj = decisionIdFrom(id);
-    SanctionDecision decision = sanctionDecisions.remove(idObj);
-    removeObsPropertyByTemplate(decision.getFunctor(), (Object[]) decision.toLiteral()
-                                                                          .getTermsArray());
+    SanctionDecision decision = getDecision(idObj);
+    if (journal != null) {
+      try {
+        journal.appendRemoval(idObj);
+      } catch (IOException e) {
+        journalFailed(e);
+      }
+    }
+    index.remove(decision);
+    sanctionDecisions.remove(idObj);
+    removeObsProperty(idObj);
+  }
+
+  /**
+   * Return whether there is a sanction decision with the given {@code id} through {@code out}.
+   * 
+   * @param id id of the decision, as an instance of {@link Id} or {@link String}
+   * @param out output parameter used to return whether the decision exists
+   */
+  @LINK
+  @OPERATION
+  public void hasDecision(Object id, OpFeedbackParam<Boolean> out) {
+    out.set(sanctionDecisions.containsKey(decisionIdFrom(id)));
+  }
+
+  /**
+   * Return detached copies of the decisions with the given {@code ids}, which remain valid after
+   * the operation returns, even if the decisions are updated or removed afterwards.
+   */
+  private Set<SanctionDecision> decisionsOf(Collection<Id> ids) {
+    Set<SanctionDecision> decisions = new HashSet<>(ids.size() * 4 / 3 + 1);
+    ids.forEach(id -> decisions.add(SanctionDecisions.copyOf(sanctionDecisions.get(id))));
+    return decisions;
+  }
+
+  /**
+   * Return decisions made by {@code sanctioner} through {@code out}.
+   * 
+   * @param sanctioner name of the sanctioner agent
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsBySanctioner(String sanctioner,
+      OpFeedbackParam<Set<SanctionDecision>> out) {
+    out.set(decisionsOf(index.getBySanctioner(sanctioner)));
+  }
+
+  /**
+   * Return decisions made against {@code sanctionee} through {@code out}.
+   * 
+   * @param sanctionee name of the sanctionee agent
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsBySanctionee(String sanctionee,
+      OpFeedbackParam<Set<SanctionDecision>> out) {
+    out.set(decisionsOf(index.getBySanctionee(sanctionee)));
+  }
+
+  /**
+   * Return decisions made with regard to {@code norm} through {@code out}.
+   * 
+   * @param norm id of the norm
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsByNorm(String norm, OpFeedbackParam<Set<SanctionDecision>> out) {
+    out.set(decisionsOf(index.getByNorm(norm)));
+  }
+
+  /**
+   * Return decisions which resulted in {@code sanction} through {@code out}.
+   * 
+   * @param sanction id of the sanction
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsBySanction(String sanction, OpFeedbackParam<Set<SanctionDecision>> out) {
+    out.set(decisionsOf(index.getBySanction(sanction)));
+  }
+
+  /**
+   * Return decisions made because of {@code cause} through {@code out}.
+   * 
+   * Note that {@code cause} should be an instance of {@link Cause} or {@link String}.
+   * 
+   * @param cause cause of the decisions
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsByCause(Object cause, OpFeedbackParam<Set<SanctionDecision>> out) {
+    Cause causeObj = Enums.lookup(Cause.class, cause.toString());
+    if (causeObj == null) {
+      failed(cause + " is not a valid cause value");
+    }
+    out.set(decisionsOf(index.getByCause(causeObj)));
+  }
+
+  /**
+   * Return decisions whose time is within {@code [from, to]} through {@code out}, in ascending
+   * order of time.
+   * 
+   * @param from lower bound of the interval (inclusive)
+   * @param to upper bound of the interval (inclusive)
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsBetween(long from, long to, OpFeedbackParam<List<SanctionDecision>> out) {
+    List<Id> ids = index.getBetween(from, to);
+    List<SanctionDecision> decisions = new ArrayList<>(ids.size());
+    ids.forEach(id -> decisions.add(SanctionDecisions.copyOf(sanctionDecisions.get(id))));
+    out.set(decisions);
+  }
+
+  /**
+   * Set the retention policy of the registry.
+   * 
+   * Decisions older than {@code maxAge} milliseconds, as well as the oldest decisions exceeding
+   * {@code maxCount}, are evicted every {@link #COMPACTION_PERIOD} milliseconds by a background
+   * compactor. Evicted decisions are removed from the registry and folded into the statistics
+   * returned by {@link #getStatistics(OpFeedbackParam)}. Non-positive values disable the
+   * respective limit, and the compactor stops once both limits are disabled.
+   * 
+   * @param maxAge maximum age (in milliseconds) of a decision
+   * @param maxCount maximum number of decisions kept in the registry
+   */
+  @LINK
+  @OPERATION
+  public void setRetention(long maxAge, int maxCount) {
+    this.maxAge = maxAge;
+    this.maxCount = maxCount;
+    if (!compacting && hasRetention()) {
+      compacting = true;
+      execInternalOp("runCompactor");
+    }
+  }
+
+  private boolean hasRetention() {
+    return maxAge > 0 || maxCount > 0;
+  }
+
+  @INTERNAL_OPERATION
+  void runCompactor() {
+    try {
+      while (hasRetention()) {
+        await_time(COMPACTION_PERIOD);
+        compact();
+      }
+    } finally {
+      compacting = false;
+    }
+  }
+
+  /**
+   * Evict decisions which are not allowed by the retention policy.
+   * 
+   * If an eviction cannot be journalled, the run stops, and the failure is logged and signalled as
+   * {@code compaction_failed(Reason)}. The decision is kept, since it would otherwise come back on
+   * replay, and it is evicted again on the next run, so the compactor keeps running.
+   */
+  private void compact() {
+    try {
+      if (maxAge > 0) {
+        for (Id id : index.getBefore(System.currentTimeMillis() - maxAge)) {
+          evict(id);
+        }
+      }
+      int excess = sanctionDecisions.size() - maxCount;
+      if (maxCount > 0 && excess > 0) {
+        for (Id id : index.getOldest(excess)) {
+          evict(id);
+        }
+      }
+    } catch (IOException e) {
+      String reason = "Could not journal eviction: " + e.getMessage();
+      log(reason);
+      signal("compaction_failed", reason);
+    }
+  }
+
+  /**
+   * Remove decision with the given {@code id} and fold it into the statistics.
+   * 
+   * @throws IOException if the eviction cannot be journalled, in which case the decision is kept
+   */
+  private void evict(Id id) throws IOException {
+    if (journal != null)
+      journal.appendEviction(id);
+    SanctionDecision decision = sanctionDecisions.remove(id);
+    index.remove(decision);
+    statistics.add(decision);
+    removeObsProperty(id);
+  }
+
+  /**
+   * Return a copy of the statistics of evicted decisions through {@code out}.
+   * 
+   * @param out output parameter used to return the statistics
+   */
+  @LINK
+  @OPERATION
+  public void getStatistics(OpFeedbackParam<SanctionDecisionStatistics> out) {
+    out.set(new SanctionDecisionStatistics(statistics));
+  }
+
+  /**
+   * Return the {@code k} most frequent values of the given {@code dimension} among the decisions
+   * that have arrived at the registry, in descending order of count.
+   * 
+   * Frequencies are estimated by bounded-memory {@link SpaceSaving} sketches, so the count of each
+   * value may exceed its true frequency by at most the error reported by its counter. Values more
+   * frequent than {@code 1/}{@link #HEAVY_HITTERS_CAPACITY} of the decisions are never missed.
+   * 
+   * @param dimension sanctionee, norm, or sanction
+   * @param violationsOnly whether only violation decisions should be considered
+   * @param k maximum number of values to be returned
+   * @param out output parameter used to return the counters of the most frequent values
+   */
+  @LINK
+  @OPERATION
+  public void getHeavyHitters(Object dimension, boolean violationsOnly, int k,
+      OpFeedbackParam<List<Counter<String>>> out) {
+    Dimension dimensionObj = Enums.lookup(Dimension.class, dimension.toString());
+    if (dimensionObj == null)
+      failed(dimension + " is not a valid dimension");
+    out.set(heavyHitters.top(dimensionObj, violationsOnly, k));
+  }
+
+  /**
+   * Publish the {@code k} most frequent values of each dimension as observable properties, which
+   * are refreshed every {@link #HEAVY_HITTERS_PERIOD} milliseconds.
+   * 
+   * There is one property {@code heavy_hitters(Dimension, Scope, Hitters)} for each dimension and
+   * scope, where {@code Scope} is either {@code all} or {@code violation}, and {@code Hitters} is a
+   * list of {@code hitter(Value, Count, Error)} terms in descending order of count. A non-positive
+   * {@code k} stops publishing and removes the properties.
+   * 
+   * @param k number of values to be published per dimension and scope
+   * @see #getHeavyHitters(Object, boolean, int, OpFeedbackParam)
+   */
+  @LINK
+  @OPERATION
+  public void publishHeavyHitters(int k) {
+    publishedHitters = k;
+    if (k <= 0) {
+      for (Dimension dimension : allHittersProperties.keySet()) {
+        ObsProperty prop = allHittersProperties.get(dimension);
+        removeObsPropertyByTemplate(prop.getName(), prop.getValues());
+        prop = violationHittersProperties.get(dimension);
+        removeObsPropertyByTemplate(prop.getName(), prop.getValues());
+      }
+      allHittersProperties.clear();
+      violationHittersProperties.clear();
+      return;
+    }
+
+    if (allHittersProperties.isEmpty()) {
+      for (Dimension dimension : Dimension.values()) {
+        allHittersProperties.put(dimension, defineHittersProperty(dimension, false));
+        violationHittersProperties.put(dimension, defineHittersProperty(dimension, true));
+      }
+    } else {
+      refreshHeavyHitters();
+    }
+    if (!publishingHitters) {
+      publishingHitters = true;
+      execInternalOp("runHeavyHittersPublisher");
+    }
+  }
+
+  @INTERNAL_OPERATION
+  void runHeavyHittersPublisher() {
+    try {
+      while (publishedHitters > 0) {
+        await_time(HEAVY_HITTERS_PERIOD);
+        if (publishedHitters > 0)
+          refreshHeavyHitters();
+      }
+    } finally {
+      publishingHitters = false;
+    }
+  }
+
+  private ObsProperty defineHittersProperty(Dimension dimension, boolean violationsOnly) {
+    return defineObsProperty("heavy_hitters", dimension.toAtom(),
+        ASSyntax.createAtom(violationsOnly ? Cause.VIOLATION.lowercase() : "all"),
+        hittersList(dimension, violationsOnly));
+  }
+
+  private void refreshHeavyHitters() {
+    allHittersProperties.forEach((dimension, prop) -> prop.updateValue(HITTERS_TERM,
+        hittersList(dimension, false)));
+    violationHittersProperties.forEach((dimension, prop) -> prop.updateValue(HITTERS_TERM,
+        hittersList(dimension, true)));
+  }
+
+  /** Return list of {@code hitter(Value, Count, Error)} terms of the published heavy hitters. */
+  private ListTerm hittersList(Dimension dimension, boolean violationsOnly) {
+    List<Counter<String>> top = heavyHitters.top(dimension, violationsOnly, publishedHitters);
+    Term[] hitters = new Term[top.size()];
+    for (int i = 0; i < hitters.length; i++) {
+      Counter<String> counter = top.get(i);
+      hitters[i] = ASSyntax.createStructure("hitter", ASSyntax.createAtom(counter.getItem()),
+          ASSyntax.createNumber(counter.getCount()), ASSyntax.createNumber(counter.getError()));
+    }
+    return ASSyntax.createList(hitters);
   }
 }
@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import cartago.Artifact;
+import cartago.ArtifactConfig;
+import cartago.ArtifactId;
+import cartago.LINK;
+import cartago.OPERATION;
+import cartago.OpFeedbackParam;
+import cartago.OperationException;
+import jason.asSyntax.Literal;
+import rambos.common.Enums;
+import rambos.common.id.Id;
+import rambos.common.id.IdStrategy;
+import rambos.registry.SanctionDecision;
+import rambos.registry.SanctionDecisionStatistics;
+import rambos.registry.SanctionDecisions;
+import rambos.registry.SpaceSaving;
+import rambos.registry.SpaceSaving.Counter;
+
+/**
+ * This artefact partitions the sanction decisions made in the system across a number of
+ * {@link DeFacto} shards, so that operations on different shards are not serialised by a single
+ * artefact.
+ * 
+ * Decisions are assigned to shards by a hash of their sanctionee (see
+ * {@link #shardOf(String, int)}), and each shard only creates ids whose node maps back to it
+ * (see {@link #shardOf(Id, int)}). Thus the shard of a decision is found from its sanctionee or
+ * its id alone, without asking any shard. Additions are routed to the shard of the sanctionee,
+ * updates and removals to the shard of the id, and queries are fanned out to every shard whose
+ * results are merged.
+ * 
+ * Since the router is a single artefact, operations routed through it are serialised by it. Agents
+ * which report or update many decisions should rather look the shard up through
+ * {@link #getShard(String, OpFeedbackParam)} or
+ * {@link #getShardOfDecision(Object, OpFeedbackParam)} and operate on it directly, leaving the
+ * router to fan-out queries.
+ * 
+ * The number of shards is a deployment setting given upon initialisation. Shards are created by
+ * the router and named after it, i.e. {@code <router>_shard<i>}.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class DeFactoRouter extends Artifact {
+  private ArtifactId[] shards;
+  private IdStrategy idStrategy = IdStrategy.UUID;
+
+  /**
+   * Initialise router with {@code shards} in-memory shards.
+   * 
+   * @param shards number of shards
+   * @see #init(int, String, String, String)
+   */
+  public void init(int shards) {
+    init(shards, "");
+  }
+
+  /**
+   * Initialise router with {@code shards} shards, each one keeping its journal in a
+   * {@code shard-<i>} subdirectory of {@code journalDir}.
+   * 
+   * @param shards number of shards
+   * @param journalDir path to the directory where the journals are stored, or empty string
+   * @see #init(int, String, String, String)
+   */
+  public void init(int shards, String journalDir) {
+    init(shards, journalDir, "hash");
+  }
+
+  /**
+   * Initialise router with {@code shards} shards using the given {@code store}.
+   * 
+   * @param shards number of shards
+   * @param journalDir path to the directory where the journals are stored, or empty string
+   * @param store name of the store
+   * @see #init(int, String, String, String)
+   */
+  public void init(int shards, String journalDir, String store) {
+    init(shards, journalDir, store, "uuid");
+  }
+
+  /**
+   * Initialise router with {@code shards} shards, each of which is initialised through
+   * {@link DeFacto#init(String, String, String)}.
+   * 
+   * @param shards number of shards
+   * @param journalDir path to the directory where the journals are stored, or empty string
+   * @param store name of the store
+   * @param ids name of the id strategy
+   */
+  public void init(int shards, String journalDir, String store, String ids) {
+    if (shards <= 0 || shards > Id.MAX_NODE + 1) {
+      failed("Number of shards must be between 1 and " + (Id.MAX_NODE + 1) + " but got " + shards);
+    }
+    idStrategy = Enums.lookup(IdStrategy.class, ids);
+    if (idStrategy == null) {
+      failed(ids + " is not a valid id strategy");
+    }
+
+    this.shards = new ArtifactId[shards];
+    for (int i = 0; i < shards; i++) {
+      String shardJournalDir = journalDir.isEmpty() ? ""
+          : Paths.get(journalDir, "shard-" + i)
+                 .toString();
+      try {
+        this.shards[i] = makeArtifact(getId().getName() + "_shard" + i,
+            DeFacto.class.getCanonicalName(),
+            new ArtifactConfig(shardJournalDir, store, ids, i, shards));
+      } catch (OperationException e) {
+        failed("Could not create shard " + i + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Return index of the shard which keeps the decisions about {@code sanctionee}.
+   * 
+   * @param sanctionee id of the sanctionee
+   * @param shards number of shards
+   * @return index of the shard of {@code sanctionee}
+   */
+  public static int shardOf(String sanctionee, int shards) {
+    return spread(sanctionee.hashCode(), shards);
+  }
+
+  /**
+   * Return index of the shard which keeps the decision with the given {@code id}, which is given
+   * by the {@linkplain Id#getNode() node} of the id.
+   * 
+   * @param id id of the decision
+   * @param shards number of shards
+   * @return index of the shard of {@code id}
+   */
+  public static int shardOf(Id id, int shards) {
+    return id.getNode() % shards;
+  }
+
+  private static int spread(int h, int shards) {
+    // Spread higher bits, since agent names often differ only in their numeric suffix
+    h ^= (h >>> 16);
+    h *= 0x85ebca6b;
+    h ^= (h >>> 13);
+    return Math.floorMod(h, shards);
+  }
+
+  /**
+   * Return a new id created according to {@code ids} which belongs to the given {@code shard}.
+   * 
+   * The id is created by a random node among those which map to the shard, so that ids created
+   * by different deployments are still unlikely to share their node.
+   * 
+   * @param ids strategy used to create the id
+   * @param shard index of the shard
+   * @param shards number of shards
+   * @return new id of the shard
+   */
+  public static Id newId(IdStrategy ids, int shard, int shards) {
+    int nodes = (Id.MAX_NODE - shard) / shards + 1;
+    return ids.newId(shard + shards * ThreadLocalRandom.current()
+                                                       .nextInt(nodes));
+  }
+
+  /** Handy method to execute a linked operation, failing if it fails. */
+  private void execShardOp(ArtifactId shard, String op, Object... params) {
+    try {
+      execLinkedOp(shard, op, params);
+    } catch (OperationException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /** Return shard which keeps the decision with the given {@code id}. */
+  private ArtifactId shardOfDecision(Object id) {
+    Id idObj = null;
+    if (id instanceof Id) {
+      idObj = (Id) id;
+    } else if (id instanceof String) {
+      try {
+        idObj = IdStrategy.parseAny((String) id);
+      } catch (IllegalArgumentException e) {
+        failed(e.getMessage());
+      }
+    } else {
+      failed("Expected " + String.class.getCanonicalName() + " or " + Id.class.getCanonicalName()
+          + " but got " + id.getClass()
+                            .getCanonicalName());
+    }
+    return shards[shardOf(idObj, shards.length)];
+  }
+
+  /**
+   * Return sanction decision represented by {@code obj}, with an id of the shard of its
+   * sanctionee.
+   * 
+   * Decisions which are parsed get a new id of that shard, whereas decisions given as instances of
+   * {@link SanctionDecision} keep their id, which must thus belong to that shard already (see
+   * {@link #newId(IdStrategy, int, int)}).
+   */
+  private SanctionDecision routedDecisionFrom(Object obj) {
+    SanctionDecision decision = decisionFrom(obj);
+    int shard = shardOf(decision.getSanctionee(), shards.length);
+    if (shardOf(decision.getId(), shards.length) == shard)
+      return decision;
+    if (obj instanceof SanctionDecision)
+      failed("Id " + decision.getId() + " does not belong to the shard of sanctionee "
+          + decision.getSanctionee());
+    return SanctionDecisions.withId(decision, newId(idStrategy, shard, shards.length));
+  }
+
+  /** Return sanction decision represented by {@code obj}, parsing it if needed. */
+  private SanctionDecision decisionFrom(Object obj) {
+    try {
+      if (obj instanceof SanctionDecision)
+        return (SanctionDecision) obj;
+      else if (obj instanceof String)
+        return SanctionDecisions.parse((String) obj, idStrategy);
+      else if (obj instanceof Literal)
+        return SanctionDecisions.of((Literal) obj, idStrategy);
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+    failed("Expected " + String.class.getCanonicalName() + " or "
+        + SanctionDecision.class.getCanonicalName() + " but got " + obj.getClass()
+                                                                       .getCanonicalName());
+    assert false; // Execution should never reach this point!
+    return null;
+  }
+
+  /**
+   * Return the shard of {@code sanctionee} through {@code out}.
+   * 
+   * @param sanctionee id of the sanctionee
+   * @param out output parameter used to return the id of the shard artefact
+   */
+  @LINK
+  @OPERATION
+  public void getShard(String sanctionee, OpFeedbackParam<ArtifactId> out) {
+    out.set(shards[shardOf(sanctionee, shards.length)]);
+  }
+
+  /**
+   * Return the shard which keeps the decision with the given {@code id} through {@code out}.
+   * 
+   * @param id id of the decision, as an instance of {@link Id} or {@link String}
+   * @param out output parameter used to return the id of the shard artefact
+   */
+  @LINK
+  @OPERATION
+  public void getShardOfDecision(Object id, OpFeedbackParam<ArtifactId> out) {
+    out.set(shardOfDecision(id));
+  }
+
+  /**
+   * Add new decision into the shard of its sanctionee.
+   * 
+   * @param decision sanction decision to be added
+   * @see DeFacto#addDecision(Object)
+   */
+  @LINK
+  @OPERATION
+  public void addDecision(Object decision) {
+    SanctionDecision decisionObj = routedDecisionFrom(decision);
+    execShardOp(shards[shardOf(decisionObj.getSanctionee(), shards.length)], "addDecision",
+        decisionObj);
+  }
+
+  /**
+   * Add a batch of new decisions, each one into the shard of its sanctionee.
+   * 
+   * Each shard adds its part of the batch atomically, but the batch as a whole is not atomic: if
+   * a shard fails, the parts added to other shards are kept.
+   * 
+   * @param decisions sanction decisions to be added
+   * @see DeFacto#addDecisions(Object)
+   */
+  @LINK
+  @OPERATION
+  public void addDecisions(Object decisions) {
+    Iterable<?> elements = null;
+    if (decisions instanceof Object[])
+      elements = Arrays.asList((Object[]) decisions);
+    else if (decisions instanceof Iterable)
+      elements = (Iterable<?>) decisions;
+    else
+      failed("Expected array or " + Iterable.class.getCanonicalName() + " but got "
+          + decisions.getClass()
+                     .getCanonicalName());
+
+    Map<Integer, List<SanctionDecision>> batches = new HashMap<>();
+    for (Object element : elements) {
+      SanctionDecision decision = routedDecisionFrom(element);
+      batches.computeIfAbsent(shardOf(decision.getSanctionee(), shards.length),
+          shard -> new ArrayList<>())
+             .add(decision);
+    }
+    batches.forEach((shard, batch) -> execShardOp(shards[shard], "addDecisions", batch));
+  }
+
+  /**
+   * Update the efficacy value of an existing sanction decision in the shard of its id.
+   * 
+   * @param decisionId id of the decision to be updated
+   * @param efficacy new efficacy value
+   * @see DeFacto#updateEfficacy(Object, Object)
+   */
+  @LINK
+  @OPERATION
+  public void updateEfficacy(Object decisionId, Object efficacy) {
+    execShardOp(shardOfDecision(decisionId), "updateEfficacy", decisionId, efficacy);
+  }
+
+  /**
+   * Set whether an existing sanction decision has been applied in the shard of its id.
+   * 
+   * @param decisionId id of the decision to be updated
+   * @param applied {@code true} if the sanction has been applied
+   * @see DeFacto#setApplied(Object, boolean)
+   */
+  @LINK
+  @OPERATION
+  public void setApplied(Object decisionId, boolean applied) {
+    execShardOp(shardOfDecision(decisionId), "setApplied", decisionId, applied);
+  }
+
+  /**
+   * Remove sanction decision with the given {@code id} from the shard of the id.
+   * 
+   * @param id id of the decision to be removed
+   * @see DeFacto#removeDecision(Object)
+   */
+  @LINK
+  @OPERATION
+  public void removeDecision(Object id) {
+    execShardOp(shardOfDecision(id), "removeDecision", id);
+  }
+
+  /** Execute query operation {@code op} on every shard and return the union of the results. */
+  private <T> Set<T> unionOf(String op, Object param) {
+    Set<T> union = new HashSet<>();
+    for (ArtifactId shard : shards) {
+      OpFeedbackParam<Set<T>> out = new OpFeedbackParam<>();
+      execShardOp(shard, op, param, out);
+      union.addAll(out.get());
+    }
+    return union;
+  }
+
+  /**
+   * Return decisions made by {@code sanctioner} through {@code out}.
+   * 
+   * @param sanctioner id of the sanctioner
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsBySanctioner(String sanctioner,
+      OpFeedbackParam<Set<SanctionDecision>> out) {
+    out.set(unionOf("getDecisionsBySanctioner", sanctioner));
+  }
+
+  /**
+   * Return decisions made about {@code sanctionee} through {@code out}, which are all kept by a
+   * single shard.
+   * 
+   * @param sanctionee id of the sanctionee
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsBySanctionee(String sanctionee,
+      OpFeedbackParam<Set<SanctionDecision>> out) {
+    execShardOp(shards[shardOf(sanctionee, shards.length)], "getDecisionsBySanctionee",
+        sanctionee, out);
+  }
+
+  /**
+   * Return decisions made with regard to {@code norm} through {@code out}.
+   * 
+   * @param norm id of the norm
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsByNorm(String norm, OpFeedbackParam<Set<SanctionDecision>> out) {
+    out.set(unionOf("getDecisionsByNorm", norm));
+  }
+
+  /**
+   * Return decisions which resulted in {@code sanction} through {@code out}.
+   * 
+   * @param sanction id of the sanction
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsBySanction(String sanction, OpFeedbackParam<Set<SanctionDecision>> out) {
+    out.set(unionOf("getDecisionsBySanction", sanction));
+  }
+
+  /**
+   * Return decisions made because of {@code cause} through {@code out}.
+   * 
+   * @param cause cause of the decisions
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsByCause(Object cause, OpFeedbackParam<Set<SanctionDecision>> out) {
+    out.set(unionOf("getDecisionsByCause", cause));
+  }
+
+  /**
+   * Return decisions whose time is within {@code [from, to]} through {@code out}, in ascending
+   * order of time.
+   * 
+   * @param from lower bound of the interval (inclusive)
+   * @param to upper bound of the interval (inclusive)
+   * @param out output parameter used to return the decisions
+   */
+  @LINK
+  @OPERATION
+  public void getDecisionsBetween(long from, long to, OpFeedbackParam<List<SanctionDecision>> out) {
+    List<SanctionDecision> decisions = new ArrayList<>();
+    for (ArtifactId shard : shards) {
+      OpFeedbackParam<List<SanctionDecision>> shardOut = new OpFeedbackParam<>();
+      execShardOp(shard, "getDecisionsBetween", from, to, shardOut);
+      decisions.addAll(shardOut.get());
+    }
+    decisions.sort(Comparator.comparingLong(SanctionDecision::getTime));
+    out.set(decisions);
+  }
+
+  /**
+   * Set the retention policy of every shard.
+   * 
+   * Note that limits are applied per shard, so {@code maxCount} bounds the number of decisions
+   * kept by each shard rather than by the whole registry.
+   * 
+   * @param maxAge maximum age (in milliseconds) of a decision
+   * @param maxCount maximum number of decisions kept in each shard
+   * @see DeFacto#setRetention(long, int)
+   */
+  @LINK
+  @OPERATION
+  public void setRetention(long maxAge, int maxCount) {
+    for (ArtifactId shard : shards) {
+      execShardOp(shard, "setRetention", maxAge, maxCount);
+    }
+  }
+
+  /**
+   * Return the merged statistics of evicted decisions of every shard through {@code out}.
+   * 
+   * @param out output parameter used to return the statistics
+   */
+  @LINK
+  @OPERATION
+  public void getStatistics(OpFeedbackParam<SanctionDecisionStatistics> out) {
+    SanctionDecisionStatistics statistics = new SanctionDecisionStatistics();
+    for (ArtifactId shard : shards) {
+      OpFeedbackParam<SanctionDecisionStatistics> shardOut = new OpFeedbackParam<>();
+      execShardOp(shard, "getStatistics", shardOut);
+      statistics.addAll(shardOut.get());
+    }
+    out.set(statistics);
+  }
+
+  /**
+   * Return the {@code k} most frequent values of the given {@code dimension} across all shards.
+   * 
+   * Sanctionees are partitioned across shards, so their counters are simply gathered from each
+   * shard. Norms and sanctions, though, may be spread over several shards, so their counters are
+   * approximated from the summaries of each shard as described in
+   * {@link SpaceSaving#merge(Collection, int)}.
+   * 
+   * @param dimension sanctionee, norm, or sanction
+   * @param violationsOnly whether only violation decisions should be considered
+   * @param k maximum number of values to be returned
+   * @param out output parameter used to return the counters of the most frequent values
+   * @see DeFacto#getHeavyHitters(Object, boolean, int, OpFeedbackParam)
+   */
+  @LINK
+  @OPERATION
+  public void getHeavyHitters(Object dimension, boolean violationsOnly, int k,
+      OpFeedbackParam<List<Counter<String>>> out) {
+    List<List<Counter<String>>> summaries = new ArrayList<>(shards.length);
+    for (ArtifactId shard : shards) {
+      OpFeedbackParam<List<Counter<String>>> shardOut = new OpFeedbackParam<>();
+      execShardOp(shard, "getHeavyHitters", dimension, violationsOnly,
+          DeFacto.HEAVY_HITTERS_CAPACITY, shardOut);
+      summaries.add(shardOut.get());
+    }
+    out.set(SpaceSaving.merge(summaries, k));
+  }
+}
@@ -21,17 +21,37 @@
 package rambos.institution;
 
 import static jason.asSyntax.ASSyntax.createAtom;
+import static rambos.common.Literals.literalFrom;
 
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import cartago.Artifact;
+import cartago.INTERNAL_OPERATION;
 import cartago.LINK;
 import cartago.OPERATION;
 import cartago.ObsProperty;
 import cartago.OpFeedbackParam;
+import jason.asSyntax.ASSyntax;
 import jason.asSyntax.Atom;
+import jason.asSyntax.ListTerm;
+import jason.asSyntax.Literal;
+import jason.asSyntax.parser.ParseException;
+import rambos.common.Enums;
 import rambos.common.Literable;
 import rambos.norm.Norm;
+import rambos.norm.NormAttribute;
 import rambos.norm.Norms;
 import rambos.sanction.Sanction;
 
@@ -40,11 +60,20 @@ import rambos.sanction.Sanction;
  * norm-sanction links. It provides operations to consult and make changes, as well as observable
  * properties which reflect the current state of the regulative specification.
  * 
+ * Norms and sanctions are immutable values, so those returned by operations are shared rather than
+ * copied. The specification file may also be watched and reloaded upon changes (see
+ * {@link #init(String, boolean)}).
+ * 
  * @author igorcadelima
  *
  */
 public final class DeJure extends Artifact {
+  /** Time (in milliseconds) between two checks for changes in the specification file. */
+  static final long WATCH_PERIOD = 1000;
+
   private RegulativeSpec regulativeSpec;
+  private Path specFile;
+  private WatchService watcher;
 
   /**
    * Initialise {@link DeJure} repository based on data from the given regulative specification.
@@ -52,11 +81,123 @@ public final class DeJure extends Artifact {
    * @param regulativeSpec path to file with the regulative specification
    */
   public void init(String regulativeSpec) {
+    init(regulativeSpec, false);
+  }
+
+  /**
+   * Initialise {@link DeJure} repository based on data from the given regulative specification,
+   * optionally watching the file for changes.
+   * 
+   * If {@code watch} is {@code true}, the specification file is watched, and whenever it changes
+   * it is reloaded as in {@link #reload()}, so that norms and sanctions can be changed without
+   * restarting the system. Note that reloads drop the changes made at runtime which the file does
+   * not have, such as links added through {@link #link(String, String)}. A reload which fails,
+   * e.g. because of a malformed edit, is signalled through {@code spec_reload_failed(Reason)}
+   * and the file keeps being watched.
+   * 
+   * @param regulativeSpec path to file with the regulative specification
+   * @param watch whether the file should be watched for changes
+   */
+  public void init(String regulativeSpec, boolean watch) {
+    this.specFile = Paths.get(regulativeSpec)
+                         .toAbsolutePath();
     this.regulativeSpec = RegulativeSpecs.fromFile(regulativeSpec);
     this.regulativeSpec.getNorms()
                        .forEach(this::defineObsProperty);
     this.regulativeSpec.getSanctions()
                        .forEach(this::defineObsProperty);
+
+    if (watch) {
+      try {
+        watcher = specFile.getFileSystem()
+                          .newWatchService();
+        specFile.getParent()
+                .register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+      } catch (IOException e) {
+        failed("Could not watch " + specFile + ": " + e.getMessage());
+      }
+      execInternalOp("watchSpecFile");
+    }
+  }
+
+  @Override
+  protected void dispose() {
+    if (watcher != null) {
+      try {
+        watcher.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  @INTERNAL_OPERATION
+  void watchSpecFile() {
+    try {
+      while (true) {
+        await_time(WATCH_PERIOD);
+        WatchKey key = watcher.poll();
+        if (key == null)
+          continue;
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          changed |= specFile.getFileName()
+                             .equals(event.context());
+        }
+        key.reset();
+        if (changed)
+          tryReloadSpecFile();
+      }
+    } catch (ClosedWatchServiceException e) {
+      // Artefact has been disposed
+    }
+  }
+
+  /**
+   * Reload the regulative specification from its file, applying only what changed.
+   * 
+   * The file is parsed into a new specification, which is diffed against the current one by
+   * {@link RegulativeSpecs#diff(RegulativeSpecSnapshot, RegulativeSpecSnapshot)}. The resulting
+   * changes are then applied as a single batch, as in {@link #applyChanges(Object)}, so that only
+   * the observable properties of changed norms and sanctions are updated. If the file cannot be
+   * parsed, e.g. because it is being written, the current specification is kept.
+   * 
+   * Since the file is the reference, changes made at runtime through other operations, e.g. links
+   * added by {@link #link(String, String)}, are dropped by a reload unless the file has them too.
+   */
+  @LINK
+  @OPERATION
+  public void reload() {
+    if (!reloadSpecFile())
+      failed("Could not reload regulative specification from " + specFile);
+  }
+
+  /**
+   * Reload specification file on behalf of the watcher, which must keep watching whatever happens,
+   * so failures are logged and signalled through {@code spec_reload_failed(Reason)} instead.
+   */
+  private void tryReloadSpecFile() {
+    String reason = null;
+    try {
+      if (!reloadSpecFile())
+        reason = "the file could not be parsed";
+    } catch (RuntimeException e) {
+      reason = String.valueOf(e.getMessage());
+    }
+    if (reason != null) {
+      log("Could not reload regulative specification from " + specFile + ": " + reason);
+      signal("spec_reload_failed", reason);
+    }
+  }
+
+  /** Reload specification file, returning {@code false} if it could not be parsed. */
+  private boolean reloadSpecFile() {
+    RegulativeSpec newSpec = RegulativeSpecs.fromFile(specFile.toString());
+    if (newSpec == null)
+      return false;
+    apply(RegulativeSpecs.diff(regulativeSpec.snapshot(), newSpec.snapshot()));
+    return true;
   }
 
   /** Handy method to define observable properties of a {@code literable}. */
@@ -69,9 +210,9 @@ public final class DeJure extends Artifact {
   /** Handy method to update observable properties of a {@code literable}. */
   private void updateObsProperty(Literable literable, Atom id) {
     ObsProperty property = getObsPropertyByTemplate(literable.getFunctor(), id, null);
-    property.updateValue(literable.toLiteral()
-                                  .getTerms()
-                                  .toArray());
+    property.updateValues(literable.toLiteral()
+                                   .getTerms()
+                                   .toArray());
   }
 
   /** Handy method to remove observable properties of a {@code literable}. */
@@ -153,6 +294,8 @@ public final class DeJure extends Artifact {
   /**
    * Remove sanction from regulative specification and observable property with it.
    * 
+   * The observable properties of the norms which were linked to the sanction are also updated.
+   * 
    * @param sanction sanction to be removed
    * @return {@code true} if sanction was removed successfully
    */
@@ -160,8 +303,12 @@ public final class DeJure extends Artifact {
   @OPERATION
   public void removeSanction(Sanction sanction) {
     // TODO: check whether operator agent is a legislator
+    Set<Norm> linkedNorms = regulativeSpec.getNormsLinkedTo(sanction.getId());
     if (regulativeSpec.removeSanction(sanction.getId()) != null) {
       removeObsProperty(sanction);
+      for (Norm norm : linkedNorms) {
+        updateObsProperty(regulativeSpec.getNorm(norm.getId()), norm.getId());
+      }
     }
   }
 
@@ -200,13 +347,116 @@ public final class DeJure extends Artifact {
   public void unlink(String normId, String sanctionId) {
     // TODO: check whether operator agent is a legislator
     Atom normIdAtom = createAtom(normId);
-    Norm norm = regulativeSpec.getNorm(normIdAtom);
 
     if (regulativeSpec.unlink(normIdAtom, createAtom(sanctionId))) {
+      Norm norm = regulativeSpec.getNorm(normIdAtom);
       updateObsProperty(norm, normIdAtom);
     }
   }
 
+  /**
+   * Apply a batch of changes to the regulative specification atomically.
+   * 
+   * {@code changes} should be an array, an {@link Iterable}, or a {@link ListTerm} whose elements
+   * are instances of {@link RegulativeSpecChange}, or literals (or strings thereof) representing
+   * changes as described in {@link RegulativeSpecChange#of(Literal)}, e.g.
+   * {@code [add_norm("norm(...)"), link(n1, s1), disable_norm(n2)]}. Either all changes are
+   * applied or the operation fails leaving the specification untouched (see
+   * {@link RegulativeSpec#apply(Iterable)}).
+   * 
+   * Observable properties are then updated only for the norms and sanctions which differ between
+   * the specification before and after the batch, which are found from the changes themselves, so
+   * the cost of a batch depends on its size rather than on the size of the specification. All of
+   * these updates are perceived at once by focusing agents, which never observe a partially
+   * applied batch.
+   * 
+   * @param changes changes to be applied
+   */
+  @LINK
+  @OPERATION
+  public void applyChanges(Object changes) {
+    // TODO: check whether operator agent is a legislator
+    Iterable<?> elements = null;
+    if (changes instanceof Object[])
+      elements = Arrays.asList((Object[]) changes);
+    else if (changes instanceof Iterable)
+      elements = (Iterable<?>) changes;
+    else
+      failed("Expected array or " + Iterable.class.getCanonicalName() + " but got "
+          + changes.getClass()
+                   .getCanonicalName());
+
+    List<RegulativeSpecChange> batch = new ArrayList<>();
+    try {
+      for (Object element : elements) {
+        batch.add(changeFrom(element));
+      }
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+    apply(batch);
+  }
+
+  /**
+   * Apply {@code batch} to the regulative specification and update the observable properties of
+   * the norms and sanctions which changed.
+   */
+  private void apply(List<RegulativeSpecChange> batch) {
+    RegulativeSpecSnapshot before = regulativeSpec.snapshot();
+    RegulativeSpecSnapshot after = null;
+    try {
+      after = regulativeSpec.apply(batch);
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+    if (after == before)
+      return;
+
+    Set<Atom> normIds = new LinkedHashSet<>();
+    Set<Atom> sanctionIds = new LinkedHashSet<>();
+    for (RegulativeSpecChange change : batch) {
+      change.addAffectedIds(before, normIds, sanctionIds);
+    }
+    // Sanctions go first, so that norms are never observed linked to undefined sanctions
+    for (Atom id : sanctionIds) {
+      Sanction previous = before.getSanction(id);
+      Sanction current = after.getSanction(id);
+      if (current == null && previous != null)
+        removeObsProperty(previous);
+      else if (previous == null && current != null)
+        defineObsProperty(current);
+      else if (previous != current)
+        updateObsProperty(current, id);
+    }
+    for (Atom id : normIds) {
+      Norm previous = before.getNorm(id);
+      Norm current = after.getNorm(id);
+      if (current == null && previous != null)
+        removeObsProperty(previous);
+      else if (previous == null && current != null)
+        defineObsProperty(current);
+      else if (previous != current)
+        updateObsProperty(current, id);
+    }
+  }
+
+  /** Return change represented by {@code obj}, parsing it if needed. */
+  private RegulativeSpecChange changeFrom(Object obj) {
+    if (obj instanceof RegulativeSpecChange)
+      return (RegulativeSpecChange) obj;
+    else if (obj instanceof Literal)
+      return RegulativeSpecChange.of((Literal) obj);
+    else if (obj instanceof String) {
+      try {
+        return RegulativeSpecChange.of(ASSyntax.parseLiteral((String) obj));
+      } catch (ParseException e) {
+        throw new IllegalArgumentException("String does not contain a parsable change: " + obj);
+      }
+    }
+    throw new IllegalArgumentException("Expected "
+        + RegulativeSpecChange.class.getCanonicalName() + " but got " + obj);
+  }
+
   /** Return norms through {@link out}. */
   @LINK
   @OPERATION
@@ -220,4 +470,179 @@ public final class DeJure extends Artifact {
   public void getSanctions(OpFeedbackParam<Set<Sanction>> out) {
     out.set(regulativeSpec.getSanctions());
   }
+
+  /**
+   * Return norms linked to the sanction with the given id through {@code out}.
+   * 
+   * @param sanctionId id of the sanction
+   * @param out output parameter used to return the set of norms, which is empty if there are none
+   */
+  @LINK
+  @OPERATION
+  public void getNormsLinkedTo(String sanctionId, OpFeedbackParam<Set<Norm>> out) {
+    out.set(regulativeSpec.getNormsLinkedTo(createAtom(sanctionId)));
+  }
+
+  /**
+   * Return norms whose {@code attribute} has the given {@code value} through {@code out}, e.g.
+   * {@code getNormsBy(target, bob, Norms)} for the norms targeting agent {@code bob}. Norms are
+   * looked up in an index, so agents need not scan every norm to find those relevant to them.
+   * 
+   * @param attribute issuer, content_type, target, status, or condition_functor
+   * @param value value of the attribute, whose surrounding spaces are ignored
+   * @param out output parameter used to return the set of norms, which is empty if there are none
+   * @see NormAttribute
+   */
+  @LINK
+  @OPERATION
+  public void getNormsBy(Object attribute, Object value, OpFeedbackParam<Set<Norm>> out) {
+    NormAttribute attributeObj = Enums.lookup(NormAttribute.class, attribute.toString());
+    if (attributeObj == null)
+      failed(attribute + " is not a valid norm attribute");
+    out.set(regulativeSpec.getNormsBy(attributeObj, value.toString()
+                                                         .trim()));
+  }
+
+  /**
+   * Return the current snapshot of the regulative specification through {@code out}.
+   * 
+   * The snapshot is immutable, so it can be read at will without further operations, e.g. to get
+   * norms and sanctions from the very same version of the specification.
+   * 
+   * @param out output parameter used to return the snapshot
+   */
+  @LINK
+  @OPERATION
+  public void getSnapshot(OpFeedbackParam<RegulativeSpecSnapshot> out) {
+    out.set(regulativeSpec.snapshot());
+  }
+
+  /**
+   * Return a page of norms through {@code page}, and a cursor to the next page through
+   * {@code next}.
+   * 
+   * Pages are served from the snapshot of the specification in which the iteration started, so
+   * large specifications can be retrieved incrementally and consistently. Norms are kept in
+   * ascending order of id as they are written, so no operation sorts the specification, and each
+   * one takes time proportional to the size of the page times the logarithm of the number of
+   * norms. Norms are returned in ascending order of id.
+   * 
+   * @param cursor cursor returned by a previous call, or any other value (e.g. {@code start}) to
+   *        start from the first norm of the current specification
+   * @param size maximum number of norms in the page
+   * @param page output parameter used to return the norms in the page
+   * @param next output parameter used to return the cursor to the next page, or {@code null} if
+   *        there are no more norms
+   */
+  @LINK
+  @OPERATION
+  public void getNormPage(Object cursor, int size, OpFeedbackParam<List<Norm>> page,
+      OpFeedbackParam<RegulativeSpecCursor<Norm>> next) {
+    try {
+      if (cursor instanceof RegulativeSpecCursor) {
+        nextPage(((RegulativeSpecCursor<?>) cursor).as(Norm.class), size, page, next);
+      } else {
+        RegulativeSpecSnapshot snapshot = regulativeSpec.snapshot();
+        nextPage(RegulativeSpecCursor.of(snapshot.getVersion(), Norm.class,
+            snapshot.getNormList(), null), size, page, next);
+      }
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /**
+   * Return the first page of norms whose literal representation unifies with {@code filter}, e.g.
+   * {@code norm(_, enabled, _, _, obligation(bob, _, _, _))}. Further pages are retrieved by
+   * passing the returned cursor to {@link #getNormPage(Object, int, OpFeedbackParam,
+   * OpFeedbackParam)}.
+   * 
+   * In order to keep operations short, only a bounded number of norms are examined per page, so a
+   * page may have fewer than {@code size} norms, or none at all, while {@code next} is not
+   * {@code null}.
+   * 
+   * @param filter literal, or string thereof, which norms must unify with
+   * @param size maximum number of norms in the page
+   * @param page output parameter used to return the norms in the page
+   * @param next output parameter used to return the cursor to the next page, or {@code null} if
+   *        there are no more norms to be examined
+   */
+  @LINK
+  @OPERATION
+  public void getNormPageMatching(Object filter, int size, OpFeedbackParam<List<Norm>> page,
+      OpFeedbackParam<RegulativeSpecCursor<Norm>> next) {
+    RegulativeSpecSnapshot snapshot = regulativeSpec.snapshot();
+    try {
+      nextPage(RegulativeSpecCursor.of(snapshot.getVersion(), Norm.class, snapshot.getNormList(),
+          literalFrom(filter)), size, page, next);
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /**
+   * Return a page of sanctions through {@code page}, and a cursor to the next page through
+   * {@code next}.
+   * 
+   * @param cursor cursor returned by a previous call, or any other value (e.g. {@code start}) to
+   *        start from the first sanction of the current specification
+   * @param size maximum number of sanctions in the page
+   * @param page output parameter used to return the sanctions in the page
+   * @param next output parameter used to return the cursor to the next page, or {@code null} if
+   *        there are no more sanctions
+   * @see #getNormPage(Object, int, OpFeedbackParam, OpFeedbackParam)
+   */
+  @LINK
+  @OPERATION
+  public void getSanctionPage(Object cursor, int size, OpFeedbackParam<List<Sanction>> page,
+      OpFeedbackParam<RegulativeSpecCursor<Sanction>> next) {
+    try {
+      if (cursor instanceof RegulativeSpecCursor) {
+        nextPage(((RegulativeSpecCursor<?>) cursor).as(Sanction.class), size, page, next);
+      } else {
+        RegulativeSpecSnapshot snapshot = regulativeSpec.snapshot();
+        nextPage(RegulativeSpecCursor.of(snapshot.getVersion(), Sanction.class,
+            snapshot.getSanctionList(), null), size, page, next);
+      }
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /**
+   * Return the first page of sanctions whose literal representation unifies with {@code filter}.
+   * Further pages are retrieved by passing the returned cursor to
+   * {@link #getSanctionPage(Object, int, OpFeedbackParam, OpFeedbackParam)}.
+   * 
+   * @param filter literal, or string thereof, which sanctions must unify with
+   * @param size maximum number of sanctions in the page
+   * @param page output parameter used to return the sanctions in the page
+   * @param next output parameter used to return the cursor to the next page, or {@code null} if
+   *        there are no more sanctions to be examined
+   * @see #getNormPageMatching(Object, int, OpFeedbackParam, OpFeedbackParam)
+   */
+  @LINK
+  @OPERATION
+  public void getSanctionPageMatching(Object filter, int size,
+      OpFeedbackParam<List<Sanction>> page, OpFeedbackParam<RegulativeSpecCursor<Sanction>> next) {
+    RegulativeSpecSnapshot snapshot = regulativeSpec.snapshot();
+    try {
+      nextPage(RegulativeSpecCursor.of(snapshot.getVersion(), Sanction.class,
+          snapshot.getSanctionList(), literalFrom(filter)), size, page, next);
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /**
+   * Retrieve next page from {@code cursor} into the output parameters.
+   * 
+   * @throws IllegalArgumentException if {@code size} is not positive
+   */
+  private static <T extends Literable> void nextPage(RegulativeSpecCursor<T> cursor, int size,
+      OpFeedbackParam<List<T>> page, OpFeedbackParam<RegulativeSpecCursor<T>> next) {
+    List<T> elements = new ArrayList<>();
+    next.set(cursor.next(size, elements));
+    page.set(elements);
+  }
 }
@@ -23,11 +23,17 @@ package rambos.institution;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Source;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.validation.Schema;
@@ -39,10 +45,34 @@ import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 /**
+ * Static utility methods pertaining to XML documents.
+ * 
+ * Compiled schemas are cached process-wide by path, since compiling a schema is costly and
+ * {@link Schema} instances are thread-safe. Document builders, validators, and SAX parsers are
+ * not, so they are pooled per thread and reset before being reused.
+ * 
  * @author igorcadelima
  *
  */
 final class Documents {
+  // schemaPath -> compiled schema
+  private static final ConcurrentMap<String, Schema> SCHEMAS = new ConcurrentHashMap<>();
+  private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY =
+      newDocumentBuilderFactory();
+  private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = new ThreadLocal<>();
+  private static final ThreadLocal<Map<Schema, Validator>> VALIDATORS =
+      ThreadLocal.withInitial(IdentityHashMap::new);
+  private static final ThreadLocal<Map<Schema, SAXParser>> SAX_PARSERS =
+      ThreadLocal.withInitial(IdentityHashMap::new);
+
+  private Documents() {}
+
+  private static DocumentBuilderFactory newDocumentBuilderFactory() {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    return factory;
+  }
+
   /**
    * Try to parse, validate using schema passed as argument, normalize, and return {@link Document}.
    * 
@@ -71,16 +101,31 @@ final class Documents {
    */
   static Document parseDocument(String filePath)
       throws ParserConfigurationException, SAXException, IOException {
-    DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-    documentBuilderFactory.setNamespaceAware(true);
-
-    DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
     File file = new File(filePath);
-    Document doc = documentBuilder.parse(file);
+    Document doc = getDocumentBuilder().parse(file);
     doc.normalize();
     return doc;
   }
 
+  /**
+   * Return the {@link DocumentBuilder} of the current thread, which is reset before being returned.
+   * 
+   * @return namespace-aware document builder
+   * @throws ParserConfigurationException
+   */
+  static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+    DocumentBuilder builder = DOCUMENT_BUILDERS.get();
+    if (builder == null) {
+      synchronized (DOCUMENT_BUILDER_FACTORY) {
+        builder = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+      }
+      DOCUMENT_BUILDERS.set(builder);
+    } else {
+      builder.reset();
+    }
+    return builder;
+  }
+
   /**
    * Validate a XML file against a schema.
    * 
@@ -91,22 +136,67 @@ final class Documents {
    */
   static void validate(Node node, String schemaPath) throws SAXException, IOException {
     Source xmlSource = new DOMSource(node);
-    Schema schema = getSchema(schemaPath);
-    Validator validator = schema.newValidator();
-    validator.validate(xmlSource);
+    getValidator(getSchema(schemaPath)).validate(xmlSource);
   }
 
   /**
-   * Create and return {@link Schema} representation of schema if existing in the path passed as
-   * argument.
+   * Return the {@link Validator} of {@code schema} for the current thread, which is reset before
+   * being returned.
+   * 
+   * @param schema schema of the validator
+   * @return validator of {@code schema}
+   */
+  static Validator getValidator(Schema schema) {
+    Validator validator = VALIDATORS.get()
+                                    .computeIfAbsent(schema, Schema::newValidator);
+    validator.reset();
+    return validator;
+  }
+
+  /**
+   * Return the namespace-aware {@link SAXParser} of the current thread which validates documents
+   * against {@code schema} while parsing them. The parser is reset before being returned.
+   * 
+   * @param schema schema against which documents are validated
+   * @return validating SAX parser
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  static SAXParser getSAXParser(Schema schema) throws ParserConfigurationException, SAXException {
+    Map<Schema, SAXParser> parsers = SAX_PARSERS.get();
+    SAXParser parser = parsers.get(schema);
+    if (parser == null) {
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setSchema(schema);
+      parser = factory.newSAXParser();
+      parsers.put(schema, parser);
+    } else {
+      parser.reset();
+    }
+    return parser;
+  }
+
+  /**
+   * Return {@link Schema} representation of schema if existing in the path passed as argument.
+   * 
+   * Schemas are compiled only once per path, and then shared by all threads.
    * 
    * @return {@link Schema} representation of schema passed as argument
    * @throws SAXException
    */
   static Schema getSchema(String schemaPath) throws SAXException {
-    SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-    URL schemaResource = Documents.class.getResource(schemaPath);
-    return schemaFactory.newSchema(schemaResource);
+    Schema schema = SCHEMAS.get(schemaPath);
+    if (schema == null) {
+      // Factories are not thread-safe, and compilation seldom happens, so no need to share them
+      SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+      URL schemaResource = Documents.class.getResource(schemaPath);
+      Schema compiled = schemaFactory.newSchema(schemaResource);
+      schema = SCHEMAS.putIfAbsent(schemaPath, compiled);
+      if (schema == null)
+        schema = compiled;
+    }
+    return schema;
   }
 
   /**
@@ -116,11 +206,9 @@ final class Documents {
    * @return {@link Node} as a {@link Document}
    */
   static Document nodeToDocument(Node node) {
-    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-    factory.setNamespaceAware(true);
     DocumentBuilder builder = null;
     try {
-      builder = factory.newDocumentBuilder();
+      builder = getDocumentBuilder();
     } catch (ParserConfigurationException e) {
       // TODO Auto-generated catch block
       e.printStackTrace();
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+
+import jason.asSyntax.Atom;
+import rambos.common.PersistentTreeMap;
+
+/**
+ * Index from keys to sets of ids.
+ * 
+ * Keys and their sets of ids are kept in {@link PersistentTreeMap}s, so copies of the index share
+ * all their structure. {@link #copy()} takes constant time and leaves this index untouched, and
+ * indexing or unindexing an id copies only the paths to its key and to the id itself, which takes
+ * logarithmic time.
+ * 
+ * @author igorcadelima
+ *
+ * @param <K> type of the keys
+ */
+final class IdIndex<K> {
+  private static final PersistentTreeMap<Atom, Atom> NO_IDS =
+      PersistentTreeMap.empty(BasicRegulativeSpec.ID_ORDER);
+
+  // key -> ids, where each set of ids maps ids to themselves
+  private PersistentTreeMap<K, PersistentTreeMap<Atom, Atom>> ids;
+
+  /**
+   * Create empty index.
+   * 
+   * @param keyOrder order of the keys
+   */
+  IdIndex(Comparator<? super K> keyOrder) {
+    this(PersistentTreeMap.empty(keyOrder));
+  }
+
+  private IdIndex(PersistentTreeMap<K, PersistentTreeMap<Atom, Atom>> ids) {
+    this.ids = ids;
+  }
+
+  /** Return copy of this index, which can then be modified independently. */
+  IdIndex<K> copy() {
+    return new IdIndex<>(ids);
+  }
+
+  /**
+   * Return ids indexed by the given key.
+   * 
+   * @param key key of the ids
+   * @return unmodifiable set of ids, which is empty if there are none
+   */
+  Set<Atom> get(K key) {
+    PersistentTreeMap<Atom, Atom> keyIds = ids.get(key);
+    return keyIds == null ? Collections.emptySet() : keyIds.keySet();
+  }
+
+  /** Index {@code id} by {@code key}. */
+  void add(K key, Atom id) {
+    PersistentTreeMap<Atom, Atom> keyIds = ids.get(key);
+    ids = ids.put(key, (keyIds == null ? NO_IDS : keyIds).put(id, id));
+  }
+
+  /** Stop indexing {@code id} by {@code key}. */
+  void remove(K key, Atom id) {
+    PersistentTreeMap<Atom, Atom> keyIds = ids.get(key);
+    if (keyIds == null)
+      return;
+    keyIds = keyIds.remove(id);
+    ids = keyIds.isEmpty() ? ids.remove(key) : ids.put(key, keyIds);
+  }
+
+  /**
+   * Remove key from the index.
+   * 
+   * @param key key to be removed
+   * @return unmodifiable set of the ids which were indexed by the key
+   */
+  Set<Atom> removeKey(K key) {
+    PersistentTreeMap<Atom, Atom> removed = ids.get(key);
+    if (removed == null)
+      return Collections.emptySet();
+    ids = ids.remove(key);
+    return removed.keySet();
+  }
+}
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import static jason.asSyntax.ASSyntax.createAtom;
+import static rambos.common.Literals.literalFrom;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import cartago.Artifact;
+import cartago.ArtifactId;
+import cartago.INTERNAL_OPERATION;
+import cartago.LINK;
+import cartago.OPERATION;
+import cartago.OpFeedbackParam;
+import cartago.OperationException;
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Atom;
+import jason.asSyntax.Literal;
+import rambos.common.Status;
+import rambos.norm.ActivationNetwork;
+import rambos.norm.CompiledNorm;
+import rambos.norm.DependencyTracker;
+import rambos.norm.FactSnapshot;
+import rambos.norm.Norm;
+
+/**
+ * This artefact keeps track of the instances of the enabled norms of a {@link DeJure} artefact
+ * whose activation and maintenance conditions hold, and signals their activation and
+ * deactivation to the agents focusing on it.
+ * 
+ * Conditions are matched incrementally by an {@link ActivationNetwork} against the facts the
+ * artefact is told about through {@link #addFact(Object)} and {@link #removeFact(Object)}, so that
+ * detectors receive {@code norm_activated(Instance)} and {@code norm_deactivated(Instance)} signals
+ * for the affected instances only, instead of scanning every norm on each detection cycle. Each
+ * {@code Instance} is the {@code norm(...)} literal of the norm with the bindings of its conditions
+ * applied.
+ * 
+ * Norms whose conditions cannot be matched incrementally are compiled into {@link CompiledNorm}s
+ * instead. The predicates their conditions depend on are tracked, and after each change only the
+ * norms depending on the predicates of the changed facts are re-evaluated, so that the cost of a
+ * change follows the norms it may affect rather than the size of the specification. Norms whose
+ * conditions call internal actions depend on the state of the agents themselves, which the
+ * artefact does not know about, so their ids are exposed through {@code unsupported_norm(Id)}
+ * observable properties instead, and detectors find their instances by querying their own
+ * beliefs.
+ * 
+ * The artefact follows changes to the regulative specification every {@link #SYNC_PERIOD}
+ * milliseconds, or upon {@link #sync()}, re-adding only the norms which changed.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class NormActivations extends Artifact implements ActivationNetwork.Listener {
+  /** Time (in milliseconds) between two checks for changes in the regulative specification. */
+  static final long SYNC_PERIOD = 1000;
+  private static final String UNSUPPORTED_NORM = "unsupported_norm";
+
+  private ActivationNetwork network;
+  // Norms which cannot be matched by the network, and which are re-evaluated upon changes instead
+  private final Map<Atom, CompiledNorm> compiledNorms = new HashMap<>();
+  // norm id -> active instances of the compiled norm
+  private final Map<Atom, Set<Literal>> compiledInstances = new HashMap<>();
+  private final DependencyTracker<Atom> tracker = new DependencyTracker<>();
+  // Norms left to detectors, whose conditions depend on the state of the agents
+  private final Set<Atom> unsupportedNorms = new HashSet<>();
+  private FactSnapshot facts = FactSnapshot.EMPTY;
+  // Changes to the facts since the snapshot was last updated
+  private final Set<Literal> addedFacts = new LinkedHashSet<>();
+  private final Set<Literal> removedFacts = new LinkedHashSet<>();
+  private ArtifactId deJure;
+  // Last synchronised snapshot of the regulative specification
+  private RegulativeSpecSnapshot snapshot;
+  private boolean disposed;
+
+  /**
+   * Initialise artefact with the norms of the {@link DeJure} artefact named {@code deJure}.
+   * 
+   * @param deJure name of the {@link DeJure} artefact
+   */
+  public void init(String deJure) {
+    network = new ActivationNetwork(this);
+    try {
+      this.deJure = lookupArtifact(deJure);
+    } catch (OperationException e) {
+      failed("Could not find artefact " + deJure + ": " + e.getMessage());
+    }
+    sync();
+    execInternalOp("runSync");
+  }
+
+  @Override
+  protected void dispose() {
+    disposed = true;
+  }
+
+  @INTERNAL_OPERATION
+  void runSync() {
+    while (!disposed) {
+      await_time(SYNC_PERIOD);
+      if (!disposed)
+        sync();
+    }
+  }
+
+  /**
+   * Synchronise norms with the current regulative specification.
+   * 
+   * Norms are compared by identity with those of the previously synchronised snapshot, which
+   * snapshots share while unchanged, so norms which did not change keep their active instances.
+   */
+  @OPERATION
+  public void sync() {
+    OpFeedbackParam<RegulativeSpecSnapshot> out = new OpFeedbackParam<>();
+    try {
+      execLinkedOp(deJure, "getSnapshot", out);
+    } catch (OperationException e) {
+      failed(e.getMessage());
+    }
+    RegulativeSpecSnapshot next = out.get();
+    if (snapshot != null && snapshot.getVersion() == next.getVersion())
+      return;
+
+    Set<Norm> previousNorms = snapshot == null ? Collections.emptySet() : snapshot.getNorms();
+    for (Norm norm : previousNorms) {
+      if (next.getNorm(norm.getId()) != norm)
+        removeNorm(norm);
+    }
+    for (Norm norm : next.getNorms()) {
+      if (snapshot == null || snapshot.getNorm(norm.getId()) != norm)
+        addNorm(norm);
+    }
+    snapshot = next;
+    evaluateAffected();
+  }
+
+  /**
+   * Add {@code norm} to the network if it is enabled, or compile it if it cannot be matched
+   * incrementally. Norms whose conditions are opaque are left to detectors instead.
+   */
+  private void addNorm(Norm norm) {
+    if (norm.getStatus() != Status.ENABLED)
+      return;
+    try {
+      network.addNorm(norm);
+    } catch (IllegalArgumentException e) {
+      CompiledNorm compiled = CompiledNorm.of(norm);
+      if (compiled.getDependencies()
+                  .isOpaque()) {
+        log("Norm " + norm.getId() + " is left to detectors: " + e.getMessage());
+        unsupportedNorms.add(norm.getId());
+        defineObsProperty(UNSUPPORTED_NORM, norm.getId());
+        return;
+      }
+      log("Norm " + norm.getId() + " will be re-evaluated upon changes: " + e.getMessage());
+      compiledNorms.put(norm.getId(), compiled);
+      compiledInstances.put(norm.getId(), Collections.emptySet());
+      tracker.add(norm.getId(), compiled.getDependencies());
+    }
+  }
+
+  /** Remove {@code norm}, deactivating all its active instances. */
+  private void removeNorm(Norm norm) {
+    if (unsupportedNorms.remove(norm.getId())) {
+      removeObsPropertyByTemplate(UNSUPPORTED_NORM, norm.getId());
+      return;
+    }
+    if (network.removeNorm(norm.getId()) || compiledNorms.remove(norm.getId()) == null)
+      return;
+    tracker.remove(norm.getId());
+    for (Literal instance : compiledInstances.remove(norm.getId())) {
+      deactivated(norm, instance);
+    }
+  }
+
+  /**
+   * Re-evaluate the compiled norms which depend on the facts changed since they were last
+   * evaluated, signalling the instances which are activated or deactivated as a result.
+   */
+  private void evaluateAffected() {
+    if (!tracker.hasAffected())
+      return;
+    facts = facts.with(addedFacts, removedFacts);
+    addedFacts.clear();
+    removedFacts.clear();
+    for (Atom normId : tracker.drainAffected()) {
+      CompiledNorm compiled = compiledNorms.get(normId);
+      Set<Literal> previous = compiledInstances.get(normId);
+      Set<Literal> current = compiled.getActiveInstances(facts);
+      compiledInstances.put(normId, current);
+      for (Literal instance : previous) {
+        if (!current.contains(instance))
+          deactivated(compiled.getNorm(), instance);
+      }
+      for (Literal instance : current) {
+        if (!previous.contains(instance))
+          activated(compiled.getNorm(), instance);
+      }
+    }
+  }
+
+  /**
+   * Add a ground {@code fact}, signalling the norm instances which are activated or deactivated as
+   * a result.
+   * 
+   * @param fact literal, or string thereof, to be added
+   */
+  @LINK
+  @OPERATION
+  public void addFact(Object fact) {
+    try {
+      Literal literal = literalFrom(fact);
+      if (!network.addFact(literal))
+        return;
+      if (!removedFacts.remove(literal))
+        addedFacts.add(literal);
+      tracker.touch(literal);
+      evaluateAffected();
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /**
+   * Remove {@code fact}, signalling the norm instances which are activated or deactivated as a
+   * result.
+   * 
+   * @param fact literal, or string thereof, to be removed
+   */
+  @LINK
+  @OPERATION
+  public void removeFact(Object fact) {
+    try {
+      Literal literal = literalFrom(fact);
+      if (!network.removeFact(literal))
+        return;
+      if (!addedFacts.remove(literal))
+        removedFacts.add(literal);
+      tracker.touch(literal);
+      evaluateAffected();
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /**
+   * Return the active instances of the norm with the given id through {@code out}.
+   * 
+   * @param normId id of the norm
+   * @param out output parameter used to return the set of instances
+   */
+  @LINK
+  @OPERATION
+  public void getActiveInstances(String normId, OpFeedbackParam<Set<Literal>> out) {
+    Atom id = createAtom(normId);
+    Set<Literal> instances = compiledInstances.get(id);
+    out.set(instances == null ? network.getActiveInstances(id)
+        : Collections.unmodifiableSet(instances));
+  }
+
+  @Override
+  public void activated(Norm norm, Literal instance) {
+    signal("norm_activated", instance);
+  }
+
+  @Override
+  public void deactivated(Norm norm, Literal instance) {
+    signal("norm_deactivated", instance);
+  }
+}
@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import static rambos.common.Literals.literalFrom;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import cartago.AgentId;
+import cartago.Artifact;
+import cartago.INTERNAL_OPERATION;
+import cartago.LINK;
+import cartago.OPERATION;
+import jason.NoValueException;
+import jason.asSemantics.Unifier;
+import jason.asSyntax.Literal;
+import jason.asSyntax.NumberTerm;
+import jason.asSyntax.Term;
+import rambos.common.Enums;
+import rambos.common.TimingWheel;
+import rambos.common.TimingWheel.Timeout;
+import rambos.norm.CompiledCondition;
+import rambos.norm.ConditionCompiler;
+import rambos.norm.ConditionDependencies;
+import rambos.norm.DependencyTracker;
+import rambos.norm.FactSnapshot;
+import rambos.norm.NormContent;
+import rambos.norm.NormContents;
+import rambos.norm.RegulationContent;
+
+/**
+ * This artefact watches the deadlines of active norm instances on behalf of the agents which
+ * schedule them, so that agents need not keep a suspended intention per instance.
+ * 
+ * The deadline of each instance is kept in a {@link TimingWheel}, and the maintenance condition
+ * and aim of its content are compiled by {@link ConditionCompiler} and checked against the facts
+ * the artefact is told about through {@link #addFact(Object)} and {@link #removeFact(Object)}.
+ * Every tick, only the instances which were scheduled since the last tick, or whose conditions
+ * depend on the predicates of the facts changed since then, are checked, and then the wheel is
+ * advanced. The agent which scheduled an instance is signalled only when the instance is finished,
+ * as in {@code .wait(not MaintCond | Aim, Deadline)}:
+ * <ul>
+ * <li>{@code instance_deactivated(Instance)} if its maintenance condition no longer holds;</li>
+ * <li>{@code instance_fulfilled(Instance)} or {@code instance_unfulfilled(Instance)} if its aim
+ * has been achieved, or if its deadline expired before either, depending on its modality.</li>
+ * </ul>
+ * An obligation is fulfilled by achieving its aim and unfulfilled once its deadline expires. A
+ * prohibition is unfulfilled by achieving its aim and fulfilled once its deadline expires. A
+ * permission is fulfilled either way.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class NormDeadlineScheduler extends Artifact {
+  /** Default duration (in milliseconds) of the ticks of the timing wheel. */
+  static final long TICK_MILLIS = 100;
+
+  private TimingWheel<Watch> wheel;
+  // instance without annotations -> watch of the instance
+  private final Map<Literal, Watch> watches = new HashMap<>();
+  // Watches whose conditions depend on the facts changed since they were last checked
+  private final DependencyTracker<Watch> tracker = new DependencyTracker<>();
+  private FactSnapshot facts = FactSnapshot.EMPTY;
+  // Changes to the facts since the snapshot was last updated
+  private final Set<Literal> addedFacts = new LinkedHashSet<>();
+  private final Set<Literal> removedFacts = new LinkedHashSet<>();
+  private boolean disposed;
+
+  /** Initialise artefact with ticks of {@link #TICK_MILLIS} milliseconds. */
+  public void init() {
+    init(TICK_MILLIS);
+  }
+
+  /**
+   * Initialise artefact with ticks of the given duration, which bounds how late instances are
+   * signalled.
+   * 
+   * @param tickMillis duration (in milliseconds) of each tick
+   */
+  public void init(long tickMillis) {
+    if (tickMillis <= 0)
+      failed("Tick duration should be positive: " + tickMillis);
+    wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+    execInternalOp("runClock");
+  }
+
+  @Override
+  protected void dispose() {
+    disposed = true;
+  }
+
+  @INTERNAL_OPERATION
+  void runClock() {
+    while (!disposed) {
+      await_time(wheel.getTickMillis());
+      if (!disposed)
+        tick();
+    }
+  }
+
+  /** Signals of the outcomes of the instances of each modality. */
+  private enum Modality {
+    OBLIGATION {
+      @Override
+      String aimAchieved() {
+        return "instance_fulfilled";
+      }
+
+      @Override
+      String deadlineExpired() {
+        return "instance_unfulfilled";
+      }
+    },
+
+    PROHIBITION {
+      @Override
+      String aimAchieved() {
+        return "instance_unfulfilled";
+      }
+
+      @Override
+      String deadlineExpired() {
+        return "instance_fulfilled";
+      }
+    },
+
+    PERMISSION {
+      @Override
+      String aimAchieved() {
+        return "instance_fulfilled";
+      }
+
+      @Override
+      String deadlineExpired() {
+        return "instance_fulfilled";
+      }
+    };
+
+    /** Return signal of an instance whose aim has been achieved. */
+    abstract String aimAchieved();
+
+    /** Return signal of an instance whose deadline expired. */
+    abstract String deadlineExpired();
+  }
+
+  private void tick() {
+    if (!addedFacts.isEmpty() || !removedFacts.isEmpty()) {
+      facts = facts.with(addedFacts, removedFacts);
+      addedFacts.clear();
+      removedFacts.clear();
+    }
+    for (Watch watch : tracker.drainAffected()) {
+      if (!watch.maintenanceCondition.holds(facts, new Unifier()))
+        finish(watch, "instance_deactivated");
+      else if (watch.aim.holds(facts, new Unifier()))
+        finish(watch, watch.modality.aimAchieved());
+    }
+    wheel.advance(System.currentTimeMillis(), watch -> {
+      watches.remove(watch.key);
+      tracker.remove(watch);
+      signal(watch.owner, watch.modality.deadlineExpired(), watch.instance);
+    });
+  }
+
+  private void finish(Watch watch, String outcome) {
+    watches.remove(watch.key);
+    tracker.remove(watch);
+    watch.timeout.cancel();
+    signal(watch.owner, outcome, watch.instance);
+  }
+
+  /**
+   * Watch {@code instance} until it is finished, and then signal the outcome to the agent which
+   * performed this operation.
+   * 
+   * The deadline of the instance counts from its {@code activation(Time)} annotation, if any, or
+   * else from now. If the instance is already being watched, e.g. because it has been activated
+   * again, the previous watch is replaced without signalling any outcome.
+   * 
+   * @param instance {@code norm(...)} literal, or string thereof, of an active instance of a norm
+   *        whose content is an obligation, a prohibition, or a permission
+   */
+  @OPERATION
+  public void scheduleDeadline(Object instance) {
+    Literal literal;
+    RegulationContent content;
+    try {
+      literal = literalFrom(instance);
+      content = contentOf(literal);
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+      return;
+    }
+    Literal key = keyOf(literal);
+    long start = System.currentTimeMillis();
+    Literal activation = literal.getAnnot("activation");
+    Term activationTime = activation == null || activation.getArity() != 1 ? null
+        : activation.getTerm(0);
+    if (activationTime != null && activationTime.isNumeric()) {
+      try {
+        start = (long) ((NumberTerm) activationTime).solve();
+      } catch (NoValueException e) {
+        // Keep counting from now
+      }
+    }
+    long deadline;
+    try {
+      deadline = (long) content.getDeadline()
+                               .solve();
+    } catch (NoValueException e) {
+      failed("Deadline of " + key + " is not a number");
+      return;
+    }
+
+    Watch previous = watches.get(key);
+    if (previous != null) {
+      tracker.remove(previous);
+      previous.timeout.cancel();
+    }
+    Watch watch = new Watch(getCurrentOpAgentId(), literal, key, content);
+    // Deadlines such as "never" would otherwise overflow
+    long deadlineMillis = deadline > Long.MAX_VALUE - start ? Long.MAX_VALUE : start + deadline;
+    watch.timeout = wheel.schedule(watch, deadlineMillis);
+    watches.put(key, watch);
+    tracker.add(watch, watch.dependencies);
+  }
+
+  /**
+   * Stop watching {@code instance}, without signalling any outcome.
+   * 
+   * @param instance literal, or string thereof, of the instance passed to
+   *        {@link #scheduleDeadline(Object)}, with or without annotations
+   */
+  @LINK
+  @OPERATION
+  public void cancelDeadline(Object instance) {
+    try {
+      Watch watch = watches.remove(keyOf(literalFrom(instance)));
+      if (watch != null) {
+        tracker.remove(watch);
+        watch.timeout.cancel();
+      }
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /**
+   * Add a ground {@code fact}, against which the conditions of the watched instances are checked
+   * on the next tick.
+   * 
+   * @param fact literal, or string thereof, to be added
+   */
+  @LINK
+  @OPERATION
+  public void addFact(Object fact) {
+    try {
+      Literal literal = literalFrom(fact);
+      if (!literal.isGround())
+        failed("Fact should be ground: " + literal);
+      if (hasFact(literal))
+        return;
+      if (!removedFacts.remove(literal))
+        addedFacts.add(literal);
+      tracker.touch(literal);
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /**
+   * Remove {@code fact}, so that the conditions of the watched instances are checked without it on
+   * the next tick.
+   * 
+   * @param fact literal, or string thereof, to be removed
+   */
+  @LINK
+  @OPERATION
+  public void removeFact(Object fact) {
+    try {
+      Literal literal = literalFrom(fact);
+      if (!hasFact(literal))
+        return;
+      if (!addedFacts.remove(literal))
+        removedFacts.add(literal);
+      tracker.touch(literal);
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /** Return whether {@code fact} holds, considering the changes not yet in the snapshot. */
+  private boolean hasFact(Literal fact) {
+    return addedFacts.contains(fact) || (facts.contains(fact) && !removedFacts.contains(fact));
+  }
+
+  /** Return {@code instance} without annotations, which identifies its watch. */
+  private static Literal keyOf(Literal instance) {
+    if (!instance.hasAnnot())
+      return instance;
+    return instance.copy()
+                   .clearAnnots();
+  }
+
+  /**
+   * Return content of the norm instance represented by {@code instance}.
+   * 
+   * @throws IllegalArgumentException if {@code instance} is not an instance of a norm whose content
+   *         is a regulation
+   */
+  private static RegulationContent contentOf(Literal instance) {
+    NormContent content = null;
+    Term contentTerm = instance.getArity() > 4 ? instance.getTerm(4) : null;
+    if (contentTerm instanceof Literal) {
+      try {
+        content = NormContents.of((Literal) contentTerm);
+      } catch (RuntimeException e) {
+        // Not a valid content
+      }
+    }
+    if (!(content instanceof RegulationContent))
+      throw new IllegalArgumentException(instance + " is not an instance of a regulation norm");
+    return (RegulationContent) content;
+  }
+
+  /** Norm instance being watched on behalf of an agent. */
+  private static final class Watch {
+    private final AgentId owner;
+    private final Literal instance;
+    private final Literal key;
+    private final Modality modality;
+    private final CompiledCondition maintenanceCondition;
+    private final CompiledCondition aim;
+    private final ConditionDependencies dependencies;
+    private Timeout<Watch> timeout;
+
+    private Watch(AgentId owner, Literal instance, Literal key, RegulationContent content) {
+      this.owner = owner;
+      this.instance = instance;
+      this.key = key;
+      modality = Enums.lookup(Modality.class, content.getFunctor());
+      maintenanceCondition = ConditionCompiler.compile(content.getMaintenanceCondition());
+      aim = ConditionCompiler.compile(content.getAim());
+      dependencies = ConditionDependencies.of(content.getMaintenanceCondition(), content.getAim());
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import jason.asSyntax.Atom;
+import rambos.norm.Norm;
+import rambos.norm.NormAttribute;
+
+/**
+ * Secondary indexes of norms, which map sanctions to the norms linked to them and the values of
+ * each {@link NormAttribute} to the norms having them. Along with
+ * {@link Norm#getLinkedSanctions()}, which gives links in the other direction, they allow norms to
+ * be looked up at a cost proportional to the number of norms found rather than to the size of the
+ * specification.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class NormIndex {
+  // sanctionId -> ids of the norms linked to the sanction
+  private final IdIndex<Atom> links;
+  // attribute -> value -> ids of the norms with the value
+  private final Map<NormAttribute, IdIndex<String>> attributes;
+
+  /** Create empty index. */
+  NormIndex() {
+    links = new IdIndex<>(BasicRegulativeSpec.ID_ORDER);
+    attributes = new EnumMap<>(NormAttribute.class);
+    for (NormAttribute attribute : NormAttribute.values()) {
+      attributes.put(attribute, new IdIndex<>(Comparator.naturalOrder()));
+    }
+  }
+
+  private NormIndex(IdIndex<Atom> links, Map<NormAttribute, IdIndex<String>> attributes) {
+    this.links = links;
+    this.attributes = attributes;
+  }
+
+  /**
+   * Return copy of this index, which can then be modified independently. The copy shares all the
+   * indexed keys and ids with this index, so copying takes time proportional only to the number of
+   * attributes, and a later write copies just the paths it changes.
+   */
+  NormIndex copy() {
+    Map<NormAttribute, IdIndex<String>> attributesCopy = new EnumMap<>(NormAttribute.class);
+    attributes.forEach((attribute, index) -> attributesCopy.put(attribute, index.copy()));
+    return new NormIndex(links.copy(), attributesCopy);
+  }
+
+  /**
+   * Return ids of the norms linked to the sanction with the given id.
+   * 
+   * @param sanctionId id of the sanction
+   * @return unmodifiable set of norm ids, which is empty if no norm is linked to the sanction
+   */
+  Set<Atom> getNormsLinkedTo(Atom sanctionId) {
+    return links.get(sanctionId);
+  }
+
+  /**
+   * Return ids of the norms whose {@code attribute} has the given {@code value}.
+   * 
+   * @param attribute attribute of the norms
+   * @param value value of the attribute
+   * @return unmodifiable set of norm ids, which is empty if there are none
+   */
+  Set<Atom> getNormsBy(NormAttribute attribute, String value) {
+    return attributes.get(attribute)
+                     .get(value);
+  }
+
+  /**
+   * Update index to reflect that norm {@code before} has been replaced by norm {@code after}.
+   * 
+   * @param before norm before the change, or {@code null} if it has been added
+   * @param after norm after the change, or {@code null} if it has been removed
+   */
+  void reindex(Norm before, Norm after) {
+    Atom normId = after == null ? before.getId() : after.getId();
+
+    Set<Atom> oldLinks = before == null ? Collections.emptySet() : before.getLinkedSanctions();
+    Set<Atom> newLinks = after == null ? Collections.emptySet() : after.getLinkedSanctions();
+    if (!oldLinks.equals(newLinks)) {
+      for (Atom sanctionId : oldLinks) {
+        if (!newLinks.contains(sanctionId))
+          links.remove(sanctionId, normId);
+      }
+      for (Atom sanctionId : newLinks) {
+        if (!oldLinks.contains(sanctionId))
+          links.add(sanctionId, normId);
+      }
+    }
+
+    for (Map.Entry<NormAttribute, IdIndex<String>> entry : attributes.entrySet()) {
+      NormAttribute attribute = entry.getKey();
+      String oldValue = before == null ? null : attribute.of(before);
+      String newValue = after == null ? null : attribute.of(after);
+      if (Objects.equals(oldValue, newValue))
+        continue;
+      if (oldValue != null)
+        entry.getValue()
+             .remove(oldValue, normId);
+      if (newValue != null)
+        entry.getValue()
+             .add(newValue, normId);
+    }
+  }
+
+  /**
+   * Remove sanction with the given id from the index of links. Norms linked to it should then be
+   * updated without being reindexed.
+   * 
+   * @param sanctionId id of the sanction
+   * @return ids of the norms which were linked to the sanction
+   */
+  Set<Atom> removeSanction(Atom sanctionId) {
+    return links.removeKey(sanctionId);
+  }
+}
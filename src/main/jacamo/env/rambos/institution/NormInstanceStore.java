@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import static jason.asSyntax.ASSyntax.createAtom;
+import static rambos.common.Literals.literalFrom;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import cartago.Artifact;
+import cartago.INTERNAL_OPERATION;
+import cartago.LINK;
+import cartago.OPERATION;
+import cartago.OpFeedbackParam;
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Literal;
+import rambos.common.Enums;
+import rambos.common.id.Id;
+import rambos.common.id.IdStrategy;
+import rambos.registry.NormInstance;
+import rambos.registry.NormInstance.State;
+import rambos.registry.NormInstanceArchive;
+import rambos.registry.NormInstanceIndex;
+import rambos.registry.NormInstances;
+
+/**
+ * This artefact stores the norm instances detected in the system, along with their lifecycle, so
+ * that detectors need not keep them as beliefs.
+ * 
+ * Instances are activated through {@link #activateInstance(Object, long)}, and then finished
+ * through {@link #finishInstance(Object, Object, long)} as either {@code deactivated},
+ * {@code fulfilled}, or {@code unfulfilled}. They are indexed by norm, state, and activation time,
+ * so that query operations take time proportional to the size of their results rather than to the
+ * number of instances.
+ * 
+ * A retention policy may be set through {@link #setRetention(long, int)}, in which case a
+ * background compactor periodically evicts finished instances. Active instances are never
+ * evicted. If an archive file is given upon initialisation, evicted instances are appended to a
+ * {@link NormInstanceArchive} rather than dropped.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class NormInstanceStore extends Artifact {
+  /** Time (in milliseconds) between two runs of the compactor. */
+  static final long COMPACTION_PERIOD = 1000;
+
+  private final Map<Id, NormInstance> instances = new HashMap<>();
+  // instance without annotations -> id of the active instance
+  private final Map<Literal, Id> activeIds = new HashMap<>();
+  private final NormInstanceIndex index = new NormInstanceIndex();
+  private NormInstanceArchive archive;
+  private long maxAge;
+  private int maxCount;
+  private boolean compacting;
+
+  /** Initialise store which drops evicted instances. */
+  public void init() {
+    init("");
+  }
+
+  /**
+   * Initialise store which archives evicted instances in {@code archiveFile}.
+   * 
+   * @param archiveFile path to the archive file, or empty string to drop evicted instances
+   */
+  public void init(String archiveFile) {
+    if (!archiveFile.isEmpty()) {
+      try {
+        archive = NormInstanceArchive.open(Paths.get(archiveFile));
+      } catch (IOException e) {
+        failed("Could not open archive at " + archiveFile + ": " + e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  protected void dispose() {
+    if (archive != null) {
+      try {
+        archive.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Add a new active instance.
+   * 
+   * Each activation starts a new lifecycle, even if the same instance was active or finished
+   * before. If the instance is still active, e.g. because its deactivation was missed, its previous
+   * lifecycle is first finished as {@code deactivated} at {@code time}.
+   * 
+   * @param instance {@code norm(...)} literal, or string thereof, of the instance, whose
+   *        annotations are ignored
+   * @param time time at which the instance was activated
+   */
+  @LINK
+  @OPERATION
+  public void activateInstance(Object instance, long time) {
+    NormInstance normInstance = null;
+    try {
+      normInstance = NormInstances.of(literalFrom(instance), time, IdStrategy.TIME_ORDERED);
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+    Literal key = normInstance.getInstance();
+    Id previousId = activeIds.get(key);
+    if (previousId != null) {
+      NormInstance previous = instances.get(previousId);
+      previous.finish(State.DEACTIVATED, time);
+      index.finished(previous);
+    }
+    instances.put(normInstance.getId(), normInstance);
+    activeIds.put(key, normInstance.getId());
+    index.add(normInstance);
+  }
+
+  /**
+   * Finish the active instance represented by {@code instance} in the given {@code state}.
+   * 
+   * Note that {@code state} should be an instance of {@link State} or {@link String}, and it should
+   * not be {@code active}.
+   * 
+   * @param instance literal, or string thereof, of the instance, whose annotations are ignored
+   * @param state state in which the instance finished
+   * @param time time at which the instance finished
+   */
+  @LINK
+  @OPERATION
+  public void finishInstance(Object instance, Object state, long time) {
+    State stateObj = Enums.lookup(State.class, state.toString());
+    if (stateObj == null || !stateObj.isFinished())
+      failed(state + " is not a valid finished state");
+    Literal key = null;
+    try {
+      key = NormInstances.withoutAnnots(literalFrom(instance));
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+    Id id = activeIds.remove(key);
+    if (id == null)
+      failed("There is no active norm instance " + key);
+    NormInstance normInstance = instances.get(id);
+    normInstance.finish(stateObj, time);
+    index.finished(normInstance);
+  }
+
+  /**
+   * Return whether {@code instance} is active through {@code out}.
+   * 
+   * @param instance literal, or string thereof, of the instance, whose annotations are ignored
+   * @param out output parameter used to return {@code true} if the instance is active
+   */
+  @LINK
+  @OPERATION
+  public void isActive(Object instance, OpFeedbackParam<Boolean> out) {
+    try {
+      out.set(activeIds.containsKey(NormInstances.withoutAnnots(literalFrom(instance))));
+    } catch (IllegalArgumentException e) {
+      failed(e.getMessage());
+    }
+  }
+
+  /**
+   * Return instances of the norm with the given id through {@code out}.
+   * 
+   * @param normId id of the norm
+   * @param out output parameter used to return the instances
+   */
+  @LINK
+  @OPERATION
+  public void getInstancesByNorm(String normId, OpFeedbackParam<Set<NormInstance>> out) {
+    out.set(instancesOf(index.getByNorm(createAtom(normId))));
+  }
+
+  /**
+   * Return instances in the given {@code state} through {@code out}, in the order they entered it.
+   * 
+   * Note that {@code state} should be an instance of {@link State} or {@link String}.
+   * 
+   * @param state state of the instances
+   * @param out output parameter used to return the instances
+   */
+  @LINK
+  @OPERATION
+  public void getInstancesByState(Object state, OpFeedbackParam<Set<NormInstance>> out) {
+    State stateObj = Enums.lookup(State.class, state.toString());
+    if (stateObj == null)
+      failed(state + " is not a valid state");
+    out.set(instancesOf(index.getByState(stateObj)));
+  }
+
+  /**
+   * Return instances whose activation time is within {@code [from, to]} through {@code out}, in
+   * ascending order of activation time.
+   * 
+   * @param from lower bound of the interval (inclusive)
+   * @param to upper bound of the interval (inclusive)
+   * @param out output parameter used to return the instances
+   */
+  @LINK
+  @OPERATION
+  public void getInstancesActivatedBetween(long from, long to,
+      OpFeedbackParam<List<NormInstance>> out) {
+    List<Id> ids = index.getActivatedBetween(from, to);
+    List<NormInstance> result = new ArrayList<>(ids.size());
+    ids.forEach(id -> result.add(instances.get(id)));
+    out.set(result);
+  }
+
+  private Set<NormInstance> instancesOf(Collection<Id> ids) {
+    Set<NormInstance> result = new LinkedHashSet<>();
+    ids.forEach(id -> result.add(instances.get(id)));
+    return result;
+  }
+
+  /**
+   * Set the retention policy of the store.
+   * 
+   * Instances which finished more than {@code maxAge} milliseconds ago, as well as the instances
+   * which finished first among those exceeding {@code maxCount} finished instances, are evicted
+   * every {@link #COMPACTION_PERIOD} milliseconds by a background compactor. Non-positive values
+   * disable the respective limit, and the compactor stops once both limits are disabled.
+   * 
+   * @param maxAge maximum time (in milliseconds) for which a finished instance is kept
+   * @param maxCount maximum number of finished instances kept in the store
+   */
+  @LINK
+  @OPERATION
+  public void setRetention(long maxAge, int maxCount) {
+    this.maxAge = maxAge;
+    this.maxCount = maxCount;
+    if (!compacting && hasRetention()) {
+      compacting = true;
+      execInternalOp("runCompactor");
+    }
+  }
+
+  private boolean hasRetention() {
+    return maxAge > 0 || maxCount > 0;
+  }
+
+  @INTERNAL_OPERATION
+  void runCompactor() {
+    try {
+      while (hasRetention()) {
+        await_time(COMPACTION_PERIOD);
+        compact();
+      }
+    } finally {
+      compacting = false;
+    }
+  }
+
+  /** Evict finished instances which are not allowed by the retention policy. */
+  private void compact() {
+    if (maxAge > 0) {
+      index.getFinishedBefore(System.currentTimeMillis() - maxAge)
+           .forEach(this::evict);
+    }
+    int excess = index.countFinished() - maxCount;
+    if (maxCount > 0 && excess > 0) {
+      index.getOldestFinished(excess)
+           .forEach(this::evict);
+    }
+    if (archive != null) {
+      try {
+        archive.flush();
+      } catch (IOException e) {
+        log("Could not write to the archive: " + e.getMessage());
+      }
+    }
+  }
+
+  /** Remove instance with the given {@code id}, archiving it if there is an archive. */
+  private void evict(Id id) {
+    NormInstance instance = instances.get(id);
+    if (archive != null) {
+      try {
+        archive.append(instance);
+      } catch (IOException e) {
+        // Keep the instance, so that it is archived by a later run
+        log("Could not write to the archive: " + e.getMessage());
+        return;
+      }
+    }
+    instances.remove(id);
+    index.remove(instance);
+  }
+}
@@ -24,11 +24,16 @@ import java.util.Set;
 
 import jason.asSyntax.Atom;
 import rambos.norm.Norm;
+import rambos.norm.NormAttribute;
 import rambos.sanction.Sanction;
 
 /**
  * An aggregation of norms, sanctions, and links among them.
  * 
+ * Norms and sanctions are immutable, and the state of the regulative specification is kept as a
+ * sequence of immutable {@linkplain RegulativeSpecSnapshot snapshots}. Read methods are answered
+ * from the current snapshot without copying, while changes publish a new snapshot atomically.
+ * 
  * @author igorcadelima
  *
  */
@@ -39,14 +44,46 @@ public interface RegulativeSpec {
   /** Return sanction with given {@code id}, or {@code null} if non-existing */
   Sanction getSanction(Atom id);
 
-  /** Return norms. */
+  /** Return unmodifiable set of norms. */
   Set<Norm> getNorms();
 
-  /** Return sanctions. */
+  /** Return unmodifiable set of sanctions. */
   Set<Sanction> getSanctions();
 
   /**
-   * Add copy of {@code norm} if it is not already in the regulative specification.
+   * Return unmodifiable set of norms linked to the sanction with the given {@code sanctionId},
+   * which is empty if there are none. This is looked up in an index, rather than by scanning all
+   * norms.
+   */
+  Set<Norm> getNormsLinkedTo(Atom sanctionId);
+
+  /**
+   * Return unmodifiable set of norms whose {@code attribute} has the given {@code value}, e.g. the
+   * norms targeting a given agent, which is empty if there are none. This is looked up in an index,
+   * rather than by scanning all norms.
+   */
+  Set<Norm> getNormsBy(NormAttribute attribute, String value);
+
+  /** Return the current snapshot of the regulative specification. */
+  RegulativeSpecSnapshot snapshot();
+
+  /**
+   * Apply a batch of {@code changes} atomically.
+   * 
+   * Changes are validated and applied in order, so that later changes may refer to norms and
+   * sanctions added by earlier ones. If any change cannot be applied, none of them is, and the
+   * specification is left untouched. Otherwise, a single new snapshot is published with all the
+   * changes. Changes which do not actually change anything, e.g. enabling an enabled norm, are
+   * allowed but have no effect.
+   * 
+   * @param changes changes to be applied
+   * @return snapshot resulting from the changes, which is the current snapshot if nothing changed
+   * @throws IllegalArgumentException if any change cannot be applied
+   */
+  RegulativeSpecSnapshot apply(Iterable<RegulativeSpecChange> changes);
+
+  /**
+   * Add {@code norm} if it is not already in the regulative specification.
    * 
    * @param norm norm to be added
    * @return {@code true} if the norm was successfully added
@@ -54,7 +91,7 @@ public interface RegulativeSpec {
   boolean addNorm(Norm norm);
 
   /**
-   * Add copy of {@code sanction} if it is not already in the regulative specification.
+   * Add {@code sanction} if it is not already in the regulative specification.
    * 
    * @param sanction sanction to be added
    * @return {@code true} if the sanction was successfully added
@@ -91,7 +128,7 @@ public interface RegulativeSpec {
    * Disable norm with given id.
    * 
    * @param normId id of the norm
-   * @return {@codetrue} if an enabled norm with the given id could be found and disabled
+   * @return {@code true} if an enabled norm with the given id could be found and disabled
    */
   boolean disableNorm(Atom normId);
 
@@ -107,8 +144,8 @@ public interface RegulativeSpec {
    * Remove norm with given id.
    * 
    * @param normId id of the norm
-   * @return the previous sanction with whose id is {@code sanctionId}, or {@code null} if there was
-   *         no sanction for {@code sanctionId}
+   * @return the previous norm whose id is {@code normId}, or {@code null} if there was no norm for
+   *         {@code normId}
    */
   Norm removeNorm(Atom normId);
 
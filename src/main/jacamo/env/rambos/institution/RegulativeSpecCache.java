@@ -0,0 +1,447 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Atom;
+import jason.asSyntax.ListTerm;
+import jason.asSyntax.ListTermImpl;
+import jason.asSyntax.Literal;
+import jason.asSyntax.LiteralImpl;
+import jason.asSyntax.LogExpr;
+import jason.asSyntax.LogExpr.LogicalOp;
+import jason.asSyntax.LogicalFormula;
+import jason.asSyntax.NumberTermImpl;
+import jason.asSyntax.Pred;
+import jason.asSyntax.RelExpr;
+import jason.asSyntax.RelExpr.RelationalOp;
+import jason.asSyntax.StringTermImpl;
+import jason.asSyntax.Structure;
+import jason.asSyntax.Term;
+import jason.asSyntax.VarTerm;
+import jason.asSyntax.parser.ParseException;
+import rambos.common.Enums;
+import rambos.common.Status;
+import rambos.norm.Norm;
+import rambos.norm.Norms;
+import rambos.sanction.Sanction;
+import rambos.sanction.SanctionCategory;
+import rambos.sanction.Sanctions;
+
+/**
+ * Binary cache of regulative specifications, which spares XML validation and formula parsing when
+ * a specification file has not changed since it was last loaded.
+ * 
+ * A cache file has the following layout:
+ * 
+ * <pre>
+ * [int magic][int format version][32-byte SHA-256 of the XML][int length][payload][int crc32]
+ * </pre>
+ * 
+ * The payload holds sanctions and norms, including links, with their formulas stored as
+ * pre-parsed term trees. Strings are written once and then referred to by index. Terms which are
+ * not atoms, numbers, strings, variables, plain literals, lists, or logical and relational
+ * expressions are stored in source form and parsed upon reading.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class RegulativeSpecCache {
+  private static final int MAGIC = 0x524D4253; // "RMBS"
+  /** Version of the format, to be increased whenever the layout changes. */
+  private static final int FORMAT_VERSION = 1;
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String EXTENSION = ".bin";
+
+  // Term tags
+  private static final int SOURCE_TERM = 0;
+  private static final int ATOM_TERM = 1;
+  private static final int NUMBER_TERM = 2;
+  private static final int STRING_TERM = 3;
+  private static final int VAR_TERM = 4;
+  private static final int LITERAL_TERM = 5;
+  private static final int LIST_TERM = 6;
+  private static final int LOG_EXPR_TERM = 7;
+  private static final int REL_EXPR_TERM = 8;
+
+  private RegulativeSpecCache() {}
+
+  /** Return path of the cache of the specification file {@code xml}. */
+  static Path pathOf(Path xml) {
+    return xml.resolveSibling(xml.getFileName() + EXTENSION);
+  }
+
+  /** Return hash of the contents of a specification file. */
+  static byte[] hash(byte[] xml) {
+    try {
+      return MessageDigest.getInstance(HASH_ALGORITHM)
+                          .digest(xml);
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(HASH_ALGORITHM + " is supported by every Java platform", e);
+    }
+  }
+
+  /**
+   * Read regulative specification from {@code cache}, provided that it was written for an XML file
+   * whose hash is {@code xmlHash}.
+   * 
+   * @param cache path to cache file
+   * @param xmlHash hash of the current contents of the specification file
+   * @return regulative specification stored in the cache, or {@code null} if the cache does not
+   *         exist, is stale, is corrupted, or cannot be decoded
+   */
+  static RegulativeSpec read(Path cache, byte[] xmlHash) {
+    if (!Files.isRegularFile(cache))
+      return null;
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(cache))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+        return null;
+      byte[] hash = new byte[xmlHash.length];
+      in.readFully(hash);
+      if (!Arrays.equals(hash, xmlHash))
+        return null;
+      byte[] payload = new byte[in.readInt()];
+      in.readFully(payload);
+      CRC32 crc = new CRC32();
+      crc.update(payload);
+      if ((int) crc.getValue() != in.readInt())
+        return null;
+      return new Reader(payload).readSpec();
+    } catch (IOException e) {
+      // A truncated or unreadable cache just means that the XML has to be loaded
+      return null;
+    } catch (ParseException | RuntimeException e) {
+      // The checksum matched, so the cache could not be decoded because of a bug, which would
+      // otherwise go unnoticed as the XML is still loaded
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * Write {@code spec} into {@code cache}, tagged with the hash of the XML file it was loaded from.
+   * The file is replaced atomically, so readers never see a partially written cache.
+   * 
+   * @param cache path to cache file
+   * @param xmlHash hash of the contents of the specification file
+   * @param spec regulative specification to be written
+   * @throws IOException if the cache cannot be written
+   */
+  static void write(Path cache, byte[] xmlHash, RegulativeSpecSnapshot spec) throws IOException {
+    Writer writer = new Writer();
+    writer.writeSpec(spec);
+    byte[] payload = writer.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+
+    Path tmp = cache.resolveSibling(cache.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.write(xmlHash);
+      out.writeInt(payload.length);
+      out.write(payload);
+      out.writeInt((int) crc.getValue());
+    }
+    Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Encoder of the payload of a cache file. */
+  private static final class Writer {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    // string -> index in the string table
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    byte[] toByteArray() {
+      return bytes.toByteArray();
+    }
+
+    void writeSpec(RegulativeSpecSnapshot spec) throws IOException {
+      writeVarInt(spec.getSanctions()
+                      .size());
+      for (Sanction sanction : spec.getSanctions()) {
+        writeString(sanction.getId()
+                            .getFunctor());
+        writeString(sanction.getStatus()
+                            .lowercase());
+        out.writeBoolean(sanction.getCondition() != null);
+        if (sanction.getCondition() != null)
+          writeTerm(sanction.getCondition());
+        SanctionCategory category = sanction.getCategory();
+        writeString(category.getPurpose()
+                            .lowercase());
+        writeString(category.getIssuer()
+                            .lowercase());
+        writeString(category.getLocus()
+                            .lowercase());
+        writeString(category.getMode()
+                            .lowercase());
+        writeString(category.getPolarity()
+                            .lowercase());
+        writeString(category.getDiscernability()
+                            .lowercase());
+        writeTerm(sanction.getContent());
+      }
+
+      writeVarInt(spec.getNorms()
+                      .size());
+      for (Norm norm : spec.getNorms()) {
+        writeString(norm.getId()
+                        .getFunctor());
+        writeString(norm.getStatus()
+                        .lowercase());
+        writeTerm(norm.getCondition());
+        writeString(norm.getIssuer()
+                        .getFunctor());
+        writeTerm(norm.getContent()
+                      .toLiteral());
+        writeVarInt(norm.getLinkedSanctions()
+                        .size());
+        for (Atom sanctionId : norm.getLinkedSanctions()) {
+          writeString(sanctionId.getFunctor());
+        }
+      }
+    }
+
+    void writeTerm(Term term) throws IOException {
+      Class<?> type = term.getClass();
+      if (type == Atom.class) {
+        out.writeByte(ATOM_TERM);
+        writeString(((Atom) term).getFunctor());
+      } else if (type == NumberTermImpl.class) {
+        out.writeByte(NUMBER_TERM);
+        out.writeDouble(((NumberTermImpl) term).solve());
+      } else if (type == StringTermImpl.class) {
+        out.writeByte(STRING_TERM);
+        writeString(((StringTermImpl) term).getString());
+      } else if (type == VarTerm.class && !((VarTerm) term).hasAnnot()) {
+        out.writeByte(VAR_TERM);
+        writeString(term.toString());
+      } else if (type == ListTermImpl.class && ((ListTerm) term).getTail() == null) {
+        out.writeByte(LIST_TERM);
+        ListTerm list = (ListTerm) term;
+        writeVarInt(list.size());
+        for (Term element : list) {
+          writeTerm(element);
+        }
+      } else if (type == LogExpr.class) {
+        LogExpr expr = (LogExpr) term;
+        out.writeByte(LOG_EXPR_TERM);
+        writeString(expr.getOp()
+                        .name());
+        writeTerm(expr.getLHS());
+        if (!expr.isUnary())
+          writeTerm(expr.getRHS());
+      } else if (type == RelExpr.class) {
+        RelExpr expr = (RelExpr) term;
+        out.writeByte(REL_EXPR_TERM);
+        writeString(expr.getOp()
+                        .name());
+        writeTerm(expr.getLHS());
+        writeTerm(expr.getRHS());
+      } else if (type == LiteralImpl.class || type == Pred.class || type == Structure.class) {
+        Literal literal = (Literal) term;
+        out.writeByte(LITERAL_TERM);
+        out.writeBoolean(literal.negated());
+        writeString(literal.getFunctor());
+        writeVarInt(literal.getArity());
+        for (int i = 0; i < literal.getArity(); i++) {
+          writeTerm(literal.getTerm(i));
+        }
+        List<Term> annots = new ArrayList<>();
+        if (literal.hasAnnot())
+          literal.getAnnots()
+                 .forEach(annots::add);
+        writeVarInt(annots.size());
+        for (Term annot : annots) {
+          writeTerm(annot);
+        }
+      } else {
+        out.writeByte(SOURCE_TERM);
+        writeString(term.toString());
+      }
+    }
+
+    void writeString(String s) throws IOException {
+      Integer index = strings.get(s);
+      if (index != null) {
+        writeVarInt(index + 1);
+      } else {
+        strings.put(s, strings.size());
+        writeVarInt(0);
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(utf8.length);
+        out.write(utf8);
+      }
+    }
+
+    void writeVarInt(int value) throws IOException {
+      while ((value & ~0x7F) != 0) {
+        out.writeByte((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      out.writeByte(value);
+    }
+  }
+
+  /** Decoder of the payload of a cache file. */
+  private static final class Reader {
+    private final DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+
+    Reader(byte[] payload) {
+      in = new DataInputStream(new ByteArrayInputStream(payload));
+    }
+
+    RegulativeSpec readSpec() throws IOException, ParseException {
+      List<RegulativeSpecChange> changes = new ArrayList<>();
+      int sanctions = readVarInt();
+      for (int i = 0; i < sanctions; i++) {
+        Atom id = ASSyntax.createAtom(readString());
+        Status status = Enums.lookup(Status.class, readString());
+        LogicalFormula condition = in.readBoolean() ? (LogicalFormula) readTerm() : null;
+        Map<String, String> category = new LinkedHashMap<>();
+        category.put("purpose", readString());
+        category.put("issuer", readString());
+        category.put("locus", readString());
+        category.put("mode", readString());
+        category.put("polarity", readString());
+        category.put("discernability", readString());
+        LogicalFormula content = (LogicalFormula) readTerm();
+        changes.add(RegulativeSpecChange.addSanction(
+            Sanctions.of(id, status, condition, category, content)));
+      }
+
+      int norms = readVarInt();
+      for (int i = 0; i < norms; i++) {
+        Atom id = ASSyntax.createAtom(readString());
+        Status status = Enums.lookup(Status.class, readString());
+        LogicalFormula condition = (LogicalFormula) readTerm();
+        Atom issuer = ASSyntax.createAtom(readString());
+        Literal content = (Literal) readTerm();
+        int links = readVarInt();
+        List<Atom> linkedSanctions = new ArrayList<>(links);
+        for (int j = 0; j < links; j++) {
+          linkedSanctions.add(ASSyntax.createAtom(readString()));
+        }
+        changes.add(RegulativeSpecChange.addNorm(
+            Norms.of(id, status, condition, issuer, content, linkedSanctions)));
+      }
+
+      RegulativeSpec spec = new BasicRegulativeSpec();
+      spec.apply(changes);
+      return spec;
+    }
+
+    Term readTerm() throws IOException, ParseException {
+      int tag = in.readByte();
+      switch (tag) {
+        case SOURCE_TERM:
+          return ASSyntax.parseTerm(readString());
+        case ATOM_TERM:
+          return ASSyntax.createAtom(readString());
+        case NUMBER_TERM:
+          return new NumberTermImpl(in.readDouble());
+        case STRING_TERM:
+          return new StringTermImpl(readString());
+        case VAR_TERM:
+          return new VarTerm(readString());
+        case LIST_TERM: {
+          int size = readVarInt();
+          Term[] elements = new Term[size];
+          for (int i = 0; i < size; i++) {
+            elements[i] = readTerm();
+          }
+          return ASSyntax.createList(elements);
+        }
+        case LOG_EXPR_TERM: {
+          LogicalOp op = LogicalOp.valueOf(readString());
+          LogicalFormula lhs = (LogicalFormula) readTerm();
+          if (op == LogicalOp.not)
+            return new LogExpr(op, lhs);
+          return new LogExpr(lhs, op, (LogicalFormula) readTerm());
+        }
+        case REL_EXPR_TERM: {
+          RelationalOp op = RelationalOp.valueOf(readString());
+          Term lhs = readTerm();
+          return new RelExpr(lhs, op, readTerm());
+        }
+        case LITERAL_TERM: {
+          boolean negated = in.readBoolean();
+          Literal literal = new LiteralImpl(!negated, readString());
+          int arity = readVarInt();
+          for (int i = 0; i < arity; i++) {
+            literal.addTerm(readTerm());
+          }
+          int annots = readVarInt();
+          for (int i = 0; i < annots; i++) {
+            literal.addAnnot(readTerm());
+          }
+          return literal;
+        }
+        default:
+          throw new IOException("Unknown term tag " + tag);
+      }
+    }
+
+    String readString() throws IOException {
+      int ref = readVarInt();
+      if (ref > 0)
+        return strings.get(ref - 1);
+      byte[] utf8 = new byte[readVarInt()];
+      in.readFully(utf8);
+      String s = new String(utf8, StandardCharsets.UTF_8);
+      strings.add(s);
+      return s;
+    }
+
+    int readVarInt() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        int b = in.readUnsignedByte();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0)
+          return value;
+      }
+      throw new IOException("Malformed variable-length integer");
+    }
+  }
+}
@@ -0,0 +1,386 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import java.util.Map;
+import java.util.Set;
+
+import jason.asSyntax.Atom;
+import jason.asSyntax.Literal;
+import jason.asSyntax.StringTerm;
+import jason.asSyntax.Term;
+import rambos.common.Enums;
+import rambos.common.LowercaseEnum;
+import rambos.common.Status;
+import rambos.norm.Norm;
+import rambos.norm.Norms;
+import rambos.sanction.Sanction;
+
+/**
+ * A change to be applied to a {@link RegulativeSpec} as part of a batch (see
+ * {@link RegulativeSpec#apply(Iterable)}).
+ * 
+ * Changes are created through the static factory methods of this class or, for agents, from
+ * literals such as {@code link(n1, s1)} or {@code add_norm("norm(...)")} through
+ * {@link #of(Literal)}.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class RegulativeSpecChange {
+  private final Kind kind;
+  private final Norm norm;
+  private final Sanction sanction;
+  private final Atom normId;
+  private final Atom sanctionId;
+
+  private RegulativeSpecChange(Kind kind, Norm norm, Sanction sanction, Atom normId,
+      Atom sanctionId) {
+    this.kind = kind;
+    this.norm = norm;
+    this.sanction = sanction;
+    this.normId = normId;
+    this.sanctionId = sanctionId;
+  }
+
+  /** Kinds of changes, each of which knows how to apply itself to the state of a specification. */
+  private enum Kind implements LowercaseEnum {
+    ADD_NORM {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        if (norms.containsKey(c.norm.getId()))
+          throw new IllegalArgumentException("Norm " + c.norm.getId() + " already exists");
+        for (Atom linked : c.norm.getLinkedSanctions()) {
+          requireSanction(linked, sanctions);
+        }
+        putNorm(c.norm, norms, index);
+      }
+    },
+
+    REPLACE_NORM {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        requireNorm(c.norm.getId(), norms);
+        for (Atom linked : c.norm.getLinkedSanctions()) {
+          requireSanction(linked, sanctions);
+        }
+        putNorm(c.norm, norms, index);
+      }
+    },
+
+    REMOVE_NORM {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        index.reindex(requireNorm(c.normId, norms), null);
+        norms.remove(c.normId);
+      }
+    },
+
+    ADD_SANCTION {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        if (sanctions.containsKey(c.sanction.getId()))
+          throw new IllegalArgumentException("Sanction " + c.sanction.getId() + " already exists");
+        sanctions.put(c.sanction.getId(), c.sanction);
+      }
+    },
+
+    REPLACE_SANCTION {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        requireSanction(c.sanction.getId(), sanctions);
+        sanctions.put(c.sanction.getId(), c.sanction);
+      }
+    },
+
+    REMOVE_SANCTION {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        requireSanction(c.sanctionId, sanctions);
+        sanctions.remove(c.sanctionId);
+        for (Atom normId : index.removeSanction(c.sanctionId)) {
+          norms.put(normId, norms.get(normId)
+                                 .withoutLink(c.sanctionId));
+        }
+      }
+    },
+
+    LINK {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        requireSanction(c.sanctionId, sanctions);
+        putNorm(requireNorm(c.normId, norms).withLink(c.sanctionId), norms, index);
+      }
+    },
+
+    UNLINK {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        putNorm(requireNorm(c.normId, norms).withoutLink(c.sanctionId), norms, index);
+      }
+    },
+
+    ENABLE_NORM {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        putNorm(requireNorm(c.normId, norms).withStatus(Status.ENABLED), norms, index);
+      }
+    },
+
+    DISABLE_NORM {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        putNorm(requireNorm(c.normId, norms).withStatus(Status.DISABLED), norms, index);
+      }
+    },
+
+    ENABLE_SANCTION {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        sanctions.put(c.sanctionId,
+            requireSanction(c.sanctionId, sanctions).withStatus(Status.ENABLED));
+      }
+    },
+
+    DISABLE_SANCTION {
+      @Override
+      void apply(RegulativeSpecChange c, Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions,
+          NormIndex index) {
+        sanctions.put(c.sanctionId,
+            requireSanction(c.sanctionId, sanctions).withStatus(Status.DISABLED));
+      }
+    };
+
+    /**
+     * Apply change {@code c} to the given norms and sanctions.
+     * 
+     * @param c change to be applied
+     * @param norms norms of the specification, which may be modified
+     * @param sanctions sanctions of the specification, which may be modified
+     * @param index index of {@code norms}, which is kept up to date
+     * @throws IllegalArgumentException if the change cannot be applied
+     */
+    abstract void apply(RegulativeSpecChange c, Map<Atom, Norm> norms,
+        Map<Atom, Sanction> sanctions, NormIndex index);
+  }
+
+  /** Put {@code norm} into {@code norms}, replacing any norm with the same id, and reindex it. */
+  private static void putNorm(Norm norm, Map<Atom, Norm> norms, NormIndex index) {
+    index.reindex(norms.put(norm.getId(), norm), norm);
+  }
+
+  private static Norm requireNorm(Atom normId, Map<Atom, Norm> norms) {
+    Norm norm = norms.get(normId);
+    if (norm == null)
+      throw new IllegalArgumentException("There is no norm with id " + normId);
+    return norm;
+  }
+
+  private static Sanction requireSanction(Atom sanctionId, Map<Atom, Sanction> sanctions) {
+    Sanction sanction = sanctions.get(sanctionId);
+    if (sanction == null)
+      throw new IllegalArgumentException("There is no sanction with id " + sanctionId);
+    return sanction;
+  }
+
+  /**
+   * Apply this change to the given norms and sanctions.
+   * 
+   * @param norms norms of the specification, which may be modified
+   * @param sanctions sanctions of the specification, which may be modified
+   * @param index index of {@code norms}, which is kept up to date
+   * @throws IllegalArgumentException if the change cannot be applied, e.g. because it refers to a
+   *         non-existing norm or sanction, or adds an already existing one
+   */
+  void applyTo(Map<Atom, Norm> norms, Map<Atom, Sanction> sanctions, NormIndex index) {
+    kind.apply(this, norms, sanctions, index);
+  }
+
+  /**
+   * Add the ids of the norms and sanctions which this change may affect to {@code normIds} and
+   * {@code sanctionIds}, respectively, so that a batch can be diffed by looking only at them.
+   * 
+   * @param before specification to which the batch of this change is applied
+   * @param normIds ids of the norms affected by the batch
+   * @param sanctionIds ids of the sanctions affected by the batch
+   */
+  void addAffectedIds(RegulativeSpecSnapshot before, Set<Atom> normIds, Set<Atom> sanctionIds) {
+    if (norm != null)
+      normIds.add(norm.getId());
+    if (normId != null)
+      normIds.add(normId);
+    if (sanction != null)
+      sanctionIds.add(sanction.getId());
+    if (sanctionId != null)
+      sanctionIds.add(sanctionId);
+    // Norms linked to a removed sanction lose their link, whereas links added by the batch itself
+    // are recorded by the changes which added them
+    if (kind == Kind.REMOVE_SANCTION) {
+      for (Norm linked : before.getNormsLinkedTo(sanctionId)) {
+        normIds.add(linked.getId());
+      }
+    }
+  }
+
+  /** Return change which adds {@code norm}. */
+  public static RegulativeSpecChange addNorm(Norm norm) {
+    return new RegulativeSpecChange(Kind.ADD_NORM, norm, null, null, null);
+  }
+
+  /** Return change which replaces the existing norm with the same id as {@code norm}. */
+  public static RegulativeSpecChange replaceNorm(Norm norm) {
+    return new RegulativeSpecChange(Kind.REPLACE_NORM, norm, null, null, null);
+  }
+
+  /** Return change which removes the norm with the given id. */
+  public static RegulativeSpecChange removeNorm(Atom normId) {
+    return new RegulativeSpecChange(Kind.REMOVE_NORM, null, null, normId, null);
+  }
+
+  /** Return change which adds {@code sanction}. */
+  public static RegulativeSpecChange addSanction(Sanction sanction) {
+    return new RegulativeSpecChange(Kind.ADD_SANCTION, null, sanction, null, null);
+  }
+
+  /**
+   * Return change which replaces the existing sanction with the same id as {@code sanction}, while
+   * keeping the links to it.
+   */
+  public static RegulativeSpecChange replaceSanction(Sanction sanction) {
+    return new RegulativeSpecChange(Kind.REPLACE_SANCTION, null, sanction, null, null);
+  }
+
+  /** Return change which removes the sanction with the given id, and all the links to it. */
+  public static RegulativeSpecChange removeSanction(Atom sanctionId) {
+    return new RegulativeSpecChange(Kind.REMOVE_SANCTION, null, null, null, sanctionId);
+  }
+
+  /** Return change which links the norm and sanction with the given ids. */
+  public static RegulativeSpecChange link(Atom normId, Atom sanctionId) {
+    return new RegulativeSpecChange(Kind.LINK, null, null, normId, sanctionId);
+  }
+
+  /** Return change which unlinks the norm and sanction with the given ids. */
+  public static RegulativeSpecChange unlink(Atom normId, Atom sanctionId) {
+    return new RegulativeSpecChange(Kind.UNLINK, null, null, normId, sanctionId);
+  }
+
+  /** Return change which enables the norm with the given id. */
+  public static RegulativeSpecChange enableNorm(Atom normId) {
+    return new RegulativeSpecChange(Kind.ENABLE_NORM, null, null, normId, null);
+  }
+
+  /** Return change which disables the norm with the given id. */
+  public static RegulativeSpecChange disableNorm(Atom normId) {
+    return new RegulativeSpecChange(Kind.DISABLE_NORM, null, null, normId, null);
+  }
+
+  /** Return change which enables the sanction with the given id. */
+  public static RegulativeSpecChange enableSanction(Atom sanctionId) {
+    return new RegulativeSpecChange(Kind.ENABLE_SANCTION, null, null, null, sanctionId);
+  }
+
+  /** Return change which disables the sanction with the given id. */
+  public static RegulativeSpecChange disableSanction(Atom sanctionId) {
+    return new RegulativeSpecChange(Kind.DISABLE_SANCTION, null, null, null, sanctionId);
+  }
+
+  /**
+   * Return change represented by {@code literal}.
+   * 
+   * The functor of the literal is the kind of change, e.g. {@code enable_norm(n1)},
+   * {@code link(n1, s1)}, or {@code add_norm(norm(...))}, whose norm may also be given as a
+   * string. Since sanctions have no literal parser, {@code add_sanction} and
+   * {@code replace_sanction} changes can only be created through {@link #addSanction(Sanction)}
+   * and {@link #replaceSanction(Sanction)}.
+   * 
+   * @param literal literal representation of the change
+   * @return change represented by the literal
+   * @throws IllegalArgumentException if literal does not represent a change
+   */
+  public static RegulativeSpecChange of(Literal literal) {
+    Kind kind = Enums.lookup(Kind.class, literal.getFunctor());
+    if (kind == null)
+      throw new IllegalArgumentException(literal.getFunctor() + " is not a valid change");
+
+    try {
+      switch (kind) {
+        case ADD_NORM:
+          return addNorm(parseNorm(literal.getTerm(0)));
+        case REPLACE_NORM:
+          return replaceNorm(parseNorm(literal.getTerm(0)));
+        case REMOVE_NORM:
+          return removeNorm((Atom) literal.getTerm(0));
+        case REMOVE_SANCTION:
+          return removeSanction((Atom) literal.getTerm(0));
+        case LINK:
+          return link((Atom) literal.getTerm(0), (Atom) literal.getTerm(1));
+        case UNLINK:
+          return unlink((Atom) literal.getTerm(0), (Atom) literal.getTerm(1));
+        case ENABLE_NORM:
+          return enableNorm((Atom) literal.getTerm(0));
+        case DISABLE_NORM:
+          return disableNorm((Atom) literal.getTerm(0));
+        case ENABLE_SANCTION:
+          return enableSanction((Atom) literal.getTerm(0));
+        case DISABLE_SANCTION:
+          return disableSanction((Atom) literal.getTerm(0));
+        default:
+          throw new IllegalArgumentException(kind.lowercase() + " changes cannot be parsed");
+      }
+    } catch (ClassCastException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Literal does not represent a valid change: " + literal);
+    }
+  }
+
+  /** Return norm represented by {@code term}, which may be either a literal or a string. */
+  private static Norm parseNorm(Term term) {
+    return Norms.parse(term.isString() ? ((StringTerm) term).getString() : term.toString());
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(kind.lowercase()).append('(');
+    if (norm != null)
+      sb.append(norm.getId());
+    if (sanction != null)
+      sb.append(sanction.getId());
+    if (normId != null)
+      sb.append(normId);
+    if (normId != null && sanctionId != null)
+      sb.append(", ");
+    if (sanctionId != null)
+      sb.append(sanctionId);
+    return sb.append(')')
+             .toString();
+  }
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import java.util.List;
+
+import jason.asSemantics.Unifier;
+import jason.asSyntax.Literal;
+import rambos.common.Literable;
+
+/**
+ * Position within the norms or sanctions of a {@link RegulativeSpecSnapshot}, which allows them to
+ * be retrieved page by page.
+ * 
+ * Cursors are immutable and hold the snapshot they were created from, so a whole iteration sees a
+ * consistent specification regardless of changes made in the meantime, and it can be resumed from
+ * any cursor. Elements are visited in ascending order of id. If the cursor has a filter, only
+ * elements whose literal representation unifies with it are returned.
+ * 
+ * @author igorcadelima
+ *
+ * @param <T> type of the elements, i.e. {@link rambos.norm.Norm} or
+ *        {@link rambos.sanction.Sanction}
+ */
+public final class RegulativeSpecCursor<T extends Literable> {
+  /**
+   * Maximum number of elements examined per page, so that a selective filter does not make a
+   * single page scan the whole specification.
+   */
+  static final int SCAN_LIMIT = 1024;
+
+  private final long version;
+  private final Class<T> type;
+  private final List<T> elements;
+  private final Literal filter;
+  private final int position;
+
+  private RegulativeSpecCursor(long version, Class<T> type, List<T> elements, Literal filter,
+      int position) {
+    this.version = version;
+    this.type = type;
+    this.elements = elements;
+    this.filter = filter;
+    this.position = position;
+  }
+
+  /**
+   * Return cursor positioned at the first element of {@code elements}.
+   * 
+   * @param version version of the snapshot the elements belong to
+   * @param type type of the elements
+   * @param elements elements sorted by id, which must not be modified afterwards
+   * @param filter literal which elements must unify with, or {@code null} for all elements
+   * @return new cursor
+   */
+  static <T extends Literable> RegulativeSpecCursor<T> of(long version, Class<T> type,
+      List<T> elements, Literal filter) {
+    return new RegulativeSpecCursor<>(version, type, elements, filter, 0);
+  }
+
+  /**
+   * Return this cursor as a cursor over elements of the given {@code type}.
+   * 
+   * @param type type of the elements
+   * @return this cursor
+   * @throws IllegalArgumentException if this cursor iterates over elements of another type
+   */
+  @SuppressWarnings("unchecked")
+  <U extends Literable> RegulativeSpecCursor<U> as(Class<U> type) {
+    if (this.type != type)
+      throw new IllegalArgumentException("Cursor iterates over " + this.type.getSimpleName()
+          + " instances rather than " + type.getSimpleName() + " instances");
+    return (RegulativeSpecCursor<U>) this;
+  }
+
+  /** Return version of the snapshot over which this cursor iterates. */
+  public long getVersion() {
+    return version;
+  }
+
+  /** Return filter of this cursor, or {@code null} if it has none. */
+  public Literal getFilter() {
+    return filter;
+  }
+
+  /**
+   * Add up to {@code size} elements from the current position to {@code page}.
+   * 
+   * At most {@link #SCAN_LIMIT} elements are examined, so a filtered page may contain fewer than
+   * {@code size} elements, or none at all, even though there are further matches.
+   * 
+   * @param size maximum number of elements to be added
+   * @param page list to which elements are added
+   * @return cursor positioned after the examined elements, or {@code null} if there are no more
+   *         elements to be examined
+   * @throws IllegalArgumentException if {@code size} is not positive
+   */
+  RegulativeSpecCursor<T> next(int size, List<? super T> page) {
+    if (size <= 0)
+      throw new IllegalArgumentException("Page size should be positive but was " + size);
+    int i = position;
+    int end = filter == null ? Math.min(elements.size(), position + size)
+        : Math.min(elements.size(), position + Math.max(size, SCAN_LIMIT));
+    int added = 0;
+    while (i < end && added < size) {
+      T element = elements.get(i++);
+      if (filter == null || new Unifier().unifies(filter, element.toLiteral())) {
+        page.add(element);
+        added++;
+      }
+    }
+    if (i == elements.size())
+      return null;
+    return new RegulativeSpecCursor<>(version, type, elements, filter, i);
+  }
+}
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.validation.Schema;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import jason.asSyntax.Atom;
+import rambos.common.Enums;
+import rambos.common.Status;
+import rambos.norm.Norm;
+import rambos.norm.Norms;
+import rambos.sanction.Sanction;
+import rambos.sanction.Sanctions;
+
+/**
+ * Streaming loader of regulative specification files.
+ * 
+ * The file is read in a single pass by a SAX parser which validates it against the schema while
+ * streaming, so no DOM is ever built. As soon as a norm or sanction element ends, the parsing of
+ * its formulas, which is by far the most expensive part of loading, is handed over to the common
+ * fork-join pool, while the file keeps being read. Once the file ends, the parsed norms and
+ * sanctions are gathered and added to a new {@link RegulativeSpec} as a single batch.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class RegulativeSpecLoader extends DefaultHandler {
+  private final List<CompletableFuture<Norm>> norms = new ArrayList<>();
+  private final List<CompletableFuture<Sanction>> sanctions = new ArrayList<>();
+
+  // State of the element being read
+  private final StringBuilder text = new StringBuilder();
+  private boolean inNorm;
+  private boolean inSanction;
+  private boolean inCategory;
+  private String id;
+  private Status status;
+  private String condition;
+  private String issuer;
+  private String content;
+  private List<String> linkedSanctions = new ArrayList<>();
+  private Map<String, String> category = new HashMap<>();
+
+  private RegulativeSpecLoader() {}
+
+  /**
+   * Load regulative specification from {@code source}, validating it against {@code schema}.
+   * 
+   * @param source source of the regulative specification
+   * @param schema schema against which the source is validated
+   * @return regulative specification represented by the source
+   * @throws ParserConfigurationException if no suitable parser can be created
+   * @throws SAXException if the source is not valid against the schema, or if any of its norms or
+   *         sanctions cannot be parsed
+   * @throws IOException if the source cannot be read
+   */
+  static RegulativeSpec load(InputSource source, Schema schema)
+      throws ParserConfigurationException, SAXException, IOException {
+    RegulativeSpecLoader loader = new RegulativeSpecLoader();
+    Documents.getSAXParser(schema)
+             .parse(source, loader);
+    return loader.assemble();
+  }
+
+  /** Gather parsed norms and sanctions into a new regulative specification. */
+  private RegulativeSpec assemble() throws SAXException {
+    List<RegulativeSpecChange> changes = new ArrayList<>(sanctions.size() + norms.size());
+    Set<Atom> sanctionIds = new HashSet<>();
+    try {
+      for (CompletableFuture<Sanction> future : sanctions) {
+        Sanction sanction = future.join();
+        sanctionIds.add(sanction.getId());
+        changes.add(RegulativeSpecChange.addSanction(sanction));
+      }
+      for (CompletableFuture<Norm> future : norms) {
+        Norm norm = future.join();
+        // Links to unknown sanctions are ignored, as in RegulativeSpec#addLink(Atom, Atom)
+        for (Atom linked : norm.getLinkedSanctions()) {
+          if (!sanctionIds.contains(linked))
+            norm = norm.withoutLink(linked);
+        }
+        changes.add(RegulativeSpecChange.addNorm(norm));
+      }
+    } catch (CompletionException e) {
+      throw new SAXException(e.getCause()
+                              .getMessage());
+    }
+
+    RegulativeSpec regulativeSpec = new BasicRegulativeSpec();
+    try {
+      regulativeSpec.apply(changes);
+    } catch (IllegalArgumentException e) {
+      throw new SAXException(e.getMessage());
+    }
+    return regulativeSpec;
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes attributes) {
+    text.setLength(0);
+    switch (localName) {
+      case "norm":
+      case "sanction":
+        inNorm = localName.equals("norm");
+        inSanction = !inNorm;
+        id = attributes.getValue("id");
+        status = Enums.lookup(Status.class, attributes.getValue("status"), Status.ENABLED);
+        condition = null;
+        issuer = null;
+        content = null;
+        linkedSanctions = new ArrayList<>();
+        category = new HashMap<>();
+        break;
+      case "category":
+        inCategory = true;
+        break;
+      default: // Nothing to be done before reading the text
+    }
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) {
+    if (inNorm || inSanction)
+      text.append(ch, start, length);
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) {
+    if (inCategory) {
+      if (localName.equals("category"))
+        inCategory = false;
+      else
+        category.put(localName, text.toString());
+      return;
+    }
+
+    switch (localName) {
+      case "condition":
+        condition = text.toString();
+        break;
+      case "issuer":
+        issuer = text.toString();
+        break;
+      case "content":
+        content = text.toString();
+        break;
+      case "sanction-id":
+        linkedSanctions.add(text.toString());
+        break;
+      case "norm":
+        if (inNorm) {
+          inNorm = false;
+          submitNorm();
+        }
+        break;
+      case "sanction":
+        if (inSanction) {
+          inSanction = false;
+          submitSanction();
+        }
+        break;
+      default: // Unknown element
+    }
+  }
+
+  private void submitNorm() {
+    String id = this.id;
+    Status status = this.status;
+    String condition = this.condition;
+    String issuer = this.issuer;
+    String content = this.content;
+    List<String> linkedSanctions = this.linkedSanctions;
+    norms.add(CompletableFuture.supplyAsync(
+        () -> Norms.of(id, status, condition, issuer, content, linkedSanctions)));
+  }
+
+  private void submitSanction() {
+    String id = this.id;
+    Status status = this.status;
+    String condition = this.condition;
+    Map<String, String> category = this.category;
+    String content = this.content;
+    sanctions.add(CompletableFuture.supplyAsync(
+        () -> Sanctions.of(id, status, condition, category, content)));
+  }
+
+  @Override
+  public void error(SAXParseException e) throws SAXException {
+    // Validation errors are not fatal by default, but an invalid specification must be rejected
+    throw e;
+  }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.institution;
+
+import java.util.List;
+import java.util.Set;
+
+import jason.asSyntax.Atom;
+import rambos.norm.Norm;
+import rambos.norm.NormAttribute;
+import rambos.sanction.Sanction;
+
+/**
+ * An immutable version of a {@link RegulativeSpec}.
+ * 
+ * Snapshots are never changed once published, so they can be read concurrently without copying
+ * or locking. Every change to a regulative specification publishes a new snapshot with a greater
+ * version.
+ * 
+ * @author igorcadelima
+ *
+ */
+public interface RegulativeSpecSnapshot {
+  /** Return version of the snapshot, which increases with every change. */
+  long getVersion();
+
+  /** Return norm with given {@code id}, or {@code null} if non-existing. */
+  Norm getNorm(Atom id);
+
+  /** Return sanction with given {@code id}, or {@code null} if non-existing */
+  Sanction getSanction(Atom id);
+
+  /** Return unmodifiable set of norms. */
+  Set<Norm> getNorms();
+
+  /** Return unmodifiable set of sanctions. */
+  Set<Sanction> getSanctions();
+
+  /**
+   * Return unmodifiable list of norms sorted by id. The list is a view of the ordered structure
+   * in which the snapshot keeps its norms, so it is neither sorted nor copied on request, and
+   * elements are accessed by position in logarithmic time.
+   */
+  List<Norm> getNormList();
+
+  /**
+   * Return unmodifiable list of sanctions sorted by id. The list is a view of the ordered structure
+   * in which the snapshot keeps its sanctions, so it is neither sorted nor copied on request, and
+   * elements are accessed by position in logarithmic time.
+   */
+  List<Sanction> getSanctionList();
+
+  /**
+   * Return unmodifiable set of norms linked to the sanction with the given {@code sanctionId},
+   * which is empty if there are none. This is looked up in an index, rather than by scanning all
+   * norms.
+   */
+  Set<Norm> getNormsLinkedTo(Atom sanctionId);
+
+  /**
+   * Return unmodifiable set of norms whose {@code attribute} has the given {@code value}, e.g. the
+   * norms targeting a given agent, which is empty if there are none. This is looked up in an index,
+   * rather than by scanning all norms.
+   */
+  Set<Norm> getNormsBy(NormAttribute attribute, String value);
+}
@@ -20,22 +20,22 @@
  *******************************************************************************/
 package rambos.institution;
 
-import static jason.asSyntax.ASSyntax.createAtom;
-
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
-import rambos.norm.Norms;
-import rambos.sanction.Sanctions;
+import rambos.common.Literable;
+import rambos.norm.Norm;
+import rambos.sanction.Sanction;
 
 /**
  * Static utility methods pertaining to {@link RegulativeSpec} instances.
@@ -45,75 +45,88 @@ import rambos.sanction.Sanctions;
  */
 public final class RegulativeSpecs {
   private static final String SCHEMA_PATH = "/xsd/regulative-spec.xsd";
-  private static final String NORMS_TAG = "norms";
-  private static final String SANCTIONS_TAG = "sanctions";
-  private static final String LINKED_SANCTIONS_TAG = "linked-sanctions";
 
   private RegulativeSpecs() {}
 
-  /** Return a regulative specification instance based on the {@code regulativeSpec} file. */
+  /**
+   * Return a regulative specification instance based on the {@code regulativeSpec} file.
+   * 
+   * The file is streamed and validated in a single pass, and its formulas are parsed in parallel
+   * (see {@link RegulativeSpecLoader}). The result is then stored in a binary cache next to the
+   * file (see {@link RegulativeSpecCache}), which is used instead of the file for as long as the
+   * latter does not change. If the file cannot be loaded, {@code null} is returned.
+   */
   public static RegulativeSpec fromFile(String file) {
+    Path path = Paths.get(file);
     try {
-      Document specDoc = Documents.parseDocument(file, SCHEMA_PATH);
-      RegulativeSpec regulativeSpec = new BasicRegulativeSpec();
-      extractNorms(specDoc, regulativeSpec);
-      extractSanctions(specDoc, regulativeSpec);
-      extractLinks(specDoc, regulativeSpec);
-      return regulativeSpec;
+      byte[] xml = Files.readAllBytes(path);
+      byte[] hash = RegulativeSpecCache.hash(xml);
+      Path cache = RegulativeSpecCache.pathOf(path);
+      RegulativeSpec spec = RegulativeSpecCache.read(cache, hash);
+      if (spec != null)
+        return spec;
+
+      InputSource source = new InputSource(new ByteArrayInputStream(xml));
+      source.setSystemId(path.toUri()
+                             .toString());
+      spec = RegulativeSpecLoader.load(source, Documents.getSchema(SCHEMA_PATH));
+      try {
+        RegulativeSpecCache.write(cache, hash, spec.snapshot());
+      } catch (IOException e) {
+        // The cache is only an optimisation, so the specification is still usable
+      }
+      return spec;
     } catch (ParserConfigurationException | SAXException | IOException e) {
       e.printStackTrace();
     }
     return null;
   }
 
-  /** Extract norms from {@code specDoc} and add them to {@code regulativeSpec}. */
-  private static void extractNorms(Document specDoc, RegulativeSpec regulativeSpec) {
-    Node normsRootEl = specDoc.getElementsByTagName(NORMS_TAG)
-                              .item(0);
-    List<Element> norms = getChildElements(normsRootEl);
-    norms.forEach(normEl -> regulativeSpec.addNorm(Norms.of(normEl)));
-  }
-
-  /** Extract sanctions from {@code specDoc} and add them to {@code regulativeSpec}. */
-  private static void extractSanctions(Document specDoc, RegulativeSpec regulativeSpec) {
-    Node sanctionsRootEl = specDoc.getElementsByTagName(SANCTIONS_TAG)
-                                  .item(0);
-    List<Element> sanctions = getChildElements(sanctionsRootEl);
-    sanctions.forEach(sanctionEl -> regulativeSpec.addSanction(Sanctions.parse(sanctionEl)));
-  }
-
-  /** Extract links from {@code specDoc} and add them to {@code regulativeSpec}. */
-  private static void extractLinks(Document specDoc, RegulativeSpec regulativeSpec) {
-    NodeList linkedSanctionsNodes = specDoc.getElementsByTagName(LINKED_SANCTIONS_TAG);
-    for (int i = 0; i < linkedSanctionsNodes.getLength(); i++) {
-      Node linkedSanctionsNode = linkedSanctionsNodes.item(i);
-      List<Element> sanctionIdEls = getChildElements(linkedSanctionsNode);
-      sanctionIdEls.forEach(sanctionIdEl -> {
-        String sanctionId = sanctionIdEl.getTextContent();
-        String normId = ((Element) linkedSanctionsNode.getParentNode()).getAttribute("id");
-        regulativeSpec.addLink(createAtom(normId), createAtom(sanctionId));
-      });
-    }
-  }
-
   /**
-   * Extract and return {@code parent} node's child elements.
+   * Return the changes which turn {@code from} into {@code to}.
+   * 
+   * Norms and sanctions are matched by id, and those present in both snapshots are compared by a
+   * fingerprint of their contents, namely their literal representation, so that only those which
+   * actually differ are replaced. Links are part of the norms, so they are diffed along with them.
+   * Changes are ordered so that they can be applied as a batch through
+   * {@link RegulativeSpec#apply(Iterable)}: sanctions are added or replaced first, then norms are
+   * added or replaced, and finally norms and sanctions are removed.
    * 
-   * @param parent parent node
-   * @return list of child elements
+   * @param from regulative specification to be changed
+   * @param to regulative specification to be reached
+   * @return changes which turn {@code from} into {@code to}
    */
-  private static List<Element> getChildElements(Node parent) {
-    List<Element> nodes = new ArrayList<>();
-    NodeList childNodes = parent.getChildNodes();
-
-    for (int i = 0; i < childNodes.getLength(); i++) {
-      Node normNode = childNodes.item(i);
-
-      if (normNode.getNodeType() == Node.ELEMENT_NODE) {
-        Element normEl = (Element) normNode;
-        nodes.add(normEl);
-      }
+  public static List<RegulativeSpecChange> diff(RegulativeSpecSnapshot from,
+      RegulativeSpecSnapshot to) {
+    List<RegulativeSpecChange> changes = new ArrayList<>();
+    for (Sanction sanction : to.getSanctions()) {
+      Sanction previous = from.getSanction(sanction.getId());
+      if (previous == null)
+        changes.add(RegulativeSpecChange.addSanction(sanction));
+      else if (!fingerprint(previous).equals(fingerprint(sanction)))
+        changes.add(RegulativeSpecChange.replaceSanction(sanction));
     }
-    return nodes;
+    for (Norm norm : to.getNorms()) {
+      Norm previous = from.getNorm(norm.getId());
+      if (previous == null)
+        changes.add(RegulativeSpecChange.addNorm(norm));
+      else if (!fingerprint(previous).equals(fingerprint(norm)))
+        changes.add(RegulativeSpecChange.replaceNorm(norm));
+    }
+    for (Norm norm : from.getNorms()) {
+      if (to.getNorm(norm.getId()) == null)
+        changes.add(RegulativeSpecChange.removeNorm(norm.getId()));
+    }
+    for (Sanction sanction : from.getSanctions()) {
+      if (to.getSanction(sanction.getId()) == null)
+        changes.add(RegulativeSpecChange.removeSanction(sanction.getId()));
+    }
+    return changes;
+  }
+
+  /** Return fingerprint of the contents of {@code literable}. */
+  private static String fingerprint(Literable literable) {
+    return literable.toLiteral()
+                    .toString();
   }
 }
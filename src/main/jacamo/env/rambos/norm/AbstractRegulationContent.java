@@ -26,6 +26,7 @@ import jason.asSyntax.Literal;
 import jason.asSyntax.LogicalFormula;
 import jason.asSyntax.NumberTerm;
 import jason.asSyntax.StringTerm;
+import jason.asSyntax.Term;
 
 /**
  * This class provides a skeletal implementation of the {@link RegulationContent} interface to
@@ -51,8 +52,13 @@ abstract class AbstractRegulationContent implements RegulationContent {
     target = (Atom) literal.getTerm(0);
     maintenanceCondition = (LogicalFormula) literal.getTerm(1);
     aim = (LogicalFormula) literal.getTerm(2);
-    deadline = TemporalTerm.parse(((StringTerm) literal.getTerm(3)).getString())
-                           .toTerm();
+    // Deadlines are numbers in literal representations, and temporal strings in specifications
+    Term deadlineTerm = literal.getTerm(3);
+    if (deadlineTerm.isNumeric())
+      deadline = (NumberTerm) deadlineTerm;
+    else
+      deadline = TemporalTerm.parse(((StringTerm) deadlineTerm).getString())
+                             .toTerm();
   }
 
   @Override
@@ -0,0 +1,563 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.norm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jason.asSemantics.Unifier;
+import jason.asSyntax.Atom;
+import jason.asSyntax.Literal;
+import jason.asSyntax.LogExpr;
+import jason.asSyntax.LogExpr.LogicalOp;
+import jason.asSyntax.LogicalFormula;
+import jason.asSyntax.RelExpr;
+
+/**
+ * Incremental matching network which keeps track of the instances of norms whose activation and
+ * maintenance conditions hold, in the manner of the Rete algorithm.
+ * 
+ * The conditions of each norm are turned into disjunctive normal form, and each conjunction into a
+ * chain of nodes: literals are joined with the facts that unify with them, negated literals block
+ * partial matches while any fact unifies with them, and relational expressions are tested once
+ * the variables to their left are bound. Facts are held in alpha memories indexed by functor and
+ * arity, and each node remembers the partial matches which passed it. Thus adding or removing a
+ * fact only propagates the matches it affects, and the {@link Listener} is told of the norm
+ * instances which have just been activated or deactivated, rather than all the active ones.
+ * 
+ * A norm instance is the literal representation of the norm with the bindings of a match applied.
+ * An instance remains active for as long as at least one match yields it.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class ActivationNetwork {
+  private final Listener listener;
+  // normId -> productions of the norm, one per conjunction of its conditions
+  private final Map<Atom, List<Production>> productions = new HashMap<>();
+  // normId -> active instance of the norm -> number of matches yielding the instance
+  private final Map<Atom, Map<Literal, Integer>> instances = new HashMap<>();
+  // functor/arity -> alpha memory
+  private final Map<String, AlphaMemory> alphaMemories = new HashMap<>();
+
+  /** Receiver of changes in the activation of norm instances. */
+  public interface Listener {
+    /**
+     * Called when an instance of {@code norm} becomes active.
+     * 
+     * @param norm norm which has been activated
+     * @param instance literal representation of {@code norm} with the bindings of the activation
+     */
+    void activated(Norm norm, Literal instance);
+
+    /**
+     * Called when an active instance of {@code norm} is no longer active, either because its
+     * conditions no longer hold or because the norm has been removed.
+     * 
+     * @param norm norm which has been deactivated
+     * @param instance instance previously passed to {@link #activated(Norm, Literal)}
+     */
+    void deactivated(Norm norm, Literal instance);
+  }
+
+  /**
+   * Create an empty network.
+   * 
+   * @param listener receiver of activations and deactivations
+   */
+  public ActivationNetwork(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Add {@code norm} to the network, so that its instances are activated by the facts in the
+   * network.
+   * 
+   * The activation condition of the norm is checked along with the maintenance condition of its
+   * content, if any. Both may be made of literals, negated literals, and relational expressions
+   * combined through conjunctions and disjunctions.
+   * 
+   * @param norm norm to be added
+   * @throws IllegalArgumentException if the network already has a norm with the same id, or if the
+   *         conditions of the norm contain unsupported constructs, such as internal actions
+   */
+  public void addNorm(Norm norm) {
+    if (productions.containsKey(norm.getId()))
+      throw new IllegalArgumentException("Norm " + norm.getId() + " has already been added");
+    LogicalFormula condition = norm.getCondition();
+    NormContent content = norm.getContent();
+    if (content instanceof RegulationContent) {
+      condition = new LogExpr(condition, LogicalOp.and,
+          ((RegulationContent) content).getMaintenanceCondition());
+    }
+    List<List<LogicalFormula>> conjunctions = disjunctiveNormalForm(condition, norm);
+
+    Literal literal = norm.toLiteral();
+    List<Production> normProductions = new ArrayList<>(conjunctions.size());
+    for (List<LogicalFormula> conjunction : conjunctions) {
+      normProductions.add(new Production(norm, literal, conjunction));
+    }
+    productions.put(norm.getId(), normProductions);
+    instances.put(norm.getId(), new HashMap<>());
+    for (Production production : normProductions) {
+      production.start();
+    }
+  }
+
+  /**
+   * Remove norm with the given id from the network, deactivating all its active instances.
+   * 
+   * @param normId id of the norm to be removed
+   * @return {@code true} if the norm was in the network
+   */
+  public boolean removeNorm(Atom normId) {
+    List<Production> normProductions = productions.get(normId);
+    if (normProductions == null)
+      return false;
+    for (Production production : normProductions) {
+      production.stop();
+    }
+    productions.remove(normId);
+    instances.remove(normId);
+    return true;
+  }
+
+  /** Return whether the network has a norm with the given id. */
+  public boolean hasNorm(Atom normId) {
+    return productions.containsKey(normId);
+  }
+
+  /**
+   * Return the active instances of the norm with the given id.
+   * 
+   * @param normId id of the norm
+   * @return unmodifiable set of instances, which is empty if the norm is not in the network
+   */
+  public Set<Literal> getActiveInstances(Atom normId) {
+    Map<Literal, Integer> normInstances = instances.get(normId);
+    if (normInstances == null)
+      return Collections.emptySet();
+    return Collections.unmodifiableSet(normInstances.keySet());
+  }
+
+  /**
+   * Add a ground {@code fact} to the network, activating and deactivating norm instances
+   * accordingly.
+   * 
+   * @param fact fact to be added
+   * @return {@code true} if the fact was not already in the network
+   * @throws IllegalArgumentException if the fact is not ground
+   */
+  public boolean addFact(Literal fact) {
+    if (!fact.isGround())
+      throw new IllegalArgumentException("Fact should be ground: " + fact);
+    AlphaMemory alpha = alphaMemory(fact);
+    if (!alpha.facts.add(fact))
+      return false;
+    // Block matches before joining the fact, so that no match is activated only to be blocked
+    for (Node node : new ArrayList<>(alpha.successors)) {
+      if (node instanceof Negation)
+        ((Negation) node).rightActivate(fact);
+    }
+    for (Node node : new ArrayList<>(alpha.successors)) {
+      if (node instanceof Join)
+        ((Join) node).rightActivate(fact);
+    }
+    return true;
+  }
+
+  /**
+   * Remove {@code fact} from the network, activating and deactivating norm instances accordingly.
+   * 
+   * @param fact fact to be removed
+   * @return {@code true} if the fact was in the network
+   */
+  public boolean removeFact(Literal fact) {
+    AlphaMemory alpha = alphaMemories.get(FactSnapshot.keyOf(fact));
+    if (alpha == null || !alpha.facts.remove(fact))
+      return false;
+    // Drop the matches built on the fact before unblocking others, for the same reason as above
+    Set<Token> tokens = alpha.tokens.remove(fact);
+    if (tokens != null) {
+      for (Token token : new ArrayList<>(tokens)) {
+        token.production.removeToken(token);
+      }
+    }
+    for (Node node : new ArrayList<>(alpha.successors)) {
+      if (node instanceof Negation)
+        ((Negation) node).rightRetract(fact);
+    }
+    return true;
+  }
+
+  /** Return whether the network has {@code fact}. */
+  public boolean hasFact(Literal fact) {
+    AlphaMemory alpha = alphaMemories.get(FactSnapshot.keyOf(fact));
+    return alpha != null && alpha.facts.contains(fact);
+  }
+
+  /**
+   * Return conjunctions whose disjunction is equivalent to {@code formula}, where each element of
+   * a conjunction is either a literal, a negated literal, or a relational expression (possibly
+   * negated).
+   */
+  private static List<List<LogicalFormula>> disjunctiveNormalForm(LogicalFormula formula,
+      Norm norm) {
+    if (formula instanceof LogExpr) {
+      LogExpr expr = (LogExpr) formula;
+      switch (expr.getOp()) {
+        case and: {
+          List<List<LogicalFormula>> conjunctions = new ArrayList<>();
+          List<List<LogicalFormula>> rhs = disjunctiveNormalForm(expr.getRHS(), norm);
+          for (List<LogicalFormula> left : disjunctiveNormalForm(expr.getLHS(), norm)) {
+            for (List<LogicalFormula> right : rhs) {
+              List<LogicalFormula> conjunction = new ArrayList<>(left);
+              conjunction.addAll(right);
+              conjunctions.add(conjunction);
+            }
+          }
+          return conjunctions;
+        }
+        case or: {
+          List<List<LogicalFormula>> conjunctions =
+              new ArrayList<>(disjunctiveNormalForm(expr.getLHS(), norm));
+          conjunctions.addAll(disjunctiveNormalForm(expr.getRHS(), norm));
+          return conjunctions;
+        }
+        case not:
+          if (expr.getLHS() instanceof RelExpr || ConditionCompiler.isPattern(expr.getLHS()))
+            return singleton(expr);
+          break;
+        default:
+      }
+    } else if (formula instanceof RelExpr || ConditionCompiler.isPattern(formula)) {
+      return singleton(formula);
+    } else if (formula == Literal.LTrue) {
+      return singleton(null);
+    } else if (formula == Literal.LFalse) {
+      return new ArrayList<>();
+    }
+    throw new IllegalArgumentException("Conditions of norm " + norm.getId()
+        + " cannot be compiled due to " + formula);
+  }
+
+  /** Return list with a single conjunction which is either empty or holds {@code element}. */
+  private static List<List<LogicalFormula>> singleton(LogicalFormula element) {
+    List<List<LogicalFormula>> conjunctions = new ArrayList<>();
+    List<LogicalFormula> conjunction = new ArrayList<>();
+    if (element != null)
+      conjunction.add(element);
+    conjunctions.add(conjunction);
+    return conjunctions;
+  }
+
+  private AlphaMemory alphaMemory(Literal l) {
+    return alphaMemories.computeIfAbsent(FactSnapshot.keyOf(l), key -> new AlphaMemory());
+  }
+
+  /** Facts with the same functor and arity, along with the nodes which match them. */
+  private static final class AlphaMemory {
+    private final Set<Literal> facts = new LinkedHashSet<>();
+    // Nodes are kept from the last to the first of each production, so that a fact is joined by
+    // later nodes before earlier ones produce new matches for them, which would otherwise be
+    // joined with the fact twice
+    private final List<Node> successors = new ArrayList<>();
+    // fact -> tokens built on the fact
+    private final Map<Literal, Set<Token>> tokens = new HashMap<>();
+  }
+
+  /** Partial match of a production, i.e. the bindings of the elements up to a certain node. */
+  private static final class Token {
+    private final Production production;
+    private final Token parent;
+    // Index of the node which produced the token, which is -1 for the root token
+    private final int index;
+    // Fact joined by the node, if any
+    private final Literal fact;
+    private final Unifier unifier;
+    private final Set<Token> children = new HashSet<>();
+    private boolean alive = true;
+    // Instance of the norm, if the token is a complete match
+    private Literal instance;
+
+    private Token(Production production, Token parent, int index, Literal fact, Unifier unifier) {
+      this.production = production;
+      this.parent = parent;
+      this.index = index;
+      this.fact = fact;
+      this.unifier = unifier;
+    }
+  }
+
+  /** Chain of nodes matching a conjunction of the conditions of a norm. */
+  private final class Production {
+    private final Norm norm;
+    private final Literal literal;
+    private final Node[] nodes;
+    private final Token root;
+
+    private Production(Norm norm, Literal literal, List<LogicalFormula> conjunction) {
+      this.norm = norm;
+      this.literal = literal;
+      this.nodes = new Node[conjunction.size()];
+      for (int i = 0; i < nodes.length; i++) {
+        LogicalFormula element = conjunction.get(i);
+        if (element instanceof RelExpr) {
+          nodes[i] = new Test(this, i, element);
+        } else if (element instanceof LogExpr) {
+          LogicalFormula negated = ((LogExpr) element).getLHS();
+          if (negated instanceof RelExpr)
+            nodes[i] = new Test(this, i, element);
+          else
+            nodes[i] = new Negation(this, i, (Literal) negated);
+        } else {
+          nodes[i] = new Join(this, i, (Literal) element);
+        }
+      }
+      root = new Token(this, null, -1, null, new Unifier());
+    }
+
+    /** Subscribe nodes to their alpha memories and match the facts already in the network. */
+    private void start() {
+      for (Node node : nodes) {
+        if (node instanceof AlphaNode)
+          ((AlphaNode) node).alpha.successors.add(0, node);
+      }
+      propagate(root);
+    }
+
+    /** Unsubscribe nodes from their alpha memories and drop all matches. */
+    private void stop() {
+      for (Token token : new ArrayList<>(root.children)) {
+        removeToken(token);
+      }
+      if (root.instance != null)
+        deactivate(root);
+      for (Node node : nodes) {
+        if (node instanceof AlphaNode)
+          ((AlphaNode) node).alpha.successors.remove(node);
+      }
+    }
+
+    /** Return tokens which passed the node preceding the one at {@code index}. */
+    private Set<Token> parentMemory(int index) {
+      return index == 0 ? Collections.singleton(root) : nodes[index - 1].memory;
+    }
+
+    /** Register new {@code token} and pass it on to the next node. */
+    private void addToken(Token token) {
+      token.parent.children.add(token);
+      nodes[token.index].memory.add(token);
+      if (token.fact != null) {
+        alphaMemory(token.fact).tokens.computeIfAbsent(token.fact, fact -> new HashSet<>())
+                                      .add(token);
+      }
+      propagate(token);
+    }
+
+    private void propagate(Token token) {
+      int next = token.index + 1;
+      if (next == nodes.length)
+        activate(token);
+      else
+        nodes[next].leftActivate(token);
+    }
+
+    /** Remove {@code token} and its descendants from the network. */
+    private void removeToken(Token token) {
+      if (!token.alive)
+        return;
+      token.alive = false;
+      for (Token child : new ArrayList<>(token.children)) {
+        removeToken(child);
+      }
+      token.parent.children.remove(token);
+      nodes[token.index].memory.remove(token);
+      if (token.fact != null) {
+        Set<Token> tokens = alphaMemory(token.fact).tokens.get(token.fact);
+        if (tokens != null)
+          tokens.remove(token);
+      }
+      int next = token.index + 1;
+      if (next < nodes.length && nodes[next] instanceof Negation)
+        ((Negation) nodes[next]).matches.remove(token);
+      if (token.instance != null)
+        deactivate(token);
+    }
+
+    private void activate(Token token) {
+      token.instance = (Literal) literal.capply(token.unifier);
+      Map<Literal, Integer> normInstances = instances.get(norm.getId());
+      if (normInstances.merge(token.instance, 1, Integer::sum) == 1)
+        listener.activated(norm, token.instance);
+    }
+
+    private void deactivate(Token token) {
+      Map<Literal, Integer> normInstances = instances.get(norm.getId());
+      Integer count = normInstances.get(token.instance);
+      if (count == null)
+        return;
+      if (count == 1) {
+        normInstances.remove(token.instance);
+        listener.deactivated(norm, token.instance);
+      } else {
+        normInstances.put(token.instance, count - 1);
+      }
+    }
+  }
+
+  /** Node of a production, which passes on the tokens that satisfy its element. */
+  private abstract static class Node {
+    protected final Production production;
+    protected final int index;
+    // Tokens which passed this node
+    protected final Set<Token> memory = new LinkedHashSet<>();
+
+    private Node(Production production, int index) {
+      this.production = production;
+      this.index = index;
+    }
+
+    /** Process {@code parent}, which has just passed the previous node. */
+    abstract void leftActivate(Token parent);
+  }
+
+  /** Node which matches a literal against the facts of an alpha memory. */
+  private abstract class AlphaNode extends Node {
+    protected final Literal pattern;
+    protected final AlphaMemory alpha;
+
+    private AlphaNode(Production production, int index, Literal pattern) {
+      super(production, index);
+      this.pattern = pattern;
+      this.alpha = alphaMemory(pattern);
+    }
+
+    /** Return whether {@code fact} matches the pattern of this node under {@code parent}. */
+    protected boolean matches(Token parent, Literal fact) {
+      return parent.unifier.clone()
+                           .unifies(pattern, fact);
+    }
+  }
+
+  /** Node which joins tokens with the facts unifying with a literal. */
+  private final class Join extends AlphaNode {
+    private Join(Production production, int index, Literal pattern) {
+      super(production, index, pattern);
+    }
+
+    @Override
+    void leftActivate(Token parent) {
+      for (Literal fact : new ArrayList<>(alpha.facts)) {
+        join(parent, fact);
+      }
+    }
+
+    /** Join new {@code fact} with the tokens which passed the previous node. */
+    void rightActivate(Literal fact) {
+      for (Token parent : new ArrayList<>(production.parentMemory(index))) {
+        if (parent.alive)
+          join(parent, fact);
+      }
+    }
+
+    private void join(Token parent, Literal fact) {
+      Unifier unifier = parent.unifier.clone();
+      if (unifier.unifies(pattern, fact))
+        production.addToken(new Token(production, parent, index, fact, unifier));
+    }
+  }
+
+  /** Node which passes on tokens only while no fact unifies with a literal. */
+  private final class Negation extends AlphaNode {
+    // parent token -> number of facts unifying with the pattern under the token
+    private final Map<Token, Integer> matches = new HashMap<>();
+
+    private Negation(Production production, int index, Literal pattern) {
+      super(production, index, pattern);
+    }
+
+    @Override
+    void leftActivate(Token parent) {
+      int count = 0;
+      for (Literal fact : alpha.facts) {
+        if (matches(parent, fact))
+          count++;
+      }
+      matches.put(parent, count);
+      if (count == 0)
+        pass(parent);
+    }
+
+    /** Block the tokens under which new {@code fact} unifies with the pattern. */
+    void rightActivate(Literal fact) {
+      for (Token parent : new ArrayList<>(production.parentMemory(index))) {
+        if (parent.alive && matches(parent, fact)
+            && matches.merge(parent, 1, Integer::sum) == 1) {
+          for (Token child : new ArrayList<>(parent.children)) {
+            production.removeToken(child);
+          }
+        }
+      }
+    }
+
+    /** Unblock the tokens under which removed {@code fact} was the only one unifying. */
+    void rightRetract(Literal fact) {
+      for (Token parent : new ArrayList<>(production.parentMemory(index))) {
+        if (parent.alive && matches(parent, fact)
+            && matches.merge(parent, -1, Integer::sum) == 0) {
+          pass(parent);
+        }
+      }
+    }
+
+    private void pass(Token parent) {
+      production.addToken(new Token(production, parent, index, null, parent.unifier));
+    }
+  }
+
+  /** Node which passes on the tokens satisfying a relational expression. */
+  private static final class Test extends Node {
+    private final CompiledCondition expression;
+
+    private Test(Production production, int index, LogicalFormula expression) {
+      super(production, index);
+      this.expression = ConditionCompiler.compile(expression);
+    }
+
+    @Override
+    void leftActivate(Token parent) {
+      // Relational expressions do not depend on any fact
+      expression.solve(FactSnapshot.EMPTY, parent.unifier, solution -> {
+        production.addToken(new Token(production, parent, index, null, solution));
+        return false;
+      });
+    }
+  }
+}
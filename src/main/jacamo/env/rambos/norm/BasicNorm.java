@@ -20,8 +20,8 @@
  *******************************************************************************/
 package rambos.norm;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import jason.asSyntax.ASSyntax;
@@ -30,17 +30,19 @@ import jason.asSyntax.ListTerm;
 import jason.asSyntax.Literal;
 import jason.asSyntax.LogicalFormula;
 import rambos.common.Status;
-import rambos.sanction.Sanction;
 
 final class BasicNorm implements Norm {
   static final String FUNCTOR = "norm";
 
-  private Atom id;
-  private Status status = Status.ENABLED;
-  private LogicalFormula condition;
-  private Atom issuer;
-  private NormContent content;
-  private Map<Atom, Sanction> sanctions;
+  private final Atom id;
+  private final Status status;
+  private final LogicalFormula condition;
+  private final Atom issuer;
+  private final NormContent content;
+  // Ids of the linked sanctions
+  private final Set<Atom> sanctions;
+  // Literal representation, built upon first request
+  private volatile Literal literal;
 
   /** Constructs an {@link AbstractNorm} with the properties specified in {@code builder}. */
   private BasicNorm(Builder builder) {
@@ -51,7 +53,7 @@ final class BasicNorm implements Norm {
       condition = builder.condition;
       issuer = builder.issuer;
       content = builder.content;
-      sanctions = builder.sanctions;
+      sanctions = Collections.unmodifiableSet(new LinkedHashSet<>(builder.sanctions));
     } else {
       throw new NullPointerException(
           "The following properties should not be null: id, condition, issuer, content.");
@@ -64,7 +66,7 @@ final class BasicNorm implements Norm {
     private LogicalFormula condition;
     private Atom issuer;
     private NormContent content;
-    private Map<Atom, Sanction> sanctions = new HashMap<>();
+    private Set<Atom> sanctions = new LinkedHashSet<>();
 
     /**
      * Set id for the norm.
@@ -124,11 +126,22 @@ final class BasicNorm implements Norm {
     /**
      * Link a sanction to the norm.
      * 
-     * @param sanction sanction to be linked
+     * @param sanctionId id of the sanction to be linked
      * @return builder instance
      */
-    Builder link(Sanction sanction) {
-      sanctions.put(sanction.getId(), sanction);
+    Builder link(Atom sanctionId) {
+      sanctions.add(sanctionId);
+      return this;
+    }
+
+    /**
+     * Unlink a sanction from the norm.
+     * 
+     * @param sanctionId id of the sanction to be unlinked
+     * @return builder instance
+     */
+    Builder unlink(Atom sanctionId) {
+      sanctions.remove(sanctionId);
       return this;
     }
 
@@ -168,36 +181,43 @@ final class BasicNorm implements Norm {
   }
 
   @Override
-  public Set<Sanction> getLinkedSanctions() {
-    return (Set<Sanction>) sanctions.values();
+  public Set<Atom> getLinkedSanctions() {
+    return sanctions;
   }
 
-  @Override
-  public boolean link(Sanction sanction) {
-    return sanctions.putIfAbsent(sanction.getId(), sanction) != null;
+  /** Return a builder initialised with the properties of this norm. */
+  private Builder toBuilder() {
+    Builder builder = new Builder().id(id)
+                                   .status(status)
+                                   .condition(condition)
+                                   .issuer(issuer)
+                                   .content(content);
+    sanctions.forEach(builder::link);
+    return builder;
   }
 
   @Override
-  public boolean unlink(Atom sanctionId) {
-    return sanctions.remove(sanctionId) != null;
+  public Norm withStatus(Status status) {
+    if (this.status == status)
+      return this;
+    return toBuilder().status(status)
+                      .build();
   }
 
   @Override
-  public boolean enable() {
-    if (status == Status.DISABLED) {
-      status = Status.ENABLED;
-      return true;
-    }
-    return false;
+  public Norm withLink(Atom sanctionId) {
+    if (sanctions.contains(sanctionId))
+      return this;
+    return toBuilder().link(sanctionId)
+                      .build();
   }
 
   @Override
-  public boolean disable() {
-    if (status == Status.ENABLED) {
-      status = Status.DISABLED;
-      return true;
-    }
-    return false;
+  public Norm withoutLink(Atom sanctionId) {
+    if (!sanctions.contains(sanctionId))
+      return this;
+    return toBuilder().unlink(sanctionId)
+                      .build();
   }
 
   @Override
@@ -207,15 +227,22 @@ final class BasicNorm implements Norm {
 
   @Override
   public Literal toLiteral() {
+    Literal l = literal;
+    if (l == null)
+      literal = l = newLiteral();
+    return l;
+  }
+
+  /** Build literal representation from scratch. */
+  private Literal newLiteral() {
     Literal l = ASSyntax.createLiteral(getFunctor());
     l.addTerm(id);
-    l.addTerm(ASSyntax.createAtom(status.lowercase()));
+    l.addTerm(status.toAtom());
     l.addTerm(condition);
     l.addTerm(issuer);
     l.addTerm(content.toLiteral());
     ListTerm linkedSanctions = ASSyntax.createList();
-    sanctions.values()
-             .forEach(sanction -> linkedSanctions.add(sanction.getId()));
+    sanctions.forEach(linkedSanctions::add);
     l.addTerm(ASSyntax.createStructure("linked_sanctions", linkedSanctions));
     return l;
   }
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.norm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import jason.asSemantics.Unifier;
+
+/**
+ * Logical formula compiled by {@link ConditionCompiler} into an evaluator over
+ * {@link FactSnapshot}s.
+ * 
+ * @author igorcadelima
+ *
+ */
+@FunctionalInterface
+public interface CompiledCondition {
+  /**
+   * Pass each unifier under which the condition holds in {@code facts} to {@code action}, until
+   * {@code action} returns {@code true}.
+   * 
+   * Solutions extend {@code unifier}, which is never modified. A solution may be {@code unifier}
+   * itself, so solutions should not be modified either.
+   * 
+   * @param facts facts against which the condition is evaluated
+   * @param unifier bindings under which the condition is evaluated
+   * @param action action to be performed for each solution, which returns whether to stop
+   * @return {@code true} if {@code action} returned {@code true} for some solution
+   */
+  boolean solve(FactSnapshot facts, Unifier unifier, Predicate<Unifier> action);
+
+  /**
+   * Return whether the condition holds in {@code facts} under {@code unifier}.
+   * 
+   * @param facts facts against which the condition is evaluated
+   * @param unifier bindings under which the condition is evaluated
+   * @return {@code true} if there is at least one solution
+   */
+  default boolean holds(FactSnapshot facts, Unifier unifier) {
+    return solve(facts, unifier, solution -> true);
+  }
+
+  /**
+   * Return all unifiers under which the condition holds in {@code facts}.
+   * 
+   * @param facts facts against which the condition is evaluated
+   * @param unifier bindings under which the condition is evaluated
+   * @return list of solutions
+   */
+  default List<Unifier> solutions(FactSnapshot facts, Unifier unifier) {
+    List<Unifier> solutions = new ArrayList<>();
+    solve(facts, unifier, solution -> {
+      solutions.add(solution);
+      return false;
+    });
+    return solutions;
+  }
+}
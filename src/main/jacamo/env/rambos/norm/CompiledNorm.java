@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.norm;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import jason.asSemantics.Unifier;
+import jason.asSyntax.Literal;
+
+/**
+ * Norm whose activation condition, maintenance condition, and aim have been compiled by
+ * {@link ConditionCompiler}, so that the norm can be checked against {@link FactSnapshot}s.
+ * 
+ * Contents other than {@link RegulationContent}s have neither maintenance condition nor aim, so
+ * their maintenance condition always holds, whereas their aim never does.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class CompiledNorm {
+  private final Norm norm;
+  private final Literal literal;
+  private final CompiledCondition condition;
+  private final CompiledCondition maintenanceCondition;
+  private final CompiledCondition aim;
+  // Conjunction of the activation and maintenance conditions
+  private final CompiledCondition activation;
+  // Predicates the activation and maintenance conditions depend on
+  private final ConditionDependencies dependencies;
+
+  private CompiledNorm(Norm norm) {
+    this.norm = norm;
+    literal = norm.toLiteral();
+    condition = ConditionCompiler.compile(norm.getCondition());
+    NormContent content = norm.getContent();
+    if (content instanceof RegulationContent) {
+      RegulationContent regulation = (RegulationContent) content;
+      maintenanceCondition = ConditionCompiler.compile(regulation.getMaintenanceCondition());
+      aim = ConditionCompiler.compile(regulation.getAim());
+      dependencies = ConditionDependencies.of(norm.getCondition(),
+          regulation.getMaintenanceCondition());
+    } else {
+      maintenanceCondition = ConditionCompiler.TRUE;
+      aim = ConditionCompiler.FALSE;
+      dependencies = ConditionDependencies.of(norm.getCondition());
+    }
+    activation = (facts, unifier, action) -> condition.solve(facts, unifier,
+        solution -> maintenanceCondition.solve(facts, solution, action));
+  }
+
+  /**
+   * Compile the conditions of {@code norm}.
+   * 
+   * @param norm norm to be compiled
+   * @return compiled norm
+   */
+  public static CompiledNorm of(Norm norm) {
+    return new CompiledNorm(norm);
+  }
+
+  /** Return norm which has been compiled. */
+  public Norm getNorm() {
+    return norm;
+  }
+
+  /** Return compiled activation condition of the norm. */
+  public CompiledCondition getCondition() {
+    return condition;
+  }
+
+  /** Return compiled maintenance condition of the content of the norm. */
+  public CompiledCondition getMaintenanceCondition() {
+    return maintenanceCondition;
+  }
+
+  /** Return compiled aim of the content of the norm. */
+  public CompiledCondition getAim() {
+    return aim;
+  }
+
+  /**
+   * Return dependencies of the activation and maintenance conditions, i.e. of the active instances
+   * of the norm.
+   */
+  public ConditionDependencies getDependencies() {
+    return dependencies;
+  }
+
+  /**
+   * Return the instances of the norm whose activation and maintenance conditions hold in
+   * {@code facts}, i.e. the literal representation of the norm with the bindings of each solution
+   * applied.
+   * 
+   * @param facts facts against which the norm is checked
+   * @return set of active instances
+   */
+  public Set<Literal> getActiveInstances(FactSnapshot facts) {
+    Set<Literal> instances = new LinkedHashSet<>();
+    activation.solve(facts, new Unifier(), solution -> {
+      instances.add((Literal) literal.capply(solution));
+      return false;
+    });
+    return instances;
+  }
+
+  /**
+   * Return whether the maintenance condition of {@code instance} holds in {@code facts}.
+   * 
+   * @param instance instance of the norm, possibly annotated
+   * @param facts facts against which the instance is checked
+   * @return {@code true} if the maintenance condition holds
+   * @throws IllegalArgumentException if {@code instance} is not an instance of the norm
+   */
+  public boolean isMaintained(Literal instance, FactSnapshot facts) {
+    return maintenanceCondition.holds(facts, bindingsOf(instance));
+  }
+
+  /**
+   * Return whether the aim of {@code instance} has been achieved in {@code facts}.
+   * 
+   * @param instance instance of the norm, possibly annotated
+   * @param facts facts against which the instance is checked
+   * @return {@code true} if the aim holds
+   * @throws IllegalArgumentException if {@code instance} is not an instance of the norm
+   */
+  public boolean isAchieved(Literal instance, FactSnapshot facts) {
+    return aim.holds(facts, bindingsOf(instance));
+  }
+
+  private Unifier bindingsOf(Literal instance) {
+    Unifier unifier = new Unifier();
+    if (!unifier.unifies(literal, instance))
+      throw new IllegalArgumentException(instance + " is not an instance of norm " + norm.getId());
+    return unifier;
+  }
+}
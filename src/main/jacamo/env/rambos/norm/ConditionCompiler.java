@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.norm;
+
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+import jason.asSemantics.Unifier;
+import jason.asSyntax.Literal;
+import jason.asSyntax.LogExpr;
+import jason.asSyntax.LogicalFormula;
+import jason.asSyntax.RelExpr;
+import jason.asSyntax.Term;
+import jason.asSyntax.VarTerm;
+
+/**
+ * Compiler of logical formulas into {@link CompiledCondition}s.
+ * 
+ * Rather than interpreting a formula through Jason on every evaluation, the formula is analysed
+ * once and turned into a tree of evaluators, each specialised to its construct:
+ * <ul>
+ * <li>literals are matched only against the facts with the same functor and arity, which are
+ * narrowed down by their first argument whenever it is known, and ground literals without
+ * annotations are looked up directly;</li>
+ * <li>relational expressions compare their sides without going through Jason, and are folded into
+ * constants when they are ground;</li>
+ * <li>conjunctions, disjunctions and negations are simplified when any of their operands is
+ * constant, and otherwise pass solutions from one operand to the other.</li>
+ * </ul>
+ * Any other construct, such as internal actions, is evaluated by Jason against an agent whose
+ * belief base holds the facts of the snapshot.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class ConditionCompiler {
+  /** Condition which always holds. */
+  public static final CompiledCondition TRUE = (facts, unifier, action) -> action.test(unifier);
+
+  /** Condition which never holds. */
+  public static final CompiledCondition FALSE = (facts, unifier, action) -> false;
+
+  private ConditionCompiler() {}
+
+  /**
+   * Compile {@code formula} into an evaluator over fact snapshots.
+   * 
+   * @param formula formula to be compiled, where {@code null} stands for an absent condition
+   * @return evaluator of {@code formula}, which holds if {@code formula} is {@code null}
+   */
+  public static CompiledCondition compile(LogicalFormula formula) {
+    if (formula == null || formula == Literal.LTrue)
+      return TRUE;
+    if (formula == Literal.LFalse)
+      return FALSE;
+    if (formula instanceof LogExpr) {
+      LogExpr expr = (LogExpr) formula;
+      switch (expr.getOp()) {
+        case and:
+          return and(compile(expr.getLHS()), compile(expr.getRHS()));
+        case or:
+          return or(compile(expr.getLHS()), compile(expr.getRHS()));
+        case not:
+          return not(compile(expr.getLHS()));
+        default:
+      }
+    } else if (formula instanceof RelExpr) {
+      return relation((RelExpr) formula);
+    } else if (isPattern(formula)) {
+      return match((Literal) formula);
+    }
+    return fallback(formula);
+  }
+
+  /** Return whether {@code formula} is a literal which can be matched against facts. */
+  static boolean isPattern(LogicalFormula formula) {
+    return formula instanceof Literal && !(formula instanceof LogExpr)
+        && !(formula instanceof RelExpr) && !((Literal) formula).isVar()
+        && !((Literal) formula).isInternalAction() && formula != Literal.LTrue
+        && formula != Literal.LFalse;
+  }
+
+  private static CompiledCondition and(CompiledCondition left, CompiledCondition right) {
+    if (left == FALSE || right == FALSE)
+      return FALSE;
+    if (left == TRUE)
+      return right;
+    if (right == TRUE)
+      return left;
+    return (facts, unifier, action) -> left.solve(facts, unifier,
+        solution -> right.solve(facts, solution, action));
+  }
+
+  private static CompiledCondition or(CompiledCondition left, CompiledCondition right) {
+    if (left == FALSE)
+      return right;
+    if (right == FALSE)
+      return left;
+    return (facts, unifier, action) -> left.solve(facts, unifier, action)
+        || right.solve(facts, unifier, action);
+  }
+
+  private static CompiledCondition not(CompiledCondition negated) {
+    if (negated == TRUE)
+      return FALSE;
+    if (negated == FALSE)
+      return TRUE;
+    return (facts, unifier, action) -> !negated.holds(facts, unifier) && action.test(unifier);
+  }
+
+  private static CompiledCondition match(Literal pattern) {
+    String key = FactSnapshot.keyOf(pattern);
+    if (pattern.isGround() && !pattern.hasAnnot())
+      return (facts, unifier, action) -> facts.containsPlain(pattern) && action.test(unifier);
+
+    Term firstArg = pattern.getArity() == 0 ? null : pattern.getTerm(0);
+    if (firstArg != null && FactSnapshot.isIndexable(firstArg)) {
+      return (facts, unifier, action) -> unify(pattern, facts.candidates(key, firstArg), unifier,
+          action);
+    }
+    if (firstArg instanceof VarTerm && !((VarTerm) firstArg).hasAnnot()) {
+      VarTerm var = (VarTerm) firstArg;
+      return (facts, unifier, action) -> {
+        Term value = unifier.get(var);
+        Iterable<Literal> candidates = value != null && FactSnapshot.isIndexable(value)
+            ? facts.candidates(key, value)
+            : facts.candidates(key);
+        return unify(pattern, candidates, unifier, action);
+      };
+    }
+    return (facts, unifier, action) -> unify(pattern, facts.candidates(key), unifier, action);
+  }
+
+  private static boolean unify(Literal pattern, Iterable<Literal> candidates, Unifier unifier,
+      Predicate<Unifier> action) {
+    for (Literal fact : candidates) {
+      Unifier solution = unifier.clone();
+      if (solution.unifiesNoUndo(pattern, fact) && action.test(solution))
+        return true;
+    }
+    return false;
+  }
+
+  private static CompiledCondition relation(RelExpr expr) {
+    if (expr.isGround())
+      return expr.logicalConsequence(null, new Unifier())
+                 .hasNext() ? TRUE : FALSE;
+
+    Term lhs = expr.getLHS();
+    Term rhs = expr.getRHS();
+    // Sides are applied as in RelExpr#logicalConsequence, unless they are constant
+    Term lhsValue = lhs.isGround() ? lhs.capply(new Unifier()) : null;
+    Term rhsValue = rhs.isGround() ? rhs.capply(new Unifier()) : null;
+    switch (expr.getOp()) {
+      case gt:
+        return (facts, unifier, action) -> value(lhsValue, lhs, unifier).compareTo(
+            value(rhsValue, rhs, unifier)) > 0 && action.test(unifier);
+      case gte:
+        return (facts, unifier, action) -> value(lhsValue, lhs, unifier).compareTo(
+            value(rhsValue, rhs, unifier)) >= 0 && action.test(unifier);
+      case lt:
+        return (facts, unifier, action) -> value(lhsValue, lhs, unifier).compareTo(
+            value(rhsValue, rhs, unifier)) < 0 && action.test(unifier);
+      case lte:
+        return (facts, unifier, action) -> value(lhsValue, lhs, unifier).compareTo(
+            value(rhsValue, rhs, unifier)) <= 0 && action.test(unifier);
+      case eq:
+        return (facts, unifier, action) -> value(lhsValue, lhs, unifier).equals(
+            value(rhsValue, rhs, unifier)) && action.test(unifier);
+      case dif:
+        return (facts, unifier, action) -> !value(lhsValue, lhs, unifier).equals(
+            value(rhsValue, rhs, unifier)) && action.test(unifier);
+      case unify:
+        return (facts, unifier, action) -> {
+          Unifier solution = unifier.clone();
+          return solution.unifiesNoUndo(value(lhsValue, lhs, unifier),
+              value(rhsValue, rhs, unifier)) && action.test(solution);
+        };
+      default:
+        return fallback(expr);
+    }
+  }
+
+  /** Return {@code constant} if not {@code null}, or else {@code term} with unifier applied. */
+  private static Term value(Term constant, Term term, Unifier unifier) {
+    return constant != null ? constant : term.capply(unifier);
+  }
+
+  private static CompiledCondition fallback(LogicalFormula formula) {
+    return (facts, unifier, action) -> {
+      Iterator<Unifier> solutions = formula.logicalConsequence(facts.getAgent(), unifier.clone());
+      while (solutions.hasNext()) {
+        if (action.test(solutions.next()))
+          return true;
+      }
+      return false;
+    };
+  }
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.norm;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import jason.asSyntax.Literal;
+import jason.asSyntax.LogExpr;
+import jason.asSyntax.LogicalFormula;
+import jason.asSyntax.RelExpr;
+
+/**
+ * Predicates on which the truth of some logical formulas depends, i.e. the functors and arities of
+ * the facts which may change the outcome of evaluating the formulas.
+ * 
+ * Relational expressions depend on no predicate, and literals on their own. Formulas with
+ * constructs whose dependencies cannot be determined, such as internal actions, are said to be
+ * opaque, and may be affected by any fact.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class ConditionDependencies {
+  /** Dependencies of formulas which depend on no predicate. */
+  public static final ConditionDependencies NONE =
+      new ConditionDependencies(Collections.emptySet(), false);
+
+  // functor/arity keys, as in FactSnapshot
+  private final Set<String> predicates;
+  private final boolean opaque;
+
+  private ConditionDependencies(Set<String> predicates, boolean opaque) {
+    this.predicates = predicates;
+    this.opaque = opaque;
+  }
+
+  /**
+   * Return dependencies of the given formulas as a whole.
+   * 
+   * @param formulas formulas to be analysed, where {@code null} stands for an absent condition
+   * @return dependencies of {@code formulas}
+   */
+  public static ConditionDependencies of(LogicalFormula... formulas) {
+    Set<String> predicates = new HashSet<>();
+    boolean opaque = false;
+    for (LogicalFormula formula : formulas) {
+      opaque |= !collect(formula, predicates);
+    }
+    if (predicates.isEmpty() && !opaque)
+      return NONE;
+    return new ConditionDependencies(Collections.unmodifiableSet(predicates), opaque);
+  }
+
+  /**
+   * Add the predicates on which {@code formula} depends to {@code predicates}.
+   * 
+   * @return {@code false} if {@code formula} is opaque
+   */
+  private static boolean collect(LogicalFormula formula, Set<String> predicates) {
+    if (formula == null || formula == Literal.LTrue || formula == Literal.LFalse
+        || formula instanceof RelExpr)
+      return true;
+    if (formula instanceof LogExpr) {
+      LogExpr expr = (LogExpr) formula;
+      if (expr.isUnary())
+        return collect(expr.getLHS(), predicates);
+      boolean transparent = collect(expr.getLHS(), predicates);
+      return collect(expr.getRHS(), predicates) && transparent;
+    }
+    if (ConditionCompiler.isPattern(formula)) {
+      predicates.add(FactSnapshot.keyOf((Literal) formula));
+      return true;
+    }
+    return false;
+  }
+
+  /** Return functors and arities on which the formulas depend, e.g. {@code p/1} or {@code ~q/0}. */
+  public Set<String> getPredicates() {
+    return predicates;
+  }
+
+  /** Return whether the formulas may be affected by facts of any predicate. */
+  public boolean isOpaque() {
+    return opaque;
+  }
+
+  /**
+   * Return whether adding or removing {@code fact} may change the outcome of the formulas.
+   * 
+   * @param fact fact which changed
+   * @return {@code true} if the formulas depend on the predicate of {@code fact}, or are opaque
+   */
+  public boolean dependsOn(Literal fact) {
+    return opaque || predicates.contains(FactSnapshot.keyOf(fact));
+  }
+}
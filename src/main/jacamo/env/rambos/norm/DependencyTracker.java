@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.norm;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import jason.asSyntax.Literal;
+
+/**
+ * Tracker of the items, e.g. norms, which have to be re-evaluated because a fact their conditions
+ * depend on was added or removed.
+ * 
+ * Each item is registered along with its {@link ConditionDependencies}, and is marked as affected
+ * whenever a fact of one of its predicates is touched. Thus the cost of touching a fact depends
+ * only on the number of items which depend on its predicate, and the items to be re-evaluated are
+ * only those affected since the last call to {@link #drainAffected()}, rather than all of them.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @param <T> type of the items
+ * @author igorcadelima
+ *
+ */
+public final class DependencyTracker<T> {
+  // functor/arity -> items which depend on it
+  private final Map<String, Set<T>> dependents = new HashMap<>();
+  // Items which may be affected by any fact
+  private final Set<T> opaque = new LinkedHashSet<>();
+  private final Map<T, ConditionDependencies> dependencies = new HashMap<>();
+  private Set<T> affected = new LinkedHashSet<>();
+
+  /**
+   * Register {@code item}, which is marked as affected so that it is evaluated for the first time.
+   * 
+   * @param item item to be registered
+   * @param itemDependencies dependencies of the conditions of the item
+   * @throws IllegalArgumentException if the item has already been registered
+   */
+  public void add(T item, ConditionDependencies itemDependencies) {
+    if (dependencies.putIfAbsent(item, itemDependencies) != null)
+      throw new IllegalArgumentException(item + " has already been added");
+    for (String predicate : itemDependencies.getPredicates()) {
+      dependents.computeIfAbsent(predicate, key -> new LinkedHashSet<>())
+                .add(item);
+    }
+    if (itemDependencies.isOpaque())
+      opaque.add(item);
+    affected.add(item);
+  }
+
+  /**
+   * Unregister {@code item}.
+   * 
+   * @param item item to be unregistered
+   * @return {@code true} if the item was registered
+   */
+  public boolean remove(T item) {
+    ConditionDependencies itemDependencies = dependencies.remove(item);
+    if (itemDependencies == null)
+      return false;
+    for (String predicate : itemDependencies.getPredicates()) {
+      Set<T> items = dependents.get(predicate);
+      if (items.remove(item) && items.isEmpty())
+        dependents.remove(predicate);
+    }
+    opaque.remove(item);
+    affected.remove(item);
+    return true;
+  }
+
+  /** Return whether {@code item} is registered. */
+  public boolean contains(T item) {
+    return dependencies.containsKey(item);
+  }
+
+  /**
+   * Mark the items which depend on the predicate of {@code fact} as affected.
+   * 
+   * @param fact fact which has been added or removed
+   */
+  public void touch(Literal fact) {
+    Set<T> items = dependents.get(FactSnapshot.keyOf(fact));
+    if (items != null)
+      affected.addAll(items);
+    affected.addAll(opaque);
+  }
+
+  /** Return whether any item has been affected since the last call to {@link #drainAffected()}. */
+  public boolean hasAffected() {
+    return !affected.isEmpty();
+  }
+
+  /**
+   * Return the items affected since the last call, in the order they were affected, and start
+   * tracking anew.
+   * 
+   * @return affected items
+   */
+  public Set<T> drainAffected() {
+    Set<T> drained = affected;
+    affected = new LinkedHashSet<>();
+    return drained;
+  }
+}
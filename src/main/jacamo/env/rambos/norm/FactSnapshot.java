@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.norm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import jason.asSemantics.Agent;
+import jason.asSyntax.Literal;
+import jason.asSyntax.Term;
+import rambos.common.PersistentTreeMap;
+
+/**
+ * Immutable set of ground facts, indexed for the evaluation of {@link CompiledCondition}s.
+ * 
+ * Facts are grouped by functor and arity, and each group is further split by the first argument
+ * of its facts whenever the argument is an atom, a number, or a string. Thus a literal is only
+ * matched against the facts which may unify with it, rather than against the whole snapshot.
+ * 
+ * Groups and their splits are kept in {@link PersistentTreeMap}s, and are shared between a
+ * snapshot and those derived from it through {@link #with(Iterable, Iterable)}. Deriving a
+ * snapshot thus rebuilds only the splits of the facts which changed, i.e. the facts of the same
+ * predicate with the same first argument, rather than whole groups.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class FactSnapshot {
+  private static final Literal[] NO_FACTS = new Literal[0];
+  // Key of the facts whose first argument cannot be indexed, or which have no arguments
+  private static final Object UNINDEXED = new Object();
+  // Orders indexable first arguments by kind, and then as Jason orders terms of the same kind
+  private static final Comparator<Term> ARG_ORDER =
+      Comparator.comparingInt(FactSnapshot::kindOf)
+                .thenComparing(Comparator.naturalOrder());
+
+  /** Snapshot without facts. */
+  public static final FactSnapshot EMPTY =
+      new FactSnapshot(PersistentTreeMap.empty(Comparator.naturalOrder()), 0);
+
+  // functor/arity -> facts with the same functor and arity
+  private final PersistentTreeMap<String, Group> groups;
+  private final int size;
+  // Agent whose belief base holds the facts, used for constructs that are not compiled
+  private Agent agent;
+
+  private FactSnapshot(PersistentTreeMap<String, Group> groups, int size) {
+    this.groups = groups;
+    this.size = size;
+  }
+
+  /**
+   * Return a new snapshot of the given facts.
+   * 
+   * @param facts ground literals
+   * @return snapshot of {@code facts}
+   * @throws IllegalArgumentException if any of the facts is not ground
+   */
+  public static FactSnapshot of(Iterable<Literal> facts) {
+    return EMPTY.with(facts, Collections.emptySet());
+  }
+
+  /**
+   * Return a new snapshot with the facts of this one, plus {@code added} and minus
+   * {@code removed}. Facts both added and removed are removed.
+   * 
+   * If an agent has been created for this snapshot, it is handed over to the derived snapshot
+   * along with the changes, rather than created again for it. This snapshot then creates a new
+   * agent if it is asked for one later.
+   * 
+   * @param added ground literals to be added
+   * @param removed literals to be removed
+   * @return derived snapshot
+   * @throws IllegalArgumentException if any of the added facts is not ground
+   */
+  public FactSnapshot with(Iterable<Literal> added, Iterable<Literal> removed) {
+    // functor/arity -> first argument -> facts of the splits which changed
+    Map<String, Map<Object, Set<Literal>>> changed = new LinkedHashMap<>();
+    for (Literal fact : added) {
+      if (!fact.isGround())
+        throw new IllegalArgumentException("Fact should be ground: " + fact);
+      changedSplit(changed, fact).add(fact);
+    }
+    for (Literal fact : removed) {
+      changedSplit(changed, fact).remove(fact);
+    }
+    if (changed.isEmpty())
+      return this;
+
+    PersistentTreeMap<String, Group> newGroups = groups;
+    int newSize = size;
+    List<Literal> addedFacts = new ArrayList<>();
+    List<Literal> removedFacts = new ArrayList<>();
+    for (Map.Entry<String, Map<Object, Set<Literal>>> entry : changed.entrySet()) {
+      Group group = groups.get(entry.getKey());
+      if (group == null)
+        group = Group.EMPTY;
+      Group newGroup = group.with(entry.getValue(), addedFacts, removedFacts);
+      newSize += newGroup.size - group.size;
+      newGroups = newGroup.size == 0 ? newGroups.remove(entry.getKey())
+          : newGroups.put(entry.getKey(), newGroup);
+    }
+
+    FactSnapshot snapshot = new FactSnapshot(newGroups, newSize);
+    synchronized (this) {
+      if (agent != null) {
+        for (Literal fact : removedFacts) {
+          agent.getBB()
+               .remove(fact);
+        }
+        for (Literal fact : addedFacts) {
+          agent.getBB()
+               .add(fact.copy());
+        }
+        snapshot.agent = agent;
+        agent = null;
+      }
+    }
+    return snapshot;
+  }
+
+  /** Return the facts of the split of {@code fact}, copying them if not copied yet. */
+  private Set<Literal> changedSplit(Map<String, Map<Object, Set<Literal>>> changed,
+      Literal fact) {
+    String key = keyOf(fact);
+    return changed.computeIfAbsent(key, k -> new HashMap<>())
+                  .computeIfAbsent(splitOf(fact), split -> {
+                    Group group = groups.get(key);
+                    Split facts = group == null ? null : group.get(split);
+                    return facts == null ? new LinkedHashSet<>()
+                        : new LinkedHashSet<>(facts.set);
+                  });
+  }
+
+  /** Return whether the snapshot has {@code fact}, including its annotations. */
+  public boolean contains(Literal fact) {
+    Split split = splitOf(groups.get(keyOf(fact)), fact);
+    return split != null && split.set.contains(fact);
+  }
+
+  /** Return new set with the facts in the snapshot. */
+  public Set<Literal> getFacts() {
+    Set<Literal> facts = new LinkedHashSet<>();
+    for (Group group : groups.values()) {
+      group.all()
+           .forEach(facts::add);
+    }
+    return facts;
+  }
+
+  /** Return number of facts in the snapshot. */
+  public int size() {
+    return size;
+  }
+
+  /** Return key of the facts with the same functor and arity as {@code l}. */
+  static String keyOf(Literal l) {
+    return (l.negated() ? "~" : "") + l.getFunctor() + "/" + l.getArity();
+  }
+
+  /** Return whether {@code term} can be used to look facts up by their first argument. */
+  static boolean isIndexable(Term term) {
+    return term.isAtom() || term.isString() || (term.isNumeric() && !term.isArithExpr());
+  }
+
+  private static int kindOf(Term term) {
+    return term.isNumeric() ? 0 : term.isString() ? 1 : 2;
+  }
+
+  /** Return key of the split of its group to which {@code fact} belongs. */
+  private static Object splitOf(Literal fact) {
+    if (fact.getArity() == 0)
+      return UNINDEXED;
+    Term firstArg = fact.getTerm(0);
+    return isIndexable(firstArg) ? firstArg : UNINDEXED;
+  }
+
+  /** Return split of {@code group} to which {@code fact} belongs, if any. */
+  private static Split splitOf(Group group, Literal fact) {
+    return group == null ? null : group.get(splitOf(fact));
+  }
+
+  /**
+   * Return whether the snapshot has a fact which is equal to the ground literal {@code l} without
+   * annotations, i.e. whether {@code l} unifies with any fact.
+   */
+  boolean containsPlain(Literal l) {
+    Split split = splitOf(groups.get(keyOf(l)), l);
+    return split != null && split.plain.contains(l);
+  }
+
+  /** Return facts with the given key. */
+  Iterable<Literal> candidates(String key) {
+    Group group = groups.get(key);
+    return group == null ? Collections.emptyList() : group.all();
+  }
+
+  /**
+   * Return facts with the given key which may unify with a literal whose first argument is
+   * {@code firstArg}, which should be indexable.
+   */
+  Iterable<Literal> candidates(String key, Term firstArg) {
+    Group group = groups.get(key);
+    if (group == null)
+      return Collections.emptyList();
+    Split indexed = group.byFirstArg.get(firstArg);
+    if (indexed == null)
+      return group.unindexed.list;
+    if (group.unindexed.set.isEmpty())
+      return indexed.list;
+    return concat(Arrays.asList(indexed.list, group.unindexed.list));
+  }
+
+  /**
+   * Return agent whose belief base holds the facts of the snapshot, which is created on the first
+   * call unless it has been handed over from the snapshot this one was derived from.
+   */
+  synchronized Agent getAgent() {
+    if (agent == null) {
+      Agent newAgent = new Agent();
+      newAgent.initAg();
+      for (Group group : groups.values()) {
+        for (Literal fact : group.all()) {
+          newAgent.getBB()
+                  .add(fact.copy());
+        }
+      }
+      agent = newAgent;
+    }
+    return agent;
+  }
+
+  /** Return iterable over the elements of {@code iterables}, one after the other. */
+  private static Iterable<Literal> concat(List<Iterable<Literal>> iterables) {
+    return () -> new Iterator<Literal>() {
+      private final Iterator<Iterable<Literal>> rest = iterables.iterator();
+      private Iterator<Literal> current = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && rest.hasNext()) {
+          current = rest.next()
+                        .iterator();
+        }
+        return current.hasNext();
+      }
+
+      @Override
+      public Literal next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+        return current.next();
+      }
+    };
+  }
+
+  /** Facts with the same functor and arity, split by their first argument. */
+  private static final class Group {
+    private static final Group EMPTY =
+        new Group(Split.EMPTY, PersistentTreeMap.empty(ARG_ORDER), 0);
+
+    // Facts whose first argument cannot be indexed, which may unify with any first argument
+    private final Split unindexed;
+    // first argument -> facts with the argument
+    private final PersistentTreeMap<Term, Split> byFirstArg;
+    private final int size;
+
+    private Group(Split unindexed, PersistentTreeMap<Term, Split> byFirstArg, int size) {
+      this.unindexed = unindexed;
+      this.byFirstArg = byFirstArg;
+      this.size = size;
+    }
+
+    /** Return split with the given key, or {@code null} if there is none. */
+    private Split get(Object split) {
+      return split == UNINDEXED ? unindexed : byFirstArg.get((Term) split);
+    }
+
+    /**
+     * Return group whose splits are replaced by the {@code changed} ones, adding the facts which
+     * were added to and removed from the group to {@code added} and {@code removed}.
+     */
+    private Group with(Map<Object, Set<Literal>> changed, List<Literal> added,
+        List<Literal> removed) {
+      Split newUnindexed = unindexed;
+      PersistentTreeMap<Term, Split> newByFirstArg = byFirstArg;
+      int newSize = size;
+      for (Map.Entry<Object, Set<Literal>> entry : changed.entrySet()) {
+        Split previous = get(entry.getKey());
+        if (previous == null)
+          previous = Split.EMPTY;
+        Split split = entry.getValue()
+                           .isEmpty() ? Split.EMPTY : new Split(entry.getValue());
+        for (Literal fact : previous.facts) {
+          if (!split.set.contains(fact))
+            removed.add(fact);
+        }
+        for (Literal fact : split.facts) {
+          if (!previous.set.contains(fact))
+            added.add(fact);
+        }
+        newSize += split.facts.length - previous.facts.length;
+        if (entry.getKey() == UNINDEXED)
+          newUnindexed = split;
+        else if (split == Split.EMPTY)
+          newByFirstArg = newByFirstArg.remove((Term) entry.getKey());
+        else
+          newByFirstArg = newByFirstArg.put((Term) entry.getKey(), split);
+      }
+      return new Group(newUnindexed, newByFirstArg, newSize);
+    }
+
+    /** Return all facts of the group. */
+    private Iterable<Literal> all() {
+      if (byFirstArg.isEmpty())
+        return unindexed.list;
+      List<Iterable<Literal>> splits = new ArrayList<>(byFirstArg.size() + 1);
+      splits.add(unindexed.list);
+      for (Split split : byFirstArg.values()) {
+        splits.add(split.list);
+      }
+      return concat(splits);
+    }
+  }
+
+  /** Facts of a group with the same first argument, or whose first argument cannot be indexed. */
+  private static final class Split {
+    private static final Split EMPTY = new Split(Collections.emptySet());
+
+    private final Literal[] facts;
+    private final List<Literal> list;
+    private final Set<Literal> set;
+    // Facts without annotations, for the lookup of ground literals without annotations
+    private final Set<Literal> plain = new HashSet<>();
+
+    private Split(Set<Literal> split) {
+      set = split;
+      facts = split.toArray(NO_FACTS);
+      list = Collections.unmodifiableList(Arrays.asList(facts));
+      for (Literal fact : facts) {
+        Literal plainFact = fact;
+        if (fact.hasAnnot())
+          plainFact = fact.copy()
+                          .clearAnnots();
+        plain.add(plainFact);
+      }
+    }
+  }
+}
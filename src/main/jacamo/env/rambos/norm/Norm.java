@@ -26,9 +26,11 @@ import jason.asSyntax.Atom;
 import jason.asSyntax.LogicalFormula;
 import rambos.common.Literable;
 import rambos.common.Status;
-import rambos.sanction.Sanction;
 
 /**
+ * A norm, which is an immutable value. Changes to a norm are made by creating new norms through
+ * its {@code with*} methods.
+ * 
  * @author igorcadelima
  *
  */
@@ -60,33 +62,31 @@ public interface Norm extends Literable {
   NormContent getContent();
 
   /**
-   * @return sanctions linked to the norm
+   * @return ids of the sanctions linked to the norm
    */
-  Set<Sanction> getLinkedSanctions();
+  Set<Atom> getLinkedSanctions();
 
   /**
-   * @param sanction sanction to be linked with the norm
-   * @return {@code true} if the sanction was successfully added
-   */
-  boolean link(Sanction sanction);
-
-  /**
-   * @param sanctionId id of the sanction to be unlinked
-   * @return {@code true} if the sanction was successfully unlinked
+   * Return a norm which is equal to this one but with the given {@code status}.
+   * 
+   * @param status status of the new norm
+   * @return norm with the given status, or this norm if its status is already {@code status}
    */
-  boolean unlink(Atom sanctionId);
+  Norm withStatus(Status status);
 
   /**
-   * Enable the norm changing its status to {@link Status#ENABLED}.
+   * Return a norm which is equal to this one but also linked to the given sanction.
    * 
-   * @return {@code true} is status was previously {@link Status#DISABLED}.
+   * @param sanctionId id of the sanction to be linked with the norm
+   * @return norm linked to the sanction, or this norm if the sanction is already linked to it
    */
-  boolean enable();
+  Norm withLink(Atom sanctionId);
 
   /**
-   * Disable the norm changing its status to {@link Status#DISABLED}.
+   * Return a norm which is equal to this one but not linked to the given sanction.
    * 
-   * @return {@code true} is status was previously {@link Status#ENABLED}.
+   * @param sanctionId id of the sanction to be unlinked
+   * @return norm not linked to the sanction, or this norm if the sanction is not linked to it
    */
-  boolean disable();
+  Norm withoutLink(Atom sanctionId);
 }
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.norm;
+
+import jason.asSyntax.Literal;
+import jason.asSyntax.LogicalFormula;
+import rambos.common.LowercaseEnum;
+
+/**
+ * Attributes of norms by which they can be looked up, each of which yields a string value for any
+ * given norm.
+ * 
+ * @author igorcadelima
+ *
+ */
+public enum NormAttribute implements LowercaseEnum {
+  ISSUER {
+    @Override
+    public String of(Norm norm) {
+      return norm.getIssuer()
+                 .getFunctor();
+    }
+  },
+
+  /** Type of the content, i.e. {@code obligation}, {@code permission}, {@code prohibition}, etc. */
+  CONTENT_TYPE {
+    @Override
+    public String of(Norm norm) {
+      return norm.getContent()
+                 .getFunctor();
+    }
+  },
+
+  /** Target of regulation contents, which regimentation contents lack. */
+  TARGET {
+    @Override
+    public String of(Norm norm) {
+      NormContent content = norm.getContent();
+      if (content instanceof RegulationContent)
+        return ((RegulationContent) content).getTarget()
+                                            .toString();
+      return null;
+    }
+  },
+
+  STATUS {
+    @Override
+    public String of(Norm norm) {
+      return norm.getStatus()
+                 .lowercase();
+    }
+  },
+
+  /**
+   * Top-level functor of the activation condition, e.g. {@code &} for conjunctions, or the functor
+   * of the literal if the condition is a plain literal. Jason pads the functors of some operators
+   * with spaces, e.g. {@code " & "}, so the functor is trimmed.
+   */
+  CONDITION_FUNCTOR {
+    @Override
+    public String of(Norm norm) {
+      LogicalFormula condition = norm.getCondition();
+      if (condition instanceof Literal)
+        return ((Literal) condition).getFunctor()
+                                    .trim();
+      return condition.toString();
+    }
+  };
+
+  /**
+   * Return the value of this attribute in {@code norm}.
+   * 
+   * @param norm norm whose value is to be returned
+   * @return value of this attribute, or {@code null} if the norm does not have this attribute
+   */
+  public abstract String of(Norm norm);
+}
@@ -49,12 +49,14 @@ public final class Norms {
    * @return copy of {@code norm}
    */
   public static Norm newInstance(Norm norm) {
-    return new BasicNorm.Builder().id(norm.getId())
-                                  .status(norm.getStatus())
-                                  .issuer(norm.getIssuer())
-                                  .condition(norm.getCondition())
-                                  .content(norm.getContent())
-                                  .build();
+    Builder builder = new BasicNorm.Builder().id(norm.getId())
+                                             .status(norm.getStatus())
+                                             .issuer(norm.getIssuer())
+                                             .condition(norm.getCondition())
+                                             .content(norm.getContent());
+    norm.getLinkedSanctions()
+        .forEach(builder::link);
+    return builder.build();
   }
 
   /**
@@ -82,6 +84,63 @@ public final class Norms {
     }
   }
 
+  /**
+   * Return a new norm whose properties are represented by the given strings.
+   * 
+   * @param id id of the norm
+   * @param status status of the norm
+   * @param condition activation condition of the norm, to be parsed as a formula
+   * @param issuer issuer of the norm
+   * @param content content of the norm, to be parsed as in {@link NormContents#parse(String)}
+   * @param linkedSanctions ids of the sanctions linked to the norm
+   * @return norm with the given properties
+   * @throws IllegalArgumentException if condition or content cannot be parsed
+   */
+  public static Norm of(String id, Status status, String condition, String issuer,
+      String content, Iterable<String> linkedSanctions) {
+    LogicalFormula conditionFormula;
+    try {
+      conditionFormula = ASSyntax.parseFormula(condition);
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("Norm " + id + " cannot be parsed: " + e.getMessage());
+    }
+    NormContent normContent = NormContents.parse(content);
+    if (normContent == null)
+      throw new IllegalArgumentException("Norm " + id + " cannot be parsed: invalid content");
+
+    Builder builder = new Builder();
+    builder.id(ASSyntax.createAtom(id))
+           .status(status)
+           .condition(conditionFormula)
+           .issuer(ASSyntax.createAtom(issuer))
+           .content(normContent);
+    linkedSanctions.forEach(sanctionId -> builder.link(ASSyntax.createAtom(sanctionId)));
+    return builder.build();
+  }
+
+  /**
+   * Return a new norm with the given properties.
+   * 
+   * @param id id of the norm
+   * @param status status of the norm
+   * @param condition activation condition of the norm
+   * @param issuer issuer of the norm
+   * @param content literal representation of the content of the norm
+   * @param linkedSanctions ids of the sanctions linked to the norm
+   * @return norm with the given properties
+   */
+  public static Norm of(Atom id, Status status, LogicalFormula condition, Atom issuer,
+      Literal content, Iterable<Atom> linkedSanctions) {
+    Builder builder = new Builder();
+    builder.id(id)
+           .status(status)
+           .condition(condition)
+           .issuer(issuer)
+           .content(NormContents.of(content));
+    linkedSanctions.forEach(builder::link);
+    return builder.build();
+  }
+
   public static Norm of(Element el) {
     Builder builder = new Builder();
     builder.id(ASSyntax.createAtom(el.getAttribute("id")))
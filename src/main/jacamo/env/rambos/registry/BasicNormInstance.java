@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import jason.asSyntax.Atom;
+import jason.asSyntax.Literal;
+import rambos.common.id.Id;
+
+/**
+ * This class provides a basic implementation of the {@link NormInstance} interface.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class BasicNormInstance implements NormInstance {
+  private final Id id;
+  private final Literal instance;
+  private final long activationTime;
+  private State state = State.ACTIVE;
+  private long finishTime = -1;
+  // Literal representation, built upon first request and discarded upon changes
+  private volatile Literal literal;
+
+  BasicNormInstance(Id id, Literal instance, long activationTime) {
+    this.id = id;
+    this.instance = instance;
+    this.activationTime = activationTime;
+  }
+
+  @Override
+  public Id getId() {
+    return id;
+  }
+
+  @Override
+  public Atom getNormId() {
+    return (Atom) instance.getTerm(0);
+  }
+
+  @Override
+  public Literal getInstance() {
+    return instance;
+  }
+
+  @Override
+  public State getState() {
+    return state;
+  }
+
+  @Override
+  public long getActivationTime() {
+    return activationTime;
+  }
+
+  @Override
+  public long getFinishTime() {
+    return finishTime;
+  }
+
+  @Override
+  public void finish(State state, long time) {
+    if (!state.isFinished())
+      throw new IllegalArgumentException(state.lowercase() + " is not a finished state");
+    if (this.state.isFinished())
+      throw new IllegalStateException("Norm instance " + id + " has already finished");
+    this.state = state;
+    finishTime = time;
+    literal = null;
+  }
+
+  @Override
+  public String getFunctor() {
+    return instance.getFunctor();
+  }
+
+  @Override
+  public Literal toLiteral() {
+    Literal l = literal;
+    if (l == null)
+      literal = l = NormInstances.toLiteral(this);
+    return l;
+  }
+
+  @Override
+  public String toString() {
+    return toLiteral().toString();
+  }
+
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    return id.equals(((BasicNormInstance) obj).id);
+  }
+}
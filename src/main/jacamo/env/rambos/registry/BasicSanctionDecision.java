@@ -20,11 +20,6 @@
  *******************************************************************************/
 package rambos.registry;
 
-import static jason.asSyntax.ASSyntax.createAtom;
-import static jason.asSyntax.ASSyntax.createLiteral;
-import static jason.asSyntax.ASSyntax.createNumber;
-
-import jason.asSyntax.Atom;
 import jason.asSyntax.Literal;
 import rambos.common.id.Id;
 import rambos.common.id.Uuid;
@@ -38,7 +33,7 @@ import rambos.common.id.Uuid;
 final class BasicSanctionDecision implements SanctionDecision {
   static final String FUNCTOR = "sanction_decision";
 
-  private final Id id = Uuid.newInstance();
+  private final Id id;
   private final long time;
   private final String sanctioner;
   private final String sanctionee;
@@ -47,11 +42,16 @@ final class BasicSanctionDecision implements SanctionDecision {
   private final Cause cause;
   private Efficacy efficacy = Efficacy.INDETERMINATE;
   private boolean applied;
+  // Literal representation, built upon first request and discarded upon changes
+  private volatile Literal literal;
 
   /**
    * Constructs a {@link BasicSanctionDecision} with the properties specified in {@code builder}.
+   * 
+   * A new {@link Uuid} is generated if no id has been specified in {@code builder}.
    */
   BasicSanctionDecision(SanctionDecisionBuilder builder) {
+    id = builder.id() != null ? builder.id() : Uuid.newInstance();
     time = builder.time();
     sanctioner = builder.sanctioner();
     sanctionee = builder.sanctionee();
@@ -110,6 +110,7 @@ final class BasicSanctionDecision implements SanctionDecision {
   @Override
   public void setEfficacy(Efficacy efficacy) {
     this.efficacy = efficacy;
+    literal = null;
   }
 
   @Override
@@ -120,6 +121,7 @@ final class BasicSanctionDecision implements SanctionDecision {
   @Override
   public void setApplied(boolean applied) {
     this.applied = applied;
+    literal = null;
   }
 
   @Override
@@ -129,10 +131,10 @@ final class BasicSanctionDecision implements SanctionDecision {
 
   @Override
   public Literal toLiteral() {
-    return createLiteral(getFunctor(), id.toLiteral(), createNumber(time), createAtom(sanctioner),
-        createAtom(sanctionee), createAtom(norm), createAtom(sanction),
-        createAtom(cause.lowercase()), createAtom(efficacy.lowercase()),
-        applied ? Atom.LTrue : Atom.LFalse);
+    Literal l = literal;
+    if (l == null)
+      literal = l = SanctionDecisions.toLiteral(this);
+    return l;
   }
 
   @Override
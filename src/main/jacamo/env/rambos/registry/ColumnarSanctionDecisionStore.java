@@ -0,0 +1,537 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import jason.asSyntax.Literal;
+import rambos.common.id.Id;
+import rambos.common.id.TimeOrderedId;
+import rambos.registry.SanctionDecision.Cause;
+import rambos.registry.SanctionDecision.Efficacy;
+
+/**
+ * A memory-efficient map from decision ids to sanction decisions.
+ * 
+ * Instead of keeping one object per decision, this store lays decisions out in parallel arrays
+ * (one per attribute) and interns sanctioner, sanctionee, norm, and sanction names into
+ * {@code int} symbols. Time is kept in a {@code long} column, whereas cause, efficacy, and the
+ * applied flag are packed into a single byte. Time-ordered ids are kept as their {@code long}
+ * values, whereas other ids, e.g. {@link rambos.common.id.Uuid}s, are kept as objects in a column
+ * which is only allocated once such an id is stored. Rows are located through an open-addressing
+ * hash table of {@code int}s, so with time-ordered ids no object at all is allocated per decision.
+ * 
+ * Decisions are stored by copying their attributes; {@link #get(Object)} returns a lightweight
+ * view over the row of the decision, whose setters write straight into the columns. A view must
+ * not be used after its decision is removed from the store, whereas decisions returned by
+ * {@link #put(Id, SanctionDecision)} and {@link #remove(Object)} are detached copies.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class ColumnarSanctionDecisionStore extends AbstractMap<Id, SanctionDecision> {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private static final int CAUSE_MASK = 0b0001;
+  private static final int EFFICACY_MASK = 0b0110;
+  private static final int EFFICACY_SHIFT = 1;
+  private static final int APPLIED_MASK = 0b1000;
+  private static final int OCCUPIED_MASK = 0b1_0000;
+  private static final int TIME_ORDERED_MASK = 0b10_0000;
+  private static final int ID_MASKS = OCCUPIED_MASK | TIME_ORDERED_MASK;
+
+  private static final Cause[] CAUSES = Cause.values();
+  private static final Efficacy[] EFFICACIES = Efficacy.values();
+
+  private final SymbolTable symbols = new SymbolTable();
+
+  // Columns, indexed by row
+  // Values of time-ordered ids
+  private long[] idValues;
+  // Ids which are not time-ordered, or null until one is stored
+  private Id[] otherIds;
+  private long[] times;
+  private int[] sanctioners;
+  private int[] sanctionees;
+  private int[] norms;
+  private int[] sanctions;
+  private byte[] flags;
+
+  // Rows which have been used and then released
+  private int[] freeRows;
+  private int freeRowsCount;
+  // Number of rows which have ever been used
+  private int usedRows;
+  private int size;
+
+  // Open-addressing hash table (linear probing) holding row + 1, where 0 denotes an empty slot
+  private int[] slots;
+
+  private Set<Entry<Id, SanctionDecision>> entrySet;
+
+  /** Constructs an empty {@link ColumnarSanctionDecisionStore}. */
+  public ColumnarSanctionDecisionStore() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  private void allocate(int capacity) {
+    idValues = new long[capacity];
+    otherIds = null;
+    times = new long[capacity];
+    sanctioners = new int[capacity];
+    sanctionees = new int[capacity];
+    norms = new int[capacity];
+    sanctions = new int[capacity];
+    flags = new byte[capacity];
+    freeRows = new int[capacity];
+    slots = new int[2 * capacity];
+  }
+
+  /** Grow columns and hash table so that they can hold {@code capacity} rows. */
+  private void grow(int capacity) {
+    idValues = Arrays.copyOf(idValues, capacity);
+    if (otherIds != null) {
+      otherIds = Arrays.copyOf(otherIds, capacity);
+    }
+    times = Arrays.copyOf(times, capacity);
+    sanctioners = Arrays.copyOf(sanctioners, capacity);
+    sanctionees = Arrays.copyOf(sanctionees, capacity);
+    norms = Arrays.copyOf(norms, capacity);
+    sanctions = Arrays.copyOf(sanctions, capacity);
+    flags = Arrays.copyOf(flags, capacity);
+    freeRows = Arrays.copyOf(freeRows, capacity);
+
+    slots = new int[2 * capacity];
+    for (int row = 0; row < usedRows; row++) {
+      if (isOccupied(row)) {
+        insertSlot(row);
+      }
+    }
+  }
+
+  private int allocateRow() {
+    if (freeRowsCount > 0) {
+      return freeRows[--freeRowsCount];
+    }
+    if (usedRows == idValues.length) {
+      grow(2 * idValues.length);
+    }
+    return usedRows++;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private int home(int hash) {
+    return spread(hash) & (slots.length - 1);
+  }
+
+  private boolean isOccupied(int row) {
+    return (flags[row] & OCCUPIED_MASK) != 0;
+  }
+
+  private boolean isTimeOrdered(int row) {
+    return (flags[row] & TIME_ORDERED_MASK) != 0;
+  }
+
+  /** Return id of the decision in {@code row}, which should be occupied. */
+  private Id idOf(int row) {
+    return isTimeOrdered(row) ? TimeOrderedId.of(idValues[row]) : otherIds[row];
+  }
+
+  /** Return hash code of the id in {@code row}, without creating the id. */
+  private int hashOf(int row) {
+    return isTimeOrdered(row) ? Long.hashCode(idValues[row]) : otherIds[row].hashCode();
+  }
+
+  /** Return whether the id in {@code row} is equal to {@code id}. */
+  private boolean hasId(int row, Object id) {
+    if (isTimeOrdered(row)) {
+      return id instanceof TimeOrderedId && ((TimeOrderedId) id).longValue() == idValues[row];
+    }
+    return otherIds[row].equals(id);
+  }
+
+  /** Store {@code id} in {@code row}, marking the row as occupied. */
+  private void setId(int row, Id id) {
+    if (id instanceof TimeOrderedId) {
+      idValues[row] = ((TimeOrderedId) id).longValue();
+      flags[row] = (byte) ID_MASKS;
+    } else {
+      if (otherIds == null) {
+        otherIds = new Id[idValues.length];
+      }
+      otherIds[row] = id;
+      flags[row] = (byte) OCCUPIED_MASK;
+    }
+  }
+
+  /** Return slot holding {@code id}, or {@code -1} if {@code id} is not in the store. */
+  private int slotOf(Object id) {
+    int mask = slots.length - 1;
+    for (int i = home(id.hashCode());; i = (i + 1) & mask) {
+      int entry = slots[i];
+      if (entry == 0) {
+        return -1;
+      } else if (hasId(entry - 1, id)) {
+        return i;
+      }
+    }
+  }
+
+  private void insertSlot(int row) {
+    int mask = slots.length - 1;
+    int i = home(hashOf(row));
+    while (slots[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    slots[i] = row + 1;
+  }
+
+  /** Empty slot {@code i}, shifting back subsequent entries of the same cluster as needed. */
+  private void deleteSlot(int i) {
+    int mask = slots.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      int entry = slots[j];
+      if (entry == 0) {
+        break;
+      }
+      int k = home(hashOf(entry - 1));
+      // Entries whose home is cyclically within (i, j] are already reachable
+      boolean reachable = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+      if (!reachable) {
+        slots[i] = entry;
+        i = j;
+      }
+    }
+    slots[i] = 0;
+  }
+
+  private Cause causeOf(int row) {
+    return CAUSES[flags[row] & CAUSE_MASK];
+  }
+
+  private Efficacy efficacyOf(int row) {
+    return EFFICACIES[(flags[row] & EFFICACY_MASK) >>> EFFICACY_SHIFT];
+  }
+
+  private boolean appliedOf(int row) {
+    return (flags[row] & APPLIED_MASK) != 0;
+  }
+
+  private void setEfficacy(int row, Efficacy efficacy) {
+    flags[row] =
+        (byte) ((flags[row] & ~EFFICACY_MASK) | (efficacy.ordinal() << EFFICACY_SHIFT));
+  }
+
+  private void setApplied(int row, boolean applied) {
+    flags[row] = (byte) (applied ? flags[row] | APPLIED_MASK : flags[row] & ~APPLIED_MASK);
+  }
+
+  /** Return a copy of the decision stored in {@code row} which does not depend on the store. */
+  private SanctionDecision detach(int row) {
+    return BasicSanctionDecision.builder()
+                                .id(idOf(row))
+                                .time(times[row])
+                                .sanctioner(symbols.nameOf(sanctioners[row]))
+                                .sanctionee(symbols.nameOf(sanctionees[row]))
+                                .norm(symbols.nameOf(norms[row]))
+                                .sanction(symbols.nameOf(sanctions[row]))
+                                .cause(causeOf(row))
+                                .efficacy(efficacyOf(row))
+                                .applied(appliedOf(row))
+                                .build();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key != null && slotOf(key) >= 0;
+  }
+
+  @Override
+  public SanctionDecision get(Object key) {
+    if (key == null) {
+      return null;
+    }
+    int slot = slotOf(key);
+    return slot < 0 ? null : new View(slots[slot] - 1);
+  }
+
+  /**
+   * Copy {@code decision} into the store.
+   * 
+   * @param id id of the decision
+   * @param decision decision to be stored
+   * @return detached copy of the previous decision with the given {@code id}, or {@code null} if
+   *         there was none
+   * @throws IllegalArgumentException if {@code id} is not the id of {@code decision}
+   */
+  @Override
+  public SanctionDecision put(Id id, SanctionDecision decision) {
+    if (!id.equals(decision.getId())) {
+      throw new IllegalArgumentException("Key should be the id of the sanction decision");
+    }
+    SanctionDecision previous = null;
+    int row;
+    int slot = slotOf(id);
+    if (slot >= 0) {
+      row = slots[slot] - 1;
+      previous = detach(row);
+    } else {
+      row = allocateRow();
+      setId(row, id);
+      insertSlot(row);
+      size++;
+    }
+
+    times[row] = decision.getTime();
+    sanctioners[row] = symbols.intern(decision.getSanctioner());
+    sanctionees[row] = symbols.intern(decision.getSanctionee());
+    norms[row] = symbols.intern(decision.getNorm());
+    sanctions[row] = symbols.intern(decision.getSanction());
+    flags[row] = (byte) ((flags[row] & ID_MASKS) | decision.getCause()
+                                                           .ordinal());
+    setEfficacy(row, decision.getEfficacy());
+    setApplied(row, decision.isApplied());
+    return previous;
+  }
+
+  /**
+   * Remove decision with the given {@code key}.
+   * 
+   * @return detached copy of the removed decision, or {@code null} if there was none
+   */
+  @Override
+  public SanctionDecision remove(Object key) {
+    if (key == null) {
+      return null;
+    }
+    int slot = slotOf(key);
+    if (slot < 0) {
+      return null;
+    }
+    int row = slots[slot] - 1;
+    SanctionDecision removed = detach(row);
+    deleteSlot(slot);
+    flags[row] = 0;
+    if (otherIds != null) {
+      otherIds[row] = null;
+    }
+    freeRows[freeRowsCount++] = row;
+    size--;
+    return removed;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(flags, 0, usedRows, (byte) 0);
+    if (otherIds != null) {
+      Arrays.fill(otherIds, 0, usedRows, null);
+    }
+    Arrays.fill(slots, 0);
+    freeRowsCount = 0;
+    usedRows = 0;
+    size = 0;
+  }
+
+  @Override
+  public Set<Entry<Id, SanctionDecision>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  private final class EntrySet extends AbstractSet<Entry<Id, SanctionDecision>> {
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      ColumnarSanctionDecisionStore.this.clear();
+    }
+
+    @Override
+    public Iterator<Entry<Id, SanctionDecision>> iterator() {
+      return new Iterator<Entry<Id, SanctionDecision>>() {
+        private int next = advance(0);
+        private int last = -1;
+
+        /** Return first row from {@code row} on which holds a decision. */
+        private int advance(int row) {
+          while (row < usedRows && !isOccupied(row)) {
+            row++;
+          }
+          return row;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next < usedRows;
+        }
+
+        @Override
+        public Entry<Id, SanctionDecision> next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          last = next;
+          next = advance(next + 1);
+          return new SimpleImmutableEntry<>(idOf(last), new View(last));
+        }
+
+        @Override
+        public void remove() {
+          if (last < 0) {
+            throw new IllegalStateException();
+          }
+          ColumnarSanctionDecisionStore.this.remove(idOf(last));
+          last = -1;
+        }
+      };
+    }
+  }
+
+  /** A flyweight {@link SanctionDecision} backed by a row of the store. */
+  private final class View implements SanctionDecision {
+    private final int row;
+    private final Id id;
+
+    View(int row) {
+      this.row = row;
+      this.id = idOf(row);
+    }
+
+    /** Return row of the decision, making sure it is still in the store. */
+    private int row() {
+      if (!isOccupied(row) || !hasId(row, id)) {
+        throw new IllegalStateException("Sanction decision " + id + " is no longer in the store");
+      }
+      return row;
+    }
+
+    @Override
+    public Id getId() {
+      return id;
+    }
+
+    @Override
+    public long getTime() {
+      return times[row()];
+    }
+
+    @Override
+    public String getSanctioner() {
+      return symbols.nameOf(sanctioners[row()]);
+    }
+
+    @Override
+    public String getSanctionee() {
+      return symbols.nameOf(sanctionees[row()]);
+    }
+
+    @Override
+    public String getNorm() {
+      return symbols.nameOf(norms[row()]);
+    }
+
+    @Override
+    public String getSanction() {
+      return symbols.nameOf(sanctions[row()]);
+    }
+
+    @Override
+    public Cause getCause() {
+      return causeOf(row());
+    }
+
+    @Override
+    public Efficacy getEfficacy() {
+      return efficacyOf(row());
+    }
+
+    @Override
+    public void setEfficacy(Efficacy efficacy) {
+      ColumnarSanctionDecisionStore.this.setEfficacy(row(), efficacy);
+    }
+
+    @Override
+    public boolean isApplied() {
+      return appliedOf(row());
+    }
+
+    @Override
+    public void setApplied(boolean applied) {
+      ColumnarSanctionDecisionStore.this.setApplied(row(), applied);
+    }
+
+    @Override
+    public String getFunctor() {
+      return BasicSanctionDecision.FUNCTOR;
+    }
+
+    @Override
+    public Literal toLiteral() {
+      return SanctionDecisions.toLiteral(this);
+    }
+
+    @Override
+    public String toString() {
+      return toLiteral().toString();
+    }
+
+    @Override
+    public int hashCode() {
+      return id.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof View))
+        return false;
+      View other = (View) obj;
+      return row == other.row && id.equals(other.id) && owner() == other.owner();
+    }
+
+    private ColumnarSanctionDecisionStore owner() {
+      return ColumnarSanctionDecisionStore.this;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import jason.asSyntax.Atom;
+import jason.asSyntax.Literal;
+import rambos.common.Literable;
+import rambos.common.LowercaseEnum;
+import rambos.common.id.Id;
+
+/**
+ * Instance of a norm, i.e. the literal representation of the norm with the bindings of one of its
+ * activations applied, along with its lifecycle.
+ * 
+ * An instance is {@link State#ACTIVE} when created, and then finishes in one of the other states,
+ * after which it no longer changes. Its literal representation is the instance annotated with the
+ * time at which it entered each state, e.g. {@code norm(...)[activation(T1),fulfillment(T2)]}.
+ * 
+ * @author igorcadelima
+ */
+public interface NormInstance extends Literable {
+  /**
+   * States of the lifecycle of a norm instance:
+   * <li>{@link #ACTIVE}</li>
+   * <li>{@link #DEACTIVATED}</li>
+   * <li>{@link #FULFILLED}</li>
+   * <li>{@link #UNFULFILLED}</li>
+   */
+  enum State implements LowercaseEnum {
+    ACTIVE {
+      @Override
+      public String getAnnotation() {
+        return "activation";
+      }
+    },
+
+    DEACTIVATED {
+      @Override
+      public String getAnnotation() {
+        return "deactivation";
+      }
+    },
+
+    FULFILLED {
+      @Override
+      public String getAnnotation() {
+        return "fulfillment";
+      }
+    },
+
+    UNFULFILLED {
+      @Override
+      public String getAnnotation() {
+        return "unfulfillment";
+      }
+    };
+
+    /**
+     * Return functor of the annotation which records the time at which an instance entered the
+     * state.
+     * 
+     * @return functor of the annotation
+     */
+    public abstract String getAnnotation();
+
+    /** Return whether instances in this state are finished. */
+    public boolean isFinished() {
+      return this != ACTIVE;
+    }
+  }
+
+  Id getId();
+
+  /** Return id of the norm of which this is an instance. */
+  Atom getNormId();
+
+  /** Return literal representation of the norm with the bindings applied, without annotations. */
+  Literal getInstance();
+
+  State getState();
+
+  long getActivationTime();
+
+  /** Return time at which the instance finished, or {@code -1} if it is still active. */
+  long getFinishTime();
+
+  /**
+   * Finish the instance in the given {@code state}.
+   * 
+   * @param state finished state
+   * @param time time at which the instance finished
+   * @throws IllegalArgumentException if {@code state} is not a finished state
+   * @throws IllegalStateException if the instance has already finished
+   */
+  void finish(State state, long time);
+}
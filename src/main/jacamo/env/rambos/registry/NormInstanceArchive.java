@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only text file where evicted norm instances are archived.
+ * 
+ * Each line holds the literal representation of an instance, annotated with the times of its
+ * lifecycle (see {@link NormInstance}), so that the archive can be read back with
+ * {@link jason.asSyntax.ASSyntax#parseLiteral(String)}. Lines are buffered, and only reach the file
+ * upon {@link #flush()} or {@link #close()}.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class NormInstanceArchive implements Closeable {
+  private final BufferedWriter writer;
+
+  private NormInstanceArchive(BufferedWriter writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Open archive stored in {@code file}, which is created if it does not exist yet. New instances
+   * are appended to those already archived.
+   * 
+   * @param file path to the archive file
+   * @return open archive
+   * @throws IOException if the file cannot be opened
+   */
+  public static NormInstanceArchive open(Path file) throws IOException {
+    Path parent = file.toAbsolutePath()
+                      .getParent();
+    if (parent != null)
+      Files.createDirectories(parent);
+    return new NormInstanceArchive(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+  }
+
+  /**
+   * Append {@code instance} to the archive.
+   * 
+   * @param instance instance to be archived
+   * @throws IOException if the instance cannot be written
+   */
+  public void append(NormInstance instance) throws IOException {
+    writer.write(instance.toLiteral()
+                         .toString());
+    writer.newLine();
+  }
+
+  /**
+   * Write buffered instances to the file.
+   * 
+   * @throws IOException if the instances cannot be written
+   */
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
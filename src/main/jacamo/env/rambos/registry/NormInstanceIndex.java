@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import jason.asSyntax.Atom;
+import rambos.common.id.Id;
+import rambos.registry.NormInstance.State;
+
+/**
+ * Secondary indexes over norm instances.
+ * 
+ * Instances are indexed by norm and by state, as well as by activation time and, once finished, by
+ * finish time, both in ascending order. Lookups return the ids of the matching instances in time
+ * proportional to the number of matches, regardless of how many instances are indexed.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class NormInstanceIndex {
+  private final Map<Atom, Set<Id>> byNorm = new HashMap<>();
+  private final Map<State, Set<Id>> byState = new EnumMap<>(State.class);
+  private final NavigableMap<Long, Set<Id>> byActivationTime = new TreeMap<>();
+  private final NavigableMap<Long, Set<Id>> byFinishTime = new TreeMap<>();
+
+  /**
+   * Add {@code instance} to the indexes.
+   * 
+   * @param instance instance to be indexed
+   */
+  public void add(NormInstance instance) {
+    Id id = instance.getId();
+    byNorm.computeIfAbsent(instance.getNormId(), k -> new HashSet<>())
+          .add(id);
+    byState.computeIfAbsent(instance.getState(), k -> new LinkedHashSet<>())
+           .add(id);
+    byActivationTime.computeIfAbsent(instance.getActivationTime(), k -> new HashSet<>())
+                    .add(id);
+    if (instance.getState()
+                .isFinished()) {
+      byFinishTime.computeIfAbsent(instance.getFinishTime(), k -> new HashSet<>())
+                  .add(id);
+    }
+  }
+
+  /**
+   * Move {@code instance}, which has just finished, from the active state to its finished state.
+   * 
+   * @param instance instance which has finished
+   */
+  public void finished(NormInstance instance) {
+    Id id = instance.getId();
+    removeFrom(byState, State.ACTIVE, id);
+    byState.computeIfAbsent(instance.getState(), k -> new LinkedHashSet<>())
+           .add(id);
+    byFinishTime.computeIfAbsent(instance.getFinishTime(), k -> new HashSet<>())
+                .add(id);
+  }
+
+  /**
+   * Remove {@code instance} from the indexes.
+   * 
+   * @param instance instance to be removed
+   */
+  public void remove(NormInstance instance) {
+    Id id = instance.getId();
+    removeFrom(byNorm, instance.getNormId(), id);
+    removeFrom(byState, instance.getState(), id);
+    removeFrom(byActivationTime, instance.getActivationTime(), id);
+    if (instance.getState()
+                .isFinished())
+      removeFrom(byFinishTime, instance.getFinishTime(), id);
+  }
+
+  /** Remove {@code id} from the bucket of {@code key}, dropping the bucket if it gets empty. */
+  private static <K> void removeFrom(Map<K, Set<Id>> index, K key, Id id) {
+    Set<Id> ids = index.get(key);
+    if (ids != null && ids.remove(id) && ids.isEmpty()) {
+      index.remove(key);
+    }
+  }
+
+  /** Return ids of the instances of the norm with the given id. */
+  public Set<Id> getByNorm(Atom normId) {
+    return lookup(byNorm, normId);
+  }
+
+  /** Return ids of the instances in the given {@code state}, in the order they entered it. */
+  public Set<Id> getByState(State state) {
+    return lookup(byState, state);
+  }
+
+  private static <K> Set<Id> lookup(Map<K, Set<Id>> index, K key) {
+    Set<Id> ids = index.get(key);
+    return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+  }
+
+  /**
+   * Return ids of the instances whose activation time is within {@code [from, to]}, in ascending
+   * order of activation time.
+   * 
+   * @param from lower bound (inclusive)
+   * @param to upper bound (inclusive)
+   * @return ids of the instances activated within the given interval
+   */
+  public List<Id> getActivatedBetween(long from, long to) {
+    if (from > to) {
+      return Collections.emptyList();
+    }
+    Collection<Set<Id>> buckets = byActivationTime.subMap(from, true, to, true)
+                                                  .values();
+    List<Id> ids = new ArrayList<>();
+    buckets.forEach(ids::addAll);
+    return ids;
+  }
+
+  /**
+   * Return ids of the instances which finished before {@code time}, in ascending order of finish
+   * time.
+   * 
+   * @param time upper bound (exclusive)
+   * @return ids of the instances finished before {@code time}
+   */
+  public List<Id> getFinishedBefore(long time) {
+    List<Id> ids = new ArrayList<>();
+    byFinishTime.headMap(time, false)
+                .values()
+                .forEach(ids::addAll);
+    return ids;
+  }
+
+  /**
+   * Return ids of the {@code n} instances which finished first, in ascending order of finish time.
+   * 
+   * @param n maximum number of ids to be returned
+   * @return ids of the oldest finished instances
+   */
+  public List<Id> getOldestFinished(int n) {
+    List<Id> ids = new ArrayList<>(Math.max(n, 0));
+    for (Set<Id> bucket : byFinishTime.values()) {
+      for (Id id : bucket) {
+        if (ids.size() >= n) {
+          return ids;
+        }
+        ids.add(id);
+      }
+    }
+    return ids;
+  }
+
+  /** Return number of finished instances. */
+  public int countFinished() {
+    int count = 0;
+    for (State state : byState.keySet()) {
+      if (state.isFinished())
+        count += byState.get(state)
+                        .size();
+    }
+    return count;
+  }
+
+  /** Remove all entries from the indexes. */
+  public void clear() {
+    byNorm.clear();
+    byState.clear();
+    byActivationTime.clear();
+    byFinishTime.clear();
+  }
+}
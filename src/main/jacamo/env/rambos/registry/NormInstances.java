@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import static jason.asSyntax.ASSyntax.createNumber;
+import static jason.asSyntax.ASSyntax.createStructure;
+
+import jason.asSyntax.Atom;
+import jason.asSyntax.Literal;
+import rambos.common.id.IdStrategy;
+import rambos.registry.NormInstance.State;
+
+/**
+ * Static utility methods pertaining to {@link NormInstance} instances.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class NormInstances {
+  private NormInstances() {}
+
+  /**
+   * Return a new active instance whose literal representation without annotations is
+   * {@code instance}.
+   * 
+   * @param instance {@code norm(...)} literal, whose annotations are ignored
+   * @param activationTime time at which the instance was activated
+   * @param ids strategy used to create the id of the instance
+   * @return new norm instance
+   * @throws IllegalArgumentException if literal does not represent a norm instance
+   */
+  public static NormInstance of(Literal instance, long activationTime, IdStrategy ids) {
+    boolean isNorm = instance.getFunctor()
+                             .equals("norm");
+    if (!isNorm || instance.getArity() == 0 || !(instance.getTerm(0) instanceof Atom))
+      throw new IllegalArgumentException("Literal does not represent a norm instance");
+    return new BasicNormInstance(ids.newId(), withoutAnnots(instance), activationTime);
+  }
+
+  /**
+   * Return {@code literal} without annotations, which is the literal itself if it has none.
+   * 
+   * @param literal literal whose annotations are to be dropped
+   * @return literal without annotations
+   */
+  public static Literal withoutAnnots(Literal literal) {
+    if (!literal.hasAnnot())
+      return literal;
+    return literal.copy()
+                  .clearAnnots();
+  }
+
+  /**
+   * Return the literal representation of {@code instance}, which is shared by the different
+   * {@link NormInstance} implementations.
+   * 
+   * @param instance instance to be represented
+   * @return literal representation of {@code instance}
+   */
+  static Literal toLiteral(NormInstance instance) {
+    Literal l = instance.getInstance()
+                        .copy();
+    l.addAnnot(createStructure(State.ACTIVE.getAnnotation(),
+        createNumber(instance.getActivationTime())));
+    State state = instance.getState();
+    if (state.isFinished())
+      l.addAnnot(createStructure(state.getAnnotation(), createNumber(instance.getFinishTime())));
+    return l;
+  }
+}
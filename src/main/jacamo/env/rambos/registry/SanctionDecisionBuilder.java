@@ -20,10 +20,12 @@
  *******************************************************************************/
 package rambos.registry;
 
+import rambos.common.id.Id;
 import rambos.registry.SanctionDecision.Cause;
 import rambos.registry.SanctionDecision.Efficacy;
 
 final class SanctionDecisionBuilder {
+  private Id id;
   private long time;
   private String sanctioner;
   private String sanctionee;
@@ -33,6 +35,11 @@ final class SanctionDecisionBuilder {
   private Efficacy efficacy = Efficacy.INDETERMINATE;
   private boolean applied;
 
+  SanctionDecisionBuilder id(Id id) {
+    this.id = id;
+    return this;
+  }
+
   SanctionDecisionBuilder time(long time) {
     this.time = time;
     return this;
@@ -82,6 +89,10 @@ final class SanctionDecisionBuilder {
     return new BasicSanctionDecision(this);
   }
 
+  Id id() {
+    return id;
+  }
+
   long time() {
     return time;
   }
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import rambos.common.LowercaseEnum;
+import rambos.registry.SanctionDecision.Cause;
+import rambos.registry.SpaceSaving.Counter;
+
+/**
+ * Streaming heavy-hitter sketches over the sanctionees, norms, and sanctions of the decisions that
+ * arrive at the registry.
+ * 
+ * Each {@linkplain Dimension dimension} is tracked by two {@link SpaceSaving} sketches: one over
+ * all decisions and another over violation decisions only. Since sketches are fed as decisions
+ * arrive, removed and evicted decisions remain counted. Memory is bounded by the capacity given
+ * upon construction, regardless of the number of decisions.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class SanctionDecisionHeavyHitters {
+  private final Map<Dimension, SpaceSaving<String>> all = new EnumMap<>(Dimension.class);
+  private final Map<Dimension, SpaceSaving<String>> violations = new EnumMap<>(Dimension.class);
+
+  /** Attributes of sanction decisions over which heavy hitters are tracked. */
+  public enum Dimension implements LowercaseEnum {
+    SANCTIONEE {
+      @Override
+      String of(SanctionDecision decision) {
+        return decision.getSanctionee();
+      }
+    },
+
+    NORM {
+      @Override
+      String of(SanctionDecision decision) {
+        return decision.getNorm();
+      }
+    },
+
+    SANCTION {
+      @Override
+      String of(SanctionDecision decision) {
+        return decision.getSanction();
+      }
+    };
+
+    /**
+     * Return the value of this dimension in {@code decision}.
+     * 
+     * @param decision decision whose value is to be returned
+     * @return value of this dimension
+     */
+    abstract String of(SanctionDecision decision);
+  }
+
+  /**
+   * Create new sketches, each monitoring at most {@code capacity} items.
+   * 
+   * @param capacity maximum number of items monitored per sketch
+   * @throws IllegalArgumentException if {@code capacity} is not positive
+   */
+  public SanctionDecisionHeavyHitters(int capacity) {
+    for (Dimension dimension : Dimension.values()) {
+      all.put(dimension, new SpaceSaving<>(capacity));
+      violations.put(dimension, new SpaceSaving<>(capacity));
+    }
+  }
+
+  /**
+   * Count {@code decision} in the sketches.
+   * 
+   * @param decision decision to be counted
+   */
+  public void add(SanctionDecision decision) {
+    boolean violation = decision.getCause() == Cause.VIOLATION;
+    for (Dimension dimension : Dimension.values()) {
+      String value = dimension.of(decision);
+      all.get(dimension)
+         .offer(value);
+      if (violation) {
+        violations.get(dimension)
+                  .offer(value);
+      }
+    }
+  }
+
+  /**
+   * Return the counters of the {@code k} most frequent values of {@code dimension}, in descending
+   * order of count.
+   * 
+   * @param dimension dimension whose heavy hitters are to be returned
+   * @param violationsOnly whether only violation decisions should be considered
+   * @param k maximum number of counters to be returned
+   * @return counters of the most frequent values
+   */
+  public List<Counter<String>> top(Dimension dimension, boolean violationsOnly, int k) {
+    return (violationsOnly ? violations : all).get(dimension)
+                                              .top(k);
+  }
+}
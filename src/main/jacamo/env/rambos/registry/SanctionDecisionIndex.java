@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import rambos.common.id.Id;
+import rambos.registry.SanctionDecision.Cause;
+
+/**
+ * Secondary indexes over the immutable attributes of sanction decisions.
+ * 
+ * Decisions are indexed by sanctioner, sanctionee, norm, sanction, and cause, as well as by time in
+ * ascending order. Lookups return the ids of the matching decisions in time proportional to the
+ * number of matches, regardless of how many decisions are indexed.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class SanctionDecisionIndex {
+  private final Map<String, Set<Id>> bySanctioner = new HashMap<>();
+  private final Map<String, Set<Id>> bySanctionee = new HashMap<>();
+  private final Map<String, Set<Id>> byNorm = new HashMap<>();
+  private final Map<String, Set<Id>> bySanction = new HashMap<>();
+  private final Map<Cause, Set<Id>> byCause = new EnumMap<>(Cause.class);
+  private final NavigableMap<Long, Set<Id>> byTime = new TreeMap<>();
+
+  /**
+   * Add {@code decision} to the indexes.
+   * 
+   * @param decision decision to be indexed
+   */
+  public void add(SanctionDecision decision) {
+    Id id = decision.getId();
+    bySanctioner.computeIfAbsent(decision.getSanctioner(), k -> new HashSet<>())
+                .add(id);
+    bySanctionee.computeIfAbsent(decision.getSanctionee(), k -> new HashSet<>())
+                .add(id);
+    byNorm.computeIfAbsent(decision.getNorm(), k -> new HashSet<>())
+          .add(id);
+    bySanction.computeIfAbsent(decision.getSanction(), k -> new HashSet<>())
+              .add(id);
+    byCause.computeIfAbsent(decision.getCause(), k -> new HashSet<>())
+           .add(id);
+    byTime.computeIfAbsent(decision.getTime(), k -> new HashSet<>())
+          .add(id);
+  }
+
+  /**
+   * Remove {@code decision} from the indexes.
+   * 
+   * @param decision decision to be removed
+   */
+  public void remove(SanctionDecision decision) {
+    Id id = decision.getId();
+    removeFrom(bySanctioner, decision.getSanctioner(), id);
+    removeFrom(bySanctionee, decision.getSanctionee(), id);
+    removeFrom(byNorm, decision.getNorm(), id);
+    removeFrom(bySanction, decision.getSanction(), id);
+    removeFrom(byCause, decision.getCause(), id);
+    removeFrom(byTime, decision.getTime(), id);
+  }
+
+  /** Remove {@code id} from the bucket of {@code key}, dropping the bucket if it gets empty. */
+  private static <K> void removeFrom(Map<K, Set<Id>> index, K key, Id id) {
+    Set<Id> ids = index.get(key);
+    if (ids != null && ids.remove(id) && ids.isEmpty()) {
+      index.remove(key);
+    }
+  }
+
+  /** Return ids of the decisions made by {@code sanctioner}. */
+  public Set<Id> getBySanctioner(String sanctioner) {
+    return lookup(bySanctioner, sanctioner);
+  }
+
+  /** Return ids of the decisions made against {@code sanctionee}. */
+  public Set<Id> getBySanctionee(String sanctionee) {
+    return lookup(bySanctionee, sanctionee);
+  }
+
+  /** Return ids of the decisions made with regard to {@code norm}. */
+  public Set<Id> getByNorm(String norm) {
+    return lookup(byNorm, norm);
+  }
+
+  /** Return ids of the decisions which resulted in {@code sanction}. */
+  public Set<Id> getBySanction(String sanction) {
+    return lookup(bySanction, sanction);
+  }
+
+  /** Return ids of the decisions made because of {@code cause}. */
+  public Set<Id> getByCause(Cause cause) {
+    return lookup(byCause, cause);
+  }
+
+  private static <K> Set<Id> lookup(Map<K, Set<Id>> index, K key) {
+    Set<Id> ids = index.get(key);
+    return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+  }
+
+  /**
+   * Return ids of the decisions whose time is within {@code [from, to]}, in ascending order of
+   * time.
+   * 
+   * @param from lower bound (inclusive)
+   * @param to upper bound (inclusive)
+   * @return ids of the decisions made within the given interval
+   */
+  public List<Id> getBetween(long from, long to) {
+    if (from > to) {
+      return Collections.emptyList();
+    }
+    Collection<Set<Id>> buckets = byTime.subMap(from, true, to, true)
+                                        .values();
+    List<Id> ids = new ArrayList<>();
+    buckets.forEach(ids::addAll);
+    return ids;
+  }
+
+  /**
+   * Return ids of the decisions whose time is before {@code time}, in ascending order of time.
+   * 
+   * @param time upper bound (exclusive)
+   * @return ids of the decisions made before {@code time}
+   */
+  public List<Id> getBefore(long time) {
+    List<Id> ids = new ArrayList<>();
+    byTime.headMap(time, false)
+          .values()
+          .forEach(ids::addAll);
+    return ids;
+  }
+
+  /**
+   * Return ids of the {@code n} oldest decisions, in ascending order of time.
+   * 
+   * @param n maximum number of ids to be returned
+   * @return ids of the oldest decisions
+   */
+  public List<Id> getOldest(int n) {
+    List<Id> ids = new ArrayList<>(Math.max(n, 0));
+    for (Set<Id> bucket : byTime.values()) {
+      for (Id id : bucket) {
+        if (ids.size() >= n) {
+          return ids;
+        }
+        ids.add(id);
+      }
+    }
+    return ids;
+  }
+
+  /** Remove all entries from the indexes. */
+  public void clear() {
+    bySanctioner.clear();
+    bySanctionee.clear();
+    byNorm.clear();
+    bySanction.clear();
+    byCause.clear();
+    byTime.clear();
+  }
+}
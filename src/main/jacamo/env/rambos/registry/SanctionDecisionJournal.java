@@ -0,0 +1,544 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import rambos.common.id.Id;
+import rambos.common.id.TimeOrderedId;
+import rambos.common.id.Uuid;
+import rambos.registry.SanctionDecision.Cause;
+import rambos.registry.SanctionDecision.Efficacy;
+
+/**
+ * Append-only journal of sanction decision events backed by memory-mapped segment files.
+ * 
+ * Every event is appended to the current segment as a record with the layout
+ * {@code [length][type][payload][checksum]}, where {@code length} covers {@code type} and
+ * {@code payload}, and {@code checksum} is the CRC32 of both. Since segments are mapped into
+ * memory, appending an event is a plain memory write which survives crashes of the process; the
+ * segment is only forced to the storage device when it is rolled over or when the journal is
+ * closed. Additions of a batch of decisions are written as a single record, so that a batch is
+ * replayed either as a whole or not at all.
+ * 
+ * Upon {@link #open(Path, Listener) opening}, all segments found in the journal directory are
+ * replayed in order. Replay of a segment stops at the first empty, torn or corrupted record, and
+ * new events are appended right after the last valid record of the last segment.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class SanctionDecisionJournal implements Closeable {
+  /** Default size of a segment file in bytes. */
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  // length + checksum
+  private static final int RECORD_OVERHEAD = 8;
+  private static final int END_OF_SEGMENT = 0;
+
+  private static final byte ADD = 1;
+  private static final byte UPDATE_EFFICACY = 2;
+  private static final byte SET_APPLIED = 3;
+  private static final byte REMOVE = 4;
+  private static final byte EVICT = 5;
+  private static final byte BATCH = 6;
+
+  private static final byte UUID_ID = 1;
+  private static final byte TIME_ORDERED_ID = 2;
+
+  private static final Cause[] CAUSES = Cause.values();
+  private static final Efficacy[] EFFICACIES = Efficacy.values();
+
+  private final Path dir;
+  private final int segmentSize;
+  private final CRC32 checksum = new CRC32();
+  private long segmentIndex;
+  private FileChannel channel;
+  private MappedByteBuffer segment;
+
+  /**
+   * Callback interface used to receive the events read while replaying a journal.
+   */
+  public interface Listener {
+    /** Called for every sanction decision added to the registry. */
+    void decisionAdded(SanctionDecision decision);
+
+    /** Called for every update of the efficacy of the decision with the given {@code id}. */
+    void efficacyUpdated(Id id, Efficacy efficacy);
+
+    /** Called for every update of the applied flag of the decision with the given {@code id}. */
+    void appliedUpdated(Id id, boolean applied);
+
+    /** Called for every removal of the decision with the given {@code id}. */
+    void decisionRemoved(Id id);
+
+    /**
+     * Called for every eviction of the decision with the given {@code id} due to a retention
+     * policy.
+     */
+    void decisionEvicted(Id id);
+  }
+
+  private SanctionDecisionJournal(Path dir, int segmentSize) {
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * Open the journal stored in {@code dir} using segments of {@link #DEFAULT_SEGMENT_SIZE} bytes.
+   * 
+   * @param dir directory where segment files are stored; it is created if non-existing
+   * @param listener listener to be notified of every event found in existing segments
+   * @return journal ready to have new events appended
+   * @throws IOException if segments could not be read or created
+   * @see #open(Path, int, Listener)
+   */
+  public static SanctionDecisionJournal open(Path dir, Listener listener) throws IOException {
+    return open(dir, DEFAULT_SEGMENT_SIZE, listener);
+  }
+
+  /**
+   * Open the journal stored in {@code dir}, replay existing segments into {@code listener}, and
+   * position the journal for new appends right after the last valid record.
+   * 
+   * @param dir directory where segment files are stored; it is created if non-existing
+   * @param segmentSize size in bytes of new segment files
+   * @param listener listener to be notified of every event found in existing segments
+   * @return journal ready to have new events appended
+   * @throws IOException if segments could not be read or created
+   */
+  public static SanctionDecisionJournal open(Path dir, int segmentSize, Listener listener)
+      throws IOException {
+    Files.createDirectories(dir);
+    SanctionDecisionJournal journal = new SanctionDecisionJournal(dir, segmentSize);
+    List<Path> segments = listSegments(dir);
+
+    if (segments.isEmpty()) {
+      journal.mapSegment(0, 0);
+    } else {
+      int end = 0;
+      for (Path segmentFile : segments) {
+        end = replay(segmentFile, listener);
+      }
+      Path last = segments.get(segments.size() - 1);
+      journal.mapSegment(segmentIndexOf(last), end);
+    }
+    return journal;
+  }
+
+  /** Return segment files found in {@code dir} sorted by their index. */
+  private static List<Path> listSegments(Path dir) throws IOException {
+    List<Path> segments = new ArrayList<>();
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      stream.forEach(segments::add);
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  private static long segmentIndexOf(Path segmentFile) {
+    String name = segmentFile.getFileName()
+                             .toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+        name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  private Path segmentPath(long index) {
+    return dir.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+  }
+
+  /**
+   * Map segment with the given {@code index} for writing, discarding whatever is found after
+   * {@code position}.
+   */
+  private void mapSegment(long index, int position) throws IOException {
+    FileChannel newChannel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    int size = (int) Math.max(segmentSize, newChannel.size());
+    MappedByteBuffer newSegment = newChannel.map(MapMode.READ_WRITE, 0, size);
+
+    // Clear leftovers of a torn record so that they are not mistaken for valid data later on
+    int tornLength = position + Integer.BYTES <= size ? newSegment.getInt(position) : 0;
+    int tornEnd = tornLength > 0 && tornLength <= size - position - RECORD_OVERHEAD
+        ? position + RECORD_OVERHEAD + tornLength
+        : tornLength == 0 ? position : size;
+    for (int i = position; i < tornEnd; i++) {
+      newSegment.put(i, (byte) 0);
+    }
+    newSegment.position(position);
+
+    if (channel != null) {
+      segment.force();
+      channel.close();
+    }
+    segmentIndex = index;
+    channel = newChannel;
+    segment = newSegment;
+  }
+
+  /**
+   * Replay records of {@code segmentFile} into {@code listener}.
+   * 
+   * @return position right after the last valid record of the segment
+   */
+  private static int replay(Path segmentFile, Listener listener) throws IOException {
+    try (FileChannel ch = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = ch.map(MapMode.READ_ONLY, 0, ch.size());
+      CRC32 crc = new CRC32();
+
+      while (buffer.remaining() >= RECORD_OVERHEAD) {
+        int start = buffer.position();
+        int length = buffer.getInt();
+        if (length <= END_OF_SEGMENT || length > buffer.remaining() - Integer.BYTES) {
+          return start;
+        }
+
+        ByteBuffer record = buffer.slice();
+        record.limit(length);
+        crc.reset();
+        crc.update(record.duplicate());
+        buffer.position(buffer.position() + length);
+        if ((int) crc.getValue() != buffer.getInt()) {
+          return start;
+        }
+        dispatch(record, listener);
+      }
+      return buffer.position();
+    }
+  }
+
+  /** Decode {@code record} and notify {@code listener} about it. */
+  private static void dispatch(ByteBuffer record, Listener listener) {
+    byte type = record.get();
+    switch (type) {
+      case ADD:
+        listener.decisionAdded(readDecision(record));
+        break;
+      case UPDATE_EFFICACY:
+        listener.efficacyUpdated(readId(record), EFFICACIES[record.get()]);
+        break;
+      case SET_APPLIED:
+        listener.appliedUpdated(readId(record), record.get() != 0);
+        break;
+      case REMOVE:
+        listener.decisionRemoved(readId(record));
+        break;
+      case EVICT:
+        listener.decisionEvicted(readId(record));
+        break;
+      case BATCH:
+        for (int i = record.getInt(); i > 0; i--) {
+          listener.decisionAdded(readDecision(record));
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unknown journal record type: " + type);
+    }
+  }
+
+  /**
+   * Append the addition of {@code decision} to the journal.
+   * 
+   * @param decision decision to be recorded
+   * @throws IOException if a new segment is needed but could not be created
+   * @throws IllegalArgumentException if {@code decision} cannot be recorded, e.g. because the type
+   *         of its id is not supported, or because it does not fit into a segment
+   */
+  public void appendAddition(SanctionDecision decision) throws IOException {
+    writeAddition(new Addition(decision));
+  }
+
+  /**
+   * Append the addition of every decision in {@code decisions} to the journal.
+   * 
+   * All additions are written as a single record, which is covered by one checksum, so a crash in
+   * the middle of the batch leaves a torn record which is discarded upon replay, rather than part
+   * of the batch. In turn, the whole batch must fit into a segment.
+   * 
+   * @param decisions decisions to be recorded
+   * @throws IOException if a new segment is needed but could not be created
+   * @throws IllegalArgumentException if any of the decisions cannot be recorded, or if the batch
+   *         does not fit into a segment
+   */
+  public void appendAdditions(List<SanctionDecision> decisions) throws IOException {
+    List<Addition> additions = new ArrayList<>(decisions.size());
+    // count of additions
+    int length = 1 + Integer.BYTES;
+    for (SanctionDecision decision : decisions) {
+      Addition addition = new Addition(decision);
+      additions.add(addition);
+      length += addition.length - 1;
+      checkFits(length);
+    }
+    int start = beginRecord(BATCH, length);
+    segment.putInt(additions.size());
+    for (Addition addition : additions) {
+      writeAdditionPayload(addition);
+    }
+    endRecord(start);
+  }
+
+  private void writeAddition(Addition addition) throws IOException {
+    int start = beginRecord(ADD, addition.length);
+    writeAdditionPayload(addition);
+    endRecord(start);
+  }
+
+  private void writeAdditionPayload(Addition addition) {
+    writeId(addition.id);
+    segment.putLong(addition.time);
+    segment.put(addition.sanctioner);
+    segment.put(addition.sanctionee);
+    segment.put(addition.norm);
+    segment.put(addition.sanction);
+    segment.put(addition.cause);
+    segment.put(addition.efficacy);
+    segment.put(addition.applied);
+  }
+
+  /**
+   * Append the update of the efficacy of the decision with the given {@code id} to the journal.
+   * 
+   * @param id id of the updated decision
+   * @param efficacy new efficacy value
+   * @throws IOException if a new segment is needed but could not be created
+   */
+  public void appendEfficacyUpdate(Id id, Efficacy efficacy) throws IOException {
+    int start = beginRecord(UPDATE_EFFICACY, 1 + idLength(id) + 1);
+    writeId(id);
+    segment.put((byte) efficacy.ordinal());
+    endRecord(start);
+  }
+
+  /**
+   * Append the update of the applied flag of the decision with the given {@code id} to the
+   * journal.
+   * 
+   * @param id id of the updated decision
+   * @param applied new applied value
+   * @throws IOException if a new segment is needed but could not be created
+   */
+  public void appendAppliedUpdate(Id id, boolean applied) throws IOException {
+    int start = beginRecord(SET_APPLIED, 1 + idLength(id) + 1);
+    writeId(id);
+    segment.put((byte) (applied ? 1 : 0));
+    endRecord(start);
+  }
+
+  /**
+   * Append the removal of the decision with the given {@code id} to the journal.
+   * 
+   * @param id id of the removed decision
+   * @throws IOException if a new segment is needed but could not be created
+   */
+  public void appendRemoval(Id id) throws IOException {
+    int start = beginRecord(REMOVE, 1 + idLength(id));
+    writeId(id);
+    endRecord(start);
+  }
+
+  /**
+   * Append the eviction of the decision with the given {@code id} to the journal.
+   * 
+   * Unlike {@linkplain #appendRemoval(Id) removals}, evicted decisions are expected to be folded
+   * into aggregate statistics upon replay.
+   * 
+   * @param id id of the evicted decision
+   * @throws IOException if a new segment is needed but could not be created
+   */
+  public void appendEviction(Id id) throws IOException {
+    int start = beginRecord(EVICT, 1 + idLength(id));
+    writeId(id);
+    endRecord(start);
+  }
+
+  /**
+   * Reserve room for a record whose type and payload take {@code length} bytes, rolling over to a
+   * new segment if needed, and write its header.
+   * 
+   * @return position of the record in the current segment
+   */
+  private int beginRecord(byte type, int length) throws IOException {
+    // Keep room for an end-of-segment marker after the record
+    if (segment.remaining() < length + RECORD_OVERHEAD + Integer.BYTES) {
+      checkFits(length);
+      mapSegment(segmentIndex + 1, 0);
+    }
+    int start = segment.position();
+    segment.putInt(length);
+    segment.put(type);
+    return start;
+  }
+
+  /** Check that a record whose type and payload take {@code length} bytes fits into a segment. */
+  private void checkFits(int length) {
+    if (length + RECORD_OVERHEAD + Integer.BYTES > segmentSize) {
+      throw new IllegalArgumentException("Record does not fit into a journal segment");
+    }
+  }
+
+  /** Write checksum of the record which starts at {@code start}. */
+  private void endRecord(int start) {
+    ByteBuffer record = segment.duplicate();
+    record.position(start + Integer.BYTES);
+    record.limit(segment.position());
+    checksum.reset();
+    checksum.update(record);
+    segment.putInt((int) checksum.getValue());
+  }
+
+  private static byte[] encode(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) {
+      throw new IllegalArgumentException("String is too long to be recorded: " + value);
+    }
+    byte[] encoded = new byte[Short.BYTES + bytes.length];
+    encoded[0] = (byte) (bytes.length >>> 8);
+    encoded[1] = (byte) bytes.length;
+    System.arraycopy(bytes, 0, encoded, Short.BYTES, bytes.length);
+    return encoded;
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getShort() & 0xFFFF;
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int idLength(Id id) {
+    if (id instanceof Uuid) {
+      return 1 + 2 * Long.BYTES;
+    } else if (id instanceof TimeOrderedId) {
+      return 1 + Long.BYTES;
+    }
+    throw new IllegalArgumentException("Unsupported id type: " + id.getClass()
+                                                                  .getCanonicalName());
+  }
+
+  private void writeId(Id id) {
+    if (id instanceof TimeOrderedId) {
+      segment.put(TIME_ORDERED_ID);
+      segment.putLong(((TimeOrderedId) id).longValue());
+    } else {
+      Uuid uuid = (Uuid) id;
+      segment.put(UUID_ID);
+      segment.putLong(uuid.getMostSignificantBits());
+      segment.putLong(uuid.getLeastSignificantBits());
+    }
+  }
+
+  private static Id readId(ByteBuffer buffer) {
+    byte type = buffer.get();
+    if (type == UUID_ID) {
+      return Uuid.of(buffer.getLong(), buffer.getLong());
+    } else if (type == TIME_ORDERED_ID) {
+      return TimeOrderedId.of(buffer.getLong());
+    }
+    throw new IllegalStateException("Unknown journal id type: " + type);
+  }
+
+  private static SanctionDecision readDecision(ByteBuffer buffer) {
+    return BasicSanctionDecision.builder()
+                                .id(readId(buffer))
+                                .time(buffer.getLong())
+                                .sanctioner(readString(buffer))
+                                .sanctionee(readString(buffer))
+                                .norm(readString(buffer))
+                                .sanction(readString(buffer))
+                                .cause(CAUSES[buffer.get()])
+                                .efficacy(EFFICACIES[buffer.get()])
+                                .applied(buffer.get() != 0)
+                                .build();
+  }
+
+  /** Encoded addition record, which is checked before anything is written. */
+  private final class Addition {
+    private final Id id;
+    private final long time;
+    private final byte[] sanctioner;
+    private final byte[] sanctionee;
+    private final byte[] norm;
+    private final byte[] sanction;
+    private final byte cause;
+    private final byte efficacy;
+    private final byte applied;
+    private final int length;
+
+    private Addition(SanctionDecision decision) {
+      if (decision.getCause() == null || decision.getEfficacy() == null) {
+        throw new IllegalArgumentException("Decision without cause or efficacy: " + decision);
+      }
+      id = decision.getId();
+      time = decision.getTime();
+      sanctioner = encode(decision.getSanctioner());
+      sanctionee = encode(decision.getSanctionee());
+      norm = encode(decision.getNorm());
+      sanction = encode(decision.getSanction());
+      cause = (byte) decision.getCause()
+                             .ordinal();
+      efficacy = (byte) decision.getEfficacy()
+                                .ordinal();
+      applied = (byte) (decision.isApplied() ? 1 : 0);
+      length = 1 + idLength(id) + Long.BYTES + sanctioner.length + sanctionee.length + norm.length
+          + sanction.length + 3;
+      checkFits(length);
+    }
+  }
+
+  /**
+   * Force the current segment to the storage device.
+   * 
+   * This is never called for individual events; it should be used only at points where losing
+   * the page cache (e.g. an operating system crash) is not acceptable.
+   */
+  public void sync() {
+    segment.force();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      segment.force();
+      channel.close();
+      channel = null;
+    }
+  }
+}
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import rambos.common.id.IdStrategy;
+import rambos.registry.SanctionDecision.Cause;
+import rambos.registry.SanctionDecision.Efficacy;
+
+/**
+ * Single-pass parser for the fixed {@code sanction_decision/9} shape.
+ * 
+ * Decisions produced by agents nearly always consist of plain atoms and an integer time, e.g.
+ * {@code sanction_decision(id, 1500, a, b, n1, s1, compliance, effective, true)}. This parser
+ * handles exactly that shape directly on the characters of the string, without building any
+ * intermediate term. Whenever it meets anything else (e.g. quoted atoms, strings, variables,
+ * arithmetic expressions, or annotations), it gives up by returning {@code null}, so that the
+ * caller can resort to the general Jason parser, which remains the reference semantics.
+ * 
+ * <b>Note:</b> instances of this class are not thread-safe.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class SanctionDecisionParser {
+  private static final Map<String, Cause> CAUSES = lowercaseConstants(Cause.class);
+  private static final Map<String, Efficacy> EFFICACIES = lowercaseConstants(Efficacy.class);
+
+  private final String input;
+  private int pos;
+
+  private SanctionDecisionParser(String input) {
+    this.input = input;
+  }
+
+  /**
+   * Parse {@code decision} if it has the plain {@code sanction_decision/9} shape.
+   * 
+   * @param decision string to be parsed
+   * @param ids strategy used to create the id of the decision
+   * @return sanction decision represented by the string argument, or {@code null} if the string
+   *         does not have the plain shape and thus needs to be parsed by the general parser
+   */
+  static SanctionDecision tryParse(String decision, IdStrategy ids) {
+    return new SanctionDecisionParser(decision).parse(ids);
+  }
+
+  private SanctionDecision parse(IdStrategy ids) {
+    skipWhitespace();
+    if (!BasicSanctionDecision.FUNCTOR.equals(identifier()) || !expect('('))
+      return null;
+
+    // The id term is ignored, as a new id is always created for the decision
+    if (!skipTerm() || !expect(','))
+      return null;
+
+    skipWhitespace();
+    int start = pos;
+    boolean negative = peek() == '-';
+    if (negative)
+      pos++;
+    if (!isDigit(peek()))
+      return null;
+    while (isDigit(peek()))
+      pos++;
+    long time;
+    try {
+      time = Long.parseLong(input.substring(start, pos));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+
+    String sanctioner = argument();
+    String sanctionee = argument();
+    String norm = argument();
+    String sanction = argument();
+    String cause = argument();
+    String efficacy = argument();
+    String applied = argument();
+    if (applied == null || !expect(')'))
+      return null;
+    skipWhitespace();
+    if (pos != input.length())
+      return null;
+
+    Cause causeConstant = CAUSES.get(cause.toLowerCase(Locale.ROOT));
+    Efficacy efficacyConstant = EFFICACIES.get(efficacy.toLowerCase(Locale.ROOT));
+    if (causeConstant == null || efficacyConstant == null)
+      return null;
+
+    return BasicSanctionDecision.builder()
+                                .id(ids.newId())
+                                .time(time)
+                                .sanctioner(sanctioner)
+                                .sanctionee(sanctionee)
+                                .norm(norm)
+                                .sanction(sanction)
+                                .cause(causeConstant)
+                                .efficacy(efficacyConstant)
+                                .applied(Boolean.valueOf(applied))
+                                .build();
+  }
+
+  /**
+   * Read a {@code ','} followed by a plain atom.
+   * 
+   * @return name of the atom, or {@code null} if input does not match
+   */
+  private String argument() {
+    if (!expect(','))
+      return null;
+    String atom = identifier();
+    return isKeyword(atom) ? null : atom;
+  }
+
+  /**
+   * Skip a term made of plain atoms, structures, integers, quoted atoms, and strings.
+   * 
+   * @return {@code true} if a term was skipped
+   */
+  private boolean skipTerm() {
+    skipWhitespace();
+    char c = peek();
+    if (c == '\'' || c == '"')
+      return skipQuoted(c);
+    if (isDigit(c)) {
+      while (isDigit(peek()))
+        pos++;
+      return true;
+    }
+    if (identifier() == null)
+      return false;
+    if (peek() != '(')
+      return true;
+    pos++;
+    do {
+      if (!skipTerm())
+        return false;
+    } while (expect(','));
+    pos--; // Give back the character consumed by the failed expectation
+    return expect(')');
+  }
+
+  private boolean skipQuoted(char quote) {
+    for (pos++; pos < input.length(); pos++) {
+      char c = input.charAt(pos);
+      if (c == '\\')
+        pos++;
+      else if (c == quote) {
+        pos++;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Read an identifier starting with a lowercase letter, as used for plain atoms and functors.
+   * 
+   * @return the identifier, or {@code null} if input does not match
+   */
+  private String identifier() {
+    skipWhitespace();
+    int start = pos;
+    char c = peek();
+    if (c < 'a' || c > 'z')
+      return null;
+    do {
+      pos++;
+      c = peek();
+    } while ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+        || c == '_');
+    // A trailing '::' or '.' would make this a namespace or a different token altogether
+    if (c == ':' || c == '.')
+      return null;
+    return input.substring(start, pos);
+  }
+
+  /**
+   * Skip whitespace and then consume {@code expected}. The character is consumed even if it does
+   * not match, since parsing is abandoned in such a case anyway.
+   */
+  private boolean expect(char expected) {
+    skipWhitespace();
+    char c = peek();
+    pos++;
+    return c == expected;
+  }
+
+  private char peek() {
+    return pos < input.length() ? input.charAt(pos) : '\0';
+  }
+
+  private void skipWhitespace() {
+    for (char c = peek(); c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f'; c = peek())
+      pos++;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /** Return whether {@code atom} is a word that Jason does not read as a plain atom. */
+  private static boolean isKeyword(String atom) {
+    if (atom == null)
+      return true;
+    switch (atom) {
+      case "not":
+      case "div":
+      case "mod":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static <T extends Enum<T>> Map<String, T> lowercaseConstants(Class<T> enumType) {
+    Map<String, T> constants = new HashMap<>();
+    for (T constant : enumType.getEnumConstants()) {
+      constants.put(constant.name()
+                            .toLowerCase(Locale.ROOT),
+          constant);
+    }
+    return constants;
+  }
+}
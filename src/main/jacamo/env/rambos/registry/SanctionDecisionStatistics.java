@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import rambos.registry.SanctionDecision.Cause;
+import rambos.registry.SanctionDecision.Efficacy;
+
+/**
+ * Aggregate counters of sanction decisions.
+ * 
+ * Decisions folded into the statistics are counted per norm, sanction, cause, and efficacy, so
+ * that long-horizon figures are kept once the decisions themselves are discarded.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @author igorcadelima
+ *
+ */
+public final class SanctionDecisionStatistics {
+  private long count;
+  private final Map<String, Long> byNorm;
+  private final Map<String, Long> bySanction;
+  private final Map<Cause, Long> byCause;
+  private final Map<Efficacy, Long> byEfficacy;
+
+  /** Constructs empty {@link SanctionDecisionStatistics}. */
+  public SanctionDecisionStatistics() {
+    byNorm = new HashMap<>();
+    bySanction = new HashMap<>();
+    byCause = new EnumMap<>(Cause.class);
+    byEfficacy = new EnumMap<>(Efficacy.class);
+  }
+
+  /**
+   * Constructs a copy of {@code other}.
+   * 
+   * @param other statistics to be copied
+   */
+  public SanctionDecisionStatistics(SanctionDecisionStatistics other) {
+    count = other.count;
+    byNorm = new HashMap<>(other.byNorm);
+    bySanction = new HashMap<>(other.bySanction);
+    byCause = new EnumMap<>(other.byCause);
+    byEfficacy = new EnumMap<>(other.byEfficacy);
+  }
+
+  /**
+   * Fold {@code decision} into the counters.
+   * 
+   * @param decision decision to be counted
+   */
+  public void add(SanctionDecision decision) {
+    count++;
+    byNorm.merge(decision.getNorm(), 1L, Long::sum);
+    bySanction.merge(decision.getSanction(), 1L, Long::sum);
+    byCause.merge(decision.getCause(), 1L, Long::sum);
+    byEfficacy.merge(decision.getEfficacy(), 1L, Long::sum);
+  }
+
+  /**
+   * Fold all the decisions counted in {@code other} into the counters.
+   * 
+   * @param other statistics to be merged into these
+   */
+  public void addAll(SanctionDecisionStatistics other) {
+    count += other.count;
+    other.byNorm.forEach((norm, n) -> byNorm.merge(norm, n, Long::sum));
+    other.bySanction.forEach((sanction, n) -> bySanction.merge(sanction, n, Long::sum));
+    other.byCause.forEach((cause, n) -> byCause.merge(cause, n, Long::sum));
+    other.byEfficacy.forEach((efficacy, n) -> byEfficacy.merge(efficacy, n, Long::sum));
+  }
+
+  /** Return number of decisions folded into the statistics. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Return number of decisions made with regard to {@code norm}. */
+  public long getCountByNorm(String norm) {
+    return byNorm.getOrDefault(norm, 0L);
+  }
+
+  /** Return number of decisions which resulted in {@code sanction}. */
+  public long getCountBySanction(String sanction) {
+    return bySanction.getOrDefault(sanction, 0L);
+  }
+
+  /** Return number of decisions made because of {@code cause}. */
+  public long getCountByCause(Cause cause) {
+    return byCause.getOrDefault(cause, 0L);
+  }
+
+  /** Return number of decisions with the given {@code efficacy}. */
+  public long getCountByEfficacy(Efficacy efficacy) {
+    return byEfficacy.getOrDefault(efficacy, 0L);
+  }
+
+  /** Return number of decisions per norm. */
+  public Map<String, Long> getCountsByNorm() {
+    return Collections.unmodifiableMap(byNorm);
+  }
+
+  /** Return number of decisions per sanction. */
+  public Map<String, Long> getCountsBySanction() {
+    return Collections.unmodifiableMap(bySanction);
+  }
+
+  /** Return number of decisions per cause. */
+  public Map<Cause, Long> getCountsByCause() {
+    return Collections.unmodifiableMap(byCause);
+  }
+
+  /** Return number of decisions per efficacy. */
+  public Map<Efficacy, Long> getCountsByEfficacy() {
+    return Collections.unmodifiableMap(byEfficacy);
+  }
+
+  @Override
+  public String toString() {
+    return "SanctionDecisionStatistics [count=" + count + ", byNorm=" + byNorm + ", bySanction="
+        + bySanction + ", byCause=" + byCause + ", byEfficacy=" + byEfficacy + "]";
+  }
+}
@@ -20,10 +20,18 @@
  *******************************************************************************/
 package rambos.registry;
 
+import static jason.asSyntax.ASSyntax.createAtom;
+import static jason.asSyntax.ASSyntax.createLiteral;
+import static jason.asSyntax.ASSyntax.createNumber;
+
 import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Atom;
 import jason.asSyntax.Literal;
 import jason.asSyntax.NumberTerm;
 import rambos.common.Enums;
+import rambos.common.id.Id;
+import rambos.common.id.IdStrategy;
+import rambos.common.id.Uuid;
 import rambos.registry.SanctionDecision.Cause;
 import rambos.registry.SanctionDecision.Efficacy;
 
@@ -38,42 +46,138 @@ public final class SanctionDecisions {
 
   /**
    * Return a new sanction decision initialised to the value represented by the specified
-   * {@code String}.
+   * {@code String}. The id of the decision is a new {@link Uuid}.
    * 
    * @param decision string to be parsed
    * @return sanction decision represented by the string argument
    * @throws IllegalArgumentException if string does not contain a parsable sanction decision
    * @throws NullPointerException if string is {@code null}
+   * @see #parse(String, IdStrategy)
    */
   public static SanctionDecision parse(String decision) {
+    return parse(decision, IdStrategy.UUID);
+  }
+
+  /**
+   * Return a new sanction decision initialised to the value represented by the specified
+   * {@code String}, whose id is created according to {@code ids}.
+   * 
+   * Strings with the plain shape produced by agents, i.e. whose arguments are atoms and an integer
+   * time, are read by a specialised single-pass parser. Any other string is handed over to the
+   * general Jason parser.
+   * 
+   * @param decision string to be parsed
+   * @param ids strategy used to create the id of the decision
+   * @return sanction decision represented by the string argument
+   * @throws IllegalArgumentException if string does not contain a parsable sanction decision
+   * @throws NullPointerException if string is {@code null}
+   */
+  public static SanctionDecision parse(String decision, IdStrategy ids) {
+    SanctionDecision parsed = SanctionDecisionParser.tryParse(decision, ids);
+    if (parsed != null)
+      return parsed;
     try {
-      Literal l = ASSyntax.parseLiteral(decision);
+      return of(ASSyntax.parseLiteral(decision), ids);
+    } catch (Exception e) {
+      throw new IllegalArgumentException("String does not contain a parsable sanction decision");
+    }
+  }
 
-      if (!l.getFunctor()
-            .equals(BasicSanctionDecision.FUNCTOR)) {
-        throw new IllegalArgumentException();
-      }
+  /**
+   * Return a new sanction decision whose literal representation is the given {@code literal},
+   * and whose id is created according to {@code ids}.
+   * 
+   * @param literal literal representation of the decision
+   * @param ids strategy used to create the id of the decision
+   * @return sanction decision represented by the literal
+   * @throws IllegalArgumentException if literal does not represent a sanction decision
+   * @throws NullPointerException if literal is {@code null}
+   */
+  public static SanctionDecision of(Literal literal, IdStrategy ids) {
+    if (!literal.getFunctor()
+                .equals(BasicSanctionDecision.FUNCTOR)
+        || literal.getArity() != 9) {
+      throw new IllegalArgumentException("Literal does not represent a sanction decision");
+    }
 
+    Cause cause = Enums.lookup(Cause.class, literal.getTerm(6)
+                                                  .toString());
+    Efficacy efficacy = Enums.lookup(Efficacy.class, literal.getTerm(7)
+                                                           .toString());
+    if (cause == null || efficacy == null) {
+      throw new IllegalArgumentException("Literal does not represent a sanction decision");
+    }
+
+    try {
       return BasicSanctionDecision.builder()
-                                  .time((long) ((NumberTerm) l.getTerm(1)).solve())
-                                  .sanctioner(l.getTerm(2)
-                                               .toString())
-                                  .sanctionee(l.getTerm(3)
+                                  .id(ids.newId())
+                                  .time((long) ((NumberTerm) literal.getTerm(1)).solve())
+                                  .sanctioner(literal.getTerm(2)
+                                                     .toString())
+                                  .sanctionee(literal.getTerm(3)
+                                                     .toString())
+                                  .norm(literal.getTerm(4)
                                                .toString())
-                                  .norm(l.getTerm(4)
-                                         .toString())
-                                  .sanction(l.getTerm(5)
-                                             .toString())
-                                  .cause(Enums.lookup(Cause.class, l.getTerm(6)
-                                                                    .toString()))
-                                  .efficacy(Enums.lookup(Efficacy.class, l.getTerm(7)
-                                                                          .toString()))
-                                  .applied(Boolean.valueOf(l.getTerm(8)
-                                                            .toString()))
+                                  .sanction(literal.getTerm(5)
+                                                   .toString())
+                                  .cause(cause)
+                                  .efficacy(efficacy)
+                                  .applied(Boolean.valueOf(literal.getTerm(8)
+                                                                  .toString()))
                                   .build();
-
     } catch (Exception e) {
-      throw new IllegalArgumentException("String does not contain a parsable sanction decision");
+      throw new IllegalArgumentException("Literal does not represent a sanction decision");
     }
   }
+
+  /**
+   * Return a copy of {@code decision} which does not depend on the instance it was copied from,
+   * e.g. on the row of a {@link ColumnarSanctionDecisionStore}, and which can thus be handed over
+   * to agents.
+   * 
+   * @param decision decision to be copied
+   * @return detached copy of {@code decision}
+   */
+  public static SanctionDecision copyOf(SanctionDecision decision) {
+    return withId(decision, decision.getId());
+  }
+
+  /**
+   * Return a detached copy of {@code decision} whose id is {@code id}.
+   * 
+   * @param decision decision to be copied
+   * @param id id of the copy
+   * @return copy of {@code decision} with the given id
+   */
+  public static SanctionDecision withId(SanctionDecision decision, Id id) {
+    return BasicSanctionDecision.builder()
+                                .id(id)
+                                .time(decision.getTime())
+                                .sanctioner(decision.getSanctioner())
+                                .sanctionee(decision.getSanctionee())
+                                .norm(decision.getNorm())
+                                .sanction(decision.getSanction())
+                                .cause(decision.getCause())
+                                .efficacy(decision.getEfficacy())
+                                .applied(decision.isApplied())
+                                .build();
+  }
+
+  /**
+   * Return the literal representation of {@code decision}, which is shared by the different
+   * {@link SanctionDecision} implementations.
+   * 
+   * @param decision decision to be represented
+   * @return literal representation of {@code decision}
+   */
+  static Literal toLiteral(SanctionDecision decision) {
+    Id id = decision.getId();
+    Cause cause = decision.getCause();
+    Efficacy efficacy = decision.getEfficacy();
+    return createLiteral(decision.getFunctor(), id.toLiteral(), createNumber(decision.getTime()),
+        createAtom(decision.getSanctioner()), createAtom(decision.getSanctionee()),
+        createAtom(decision.getNorm()), createAtom(decision.getSanction()),
+        cause.toAtom(), efficacy.toAtom(),
+        decision.isApplied() ? Atom.LTrue : Atom.LFalse);
+  }
 }
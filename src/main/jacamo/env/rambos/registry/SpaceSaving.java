@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving sketch, which tracks the most frequent items of a stream in bounded memory.
+ * 
+ * At most {@code capacity} items are monitored at a time. When a new item arrives and the sketch
+ * is full, the item with the smallest count is replaced by the new one, which inherits that count
+ * as its (over-)estimation error. Therefore, every item occurring more than {@code n / capacity}
+ * times in a stream of {@code n} items is guaranteed to be monitored, and the count of each
+ * monitored item exceeds its true frequency by at most its error.
+ * 
+ * Monitored items are kept in a binary min-heap ordered by count, so that each offer takes
+ * {@code O(log capacity)} time.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @param <T> type of the items
+ * @author igorcadelima
+ *
+ */
+public final class SpaceSaving<T> {
+  private static final Comparator<Counter<?>> BY_COUNT_DESC =
+      Comparator.<Counter<?>>comparingLong(Counter::getCount)
+                .reversed();
+
+  private final Map<T, Counter<T>> counters = new HashMap<>();
+  private final Counter<T>[] heap;
+  private int size;
+
+  /**
+   * Create a new sketch monitoring at most {@code capacity} items.
+   * 
+   * @param capacity maximum number of monitored items
+   * @throws IllegalArgumentException if {@code capacity} is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public SpaceSaving(int capacity) {
+    if (capacity <= 0)
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    heap = new Counter[capacity];
+  }
+
+  /**
+   * Counter of a monitored item.
+   * 
+   * @param <T> type of the item
+   */
+  public static final class Counter<T> {
+    private T item;
+    private long count;
+    private long error;
+    private int position;
+
+    private Counter(T item, long count, long error) {
+      this.item = item;
+      this.count = count;
+      this.error = error;
+    }
+
+    /** Return the monitored item. */
+    public T getItem() {
+      return item;
+    }
+
+    /** Return the estimated frequency of the item, which never underestimates its true value. */
+    public long getCount() {
+      return count;
+    }
+
+    /** Return the maximum overestimation of {@link #getCount()}. */
+    public long getError() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      return item + "=" + count + "(+/-" + error + ")";
+    }
+  }
+
+  /**
+   * Count one occurrence of {@code item}.
+   * 
+   * @param item item to be counted
+   */
+  public void offer(T item) {
+    Counter<T> counter = counters.get(item);
+    if (counter != null) {
+      counter.count++;
+      siftDown(counter.position);
+    } else if (size < heap.length) {
+      counter = new Counter<>(item, 1, 0);
+      counters.put(item, counter);
+      heap[size] = counter;
+      siftUp(size++);
+    } else {
+      // Reuse the counter of the least frequent item
+      counter = heap[0];
+      counters.remove(counter.item);
+      counter.item = item;
+      counter.error = counter.count;
+      counter.count++;
+      counters.put(item, counter);
+      siftDown(0);
+    }
+  }
+
+  /**
+   * Return copies of the counters of the {@code k} most frequent items, in descending order of
+   * count.
+   * 
+   * @param k maximum number of counters to be returned
+   * @return counters of the most frequent items
+   */
+  public List<Counter<T>> top(int k) {
+    Counter<T>[] sorted = Arrays.copyOf(heap, size);
+    Arrays.sort(sorted, BY_COUNT_DESC);
+    List<Counter<T>> top = new ArrayList<>();
+    for (int i = 0; i < sorted.length && i < k; i++) {
+      Counter<T> counter = sorted[i];
+      top.add(new Counter<>(counter.item, counter.count, counter.error));
+    }
+    return top;
+  }
+
+  /**
+   * Merge counters returned by {@link #top(int)} of several sketches, e.g. built over disjoint
+   * partitions of a stream, into the counters of the {@code k} most frequent items overall.
+   * 
+   * Counts and errors of the same item are summed. Occurrences of an item in sketches whose
+   * counters do not include it are not accounted for, so merged counts are exact only if the
+   * partitions share no items, and approximate otherwise.
+   * 
+   * @param <T> type of the items
+   * @param summaries counters of each sketch
+   * @param k maximum number of counters to be returned
+   * @return merged counters of the most frequent items, in descending order of count
+   */
+  public static <T> List<Counter<T>> merge(Collection<? extends Collection<Counter<T>>> summaries,
+      int k) {
+    Map<T, Counter<T>> merged = new HashMap<>();
+    for (Collection<Counter<T>> summary : summaries) {
+      for (Counter<T> counter : summary) {
+        Counter<T> sum = merged.computeIfAbsent(counter.item, item -> new Counter<>(item, 0, 0));
+        sum.count += counter.count;
+        sum.error += counter.error;
+      }
+    }
+    List<Counter<T>> top = new ArrayList<>(merged.values());
+    top.sort(BY_COUNT_DESC);
+    return top.size() > k ? new ArrayList<>(top.subList(0, Math.max(k, 0))) : top;
+  }
+
+  /** Return the number of monitored items. */
+  public int size() {
+    return size;
+  }
+
+  private void siftUp(int i) {
+    Counter<T> counter = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent].count <= counter.count)
+        break;
+      place(heap[parent], i);
+      i = parent;
+    }
+    place(counter, i);
+  }
+
+  private void siftDown(int i) {
+    Counter<T> counter = heap[i];
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      int right = child + 1;
+      if (right < size && heap[right].count < heap[child].count)
+        child = right;
+      if (counter.count <= heap[child].count)
+        break;
+      place(heap[child], i);
+      i = child;
+    }
+    place(counter, i);
+  }
+
+  private void place(Counter<T> counter, int i) {
+    heap[i] = counter;
+    counter.position = i;
+  }
+}
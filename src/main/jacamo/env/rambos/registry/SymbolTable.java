@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * MIT License
+ *
+ * Copyright (c) Igor Conrado Alves de Lima <igorcadelima@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *******************************************************************************/
+package rambos.registry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns strings into dense {@code int} symbols.
+ * 
+ * Symbols are never released, so this class is meant for names drawn from a bounded vocabulary,
+ * such as agent, norm, and sanction names.
+ * 
+ * <b>Note:</b> this class is not thread-safe.
+ * 
+ * @author igorcadelima
+ *
+ */
+final class SymbolTable {
+  private final Map<String, Integer> symbols = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+
+  /**
+   * Return symbol of {@code name}, creating a new one if {@code name} has not been interned yet.
+   * 
+   * @param name name to be interned
+   * @return symbol of {@code name}
+   */
+  int intern(String name) {
+    Integer symbol = symbols.get(name);
+    if (symbol == null) {
+      symbol = names.size();
+      symbols.put(name, symbol);
+      names.add(name);
+    }
+    return symbol;
+  }
+
+  /**
+   * Return name of the given {@code symbol}.
+   * 
+   * @param symbol symbol returned by {@link #intern(String)}
+   * @return interned name
+   */
+  String nameOf(int symbol) {
+    return names.get(symbol);
+  }
+
+  /** Return number of interned names. */
+  int size() {
+    return names.size();
+  }
+}
@@ -35,11 +35,13 @@ import rambos.common.Status;
 final class BasicSanction implements Sanction {
   static final String FUNCTOR = "sanction";
 
-  private Atom id;
-  private Status status = Status.ENABLED;
-  private LogicalFormula condition;
-  private SanctionCategory category;
-  private LogicalFormula content;
+  private final Atom id;
+  private final Status status;
+  private final LogicalFormula condition;
+  private final SanctionCategory category;
+  private final LogicalFormula content;
+  // Literal representation, built upon first request
+  private volatile Literal literal;
 
   /**
    * Constructs an {@link AbstractSanction} with the properties specified in {@code builder}.
@@ -159,21 +161,15 @@ final class BasicSanction implements Sanction {
   }
 
   @Override
-  public boolean enable() {
-    if (status == Status.DISABLED) {
-      status = Status.ENABLED;
-      return true;
-    }
-    return false;
-  }
-
-  @Override
-  public boolean disable() {
-    if (status == Status.ENABLED) {
-      status = Status.DISABLED;
-      return true;
-    }
-    return false;
+  public Sanction withStatus(Status status) {
+    if (this.status == status)
+      return this;
+    return new Builder().id(id)
+                        .status(status)
+                        .condition(condition)
+                        .category(category)
+                        .content(content)
+                        .build();
   }
 
   @Override
@@ -183,9 +179,17 @@ final class BasicSanction implements Sanction {
 
   @Override
   public Literal toLiteral() {
+    Literal l = literal;
+    if (l == null)
+      literal = l = newLiteral();
+    return l;
+  }
+
+  /** Build literal representation from scratch. */
+  private Literal newLiteral() {
     Literal l = ASSyntax.createLiteral(getFunctor());
     l.addTerm(id);
-    l.addTerm(ASSyntax.createAtom(status.lowercase()));
+    l.addTerm(status.toAtom());
     l.addTerm(condition);
     l.addTerm(category.toLiteral());
     l.addTerm(content);
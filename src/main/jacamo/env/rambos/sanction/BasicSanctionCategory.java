@@ -36,6 +36,8 @@ final class BasicSanctionCategory implements SanctionCategory {
   private SanctionMode mode;
   private SanctionPolarity polarity;
   private SanctionDiscernability discernability;
+  // Literal representation, built upon first request
+  private volatile Literal literal;
 
   /**
    * SanctionCategory constructor.
@@ -88,13 +90,21 @@ final class BasicSanctionCategory implements SanctionCategory {
 
   @Override
   public Literal toLiteral() {
+    Literal l = literal;
+    if (l == null)
+      literal = l = newLiteral();
+    return l;
+  }
+
+  /** Build literal representation from scratch. */
+  private Literal newLiteral() {
     Literal l = ASSyntax.createLiteral(FUNCTOR);
-    l.addTerm(ASSyntax.createAtom(discernability.lowercase()));
-    l.addTerm(ASSyntax.createAtom(issuer.lowercase()));
-    l.addTerm(ASSyntax.createAtom(locus.lowercase()));
-    l.addTerm(ASSyntax.createAtom(mode.lowercase()));
-    l.addTerm(ASSyntax.createAtom(polarity.lowercase()));
-    l.addTerm(ASSyntax.createAtom(purpose.lowercase()));
+    l.addTerm(discernability.toAtom());
+    l.addTerm(issuer.toAtom());
+    l.addTerm(locus.toAtom());
+    l.addTerm(mode.toAtom());
+    l.addTerm(polarity.toAtom());
+    l.addTerm(purpose.toAtom());
     return l;
   }
 
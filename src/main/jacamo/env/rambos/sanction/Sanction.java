@@ -26,6 +26,9 @@ import rambos.common.Literable;
 import rambos.common.Status;
 
 /**
+ * A sanction, which is an immutable value. Changes to a sanction are made by creating new
+ * sanctions through its {@code with*} methods.
+ * 
  * @author igorcadelima
  *
  */
@@ -57,16 +60,11 @@ public interface Sanction extends Literable {
   LogicalFormula getContent();
 
   /**
-   * Enable the sanction changing its status to {@link Status#ENABLED}.
+   * Return a sanction which is equal to this one but with the given {@code status}.
    * 
-   * @return {@code true} is status was previously {@link Status#DISABLED}.
+   * @param status status of the new sanction
+   * @return sanction with the given status, or this sanction if its status is already
+   *         {@code status}
    */
-  boolean enable();
-
-  /**
-   * Disable the sanction changing its status to {@link Status#DISABLED}.
-   * 
-   * @return {@code true} is status was previously {@link Status#ENABLED}.
-   */
-  boolean disable();
+  Sanction withStatus(Status status);
 }
@@ -20,6 +20,9 @@
  *******************************************************************************/
 package rambos.sanction;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -45,14 +48,27 @@ final class SanctionCategories {
    * @throws NullPointerException if element is {@code null}
    */
   public static BasicSanctionCategory of(Element el) {
-    NodeList dimensions = el.getChildNodes();
-    Builder builder = new Builder();
+    NodeList dimensionNodes = el.getChildNodes();
+    Map<String, String> dimensions = new HashMap<>();
+
+    for (int i = 0; i < dimensionNodes.getLength(); i++) {
+      Node dimensionNode = dimensionNodes.item(i);
+      dimensions.put(dimensionNode.getNodeName(), dimensionNode.getTextContent());
+    }
+    return of(dimensions);
+  }
 
-    for (int i = 0; i < dimensions.getLength(); i++) {
-      Node dimensionNode = dimensions.item(i);
-      String dimension = dimensionNode.getTextContent();
+  /**
+   * Return a new {@link BasicSanctionCategory} object whose dimensions have the given values.
+   * 
+   * @param dimensions values of the dimensions indexed by their names, e.g. {@code purpose}
+   * @return {@link BasicSanctionCategory} object with the given dimensions
+   */
+  static BasicSanctionCategory of(Map<String, String> dimensions) {
+    Builder builder = new Builder();
 
-      switch (dimensionNode.getNodeName()) {
+    dimensions.forEach((name, dimension) -> {
+      switch (name) {
         case "purpose":
           builder.purpose(Enums.lookup(SanctionPurpose.class, dimension));
           break;
@@ -72,7 +88,7 @@ final class SanctionCategories {
           builder.discernability(Enums.lookup(SanctionDiscernability.class, dimension));
           break;
       }
-    }
+    });
     return builder.build();
   }
 }
@@ -20,11 +20,15 @@
  *******************************************************************************/
 package rambos.sanction;
 
+import java.util.Map;
+
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import jason.asSyntax.ASSyntax;
+import jason.asSyntax.Atom;
+import jason.asSyntax.LogicalFormula;
 import jason.asSyntax.parser.ParseException;
 import rambos.common.Enums;
 import rambos.common.Status;
@@ -54,6 +58,51 @@ public final class Sanctions {
                                       .build();
   }
 
+  /**
+   * Return a new {@link Sanction} instance whose properties are represented by the given strings.
+   * 
+   * @param id id of the sanction
+   * @param status status of the sanction
+   * @param condition activation condition of the sanction, to be parsed as a formula
+   * @param category values of the category dimensions indexed by their names, e.g.
+   *        {@code purpose}
+   * @param content content of the sanction, to be parsed as a formula
+   * @return {@link Sanction} instance with the given properties
+   * @throws IllegalArgumentException if condition or content cannot be parsed
+   */
+  public static Sanction of(String id, Status status, String condition,
+      Map<String, String> category, String content) {
+    try {
+      return of(ASSyntax.createAtom(id), status,
+          condition == null ? null : ASSyntax.parseFormula(condition), category,
+          ASSyntax.parseFormula(content));
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("Sanction " + id + " cannot be parsed: "
+          + e.getMessage());
+    }
+  }
+
+  /**
+   * Return a new {@link Sanction} instance with the given properties.
+   * 
+   * @param id id of the sanction
+   * @param status status of the sanction
+   * @param condition activation condition of the sanction
+   * @param category values of the category dimensions indexed by their names, e.g.
+   *        {@code purpose}
+   * @param content content of the sanction
+   * @return {@link Sanction} instance with the given properties
+   */
+  public static Sanction of(Atom id, Status status, LogicalFormula condition,
+      Map<String, String> category, LogicalFormula content) {
+    return new Builder().id(id)
+                        .status(status)
+                        .condition(condition)
+                        .category(SanctionCategories.of(category))
+                        .content(content)
+                        .build();
+  }
+
   /**
    * Return a new {@link Sanction} instance initialised to the value represented by the specified
    * {@code Element}.